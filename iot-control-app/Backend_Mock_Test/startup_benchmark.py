@@ -0,0 +1,197 @@
+#!/usr/bin/env python3
+"""
+Startup benchmark for the Mobile_Backend builds
+Measures time-to-first-request and time-to-first-ingest of the plain jar and of the
+AOT/CDS optimized build (./mvnw -Paot package)
+
+Usage: python3 startup_benchmark.py [--runs 5] [--skip-ingest]
+"""
+
+import argparse
+import json
+import os
+import shutil
+import statistics
+import subprocess
+import tempfile
+import time
+import urllib.error
+import urllib.request
+from datetime import datetime
+from pathlib import Path
+
+BACKEND_DIR = Path(__file__).resolve().parent.parent / "Mobile_Backend"
+JAR_NAME = "Mobile_Backend-0.0.1-SNAPSHOT.jar"
+BENCH_ROOM = "benchroom"
+
+
+def load_env():
+    """MQTT credentials from .env, same file the mock tests use"""
+    env = dict(os.environ)
+    env_path = Path(__file__).resolve().parent / ".env"
+    if env_path.exists():
+        try:
+            from dotenv import dotenv_values
+            env.update({k: v for k, v in dotenv_values(env_path).items() if v is not None})
+        except ImportError:
+            print("python-dotenv not installed, using the process environment only")
+    return env
+
+
+def find_variants():
+    """Plain fat jar and, when built, the extracted jar with its AOT cache or CDS archive"""
+    variants = []
+
+    plain_jar = BACKEND_DIR / "target" / JAR_NAME
+    if plain_jar.exists():
+        variants.append(("plain", ["-jar", str(plain_jar)]))
+
+    app_dir = BACKEND_DIR / "target" / "application"
+    if (app_dir / "application.aot").exists():
+        variants.append(("aot-cache", ["-XX:AOTCache=" + str(app_dir / "application.aot"),
+                                       "-Dspring.aot.enabled=true", "-jar", str(app_dir / JAR_NAME)]))
+    elif (app_dir / "application.jsa").exists():
+        variants.append(("aot-cds", ["-XX:SharedArchiveFile=" + str(app_dir / "application.jsa"),
+                                     "-Dspring.aot.enabled=true", "-jar", str(app_dir / JAR_NAME)]))
+
+    return variants
+
+
+def http_ok(url):
+    try:
+        with urllib.request.urlopen(url, timeout=1) as response:
+            return response.status == 200
+    except (urllib.error.URLError, ConnectionError, TimeoutError):
+        return False
+
+
+class IngestProbe:
+    """Publishes a temperature reading until the backend has stored one"""
+
+    def __init__(self, env):
+        import paho.mqtt.client as mqtt
+
+        self.client = mqtt.Client(client_id="startup_benchmark")
+        if env.get("MQTT_USERNAME"):
+            self.client.username_pw_set(env["MQTT_USERNAME"], env.get("MQTT_PASSWORD"))
+        if int(env.get("MQTT_BROKER_PORT", "8883")) == 8883:
+            self.client.tls_set()
+        self.client.connect(env.get("MQTT_BROKER_HOST", "localhost"), int(env.get("MQTT_BROKER_PORT", "8883")), keepalive=60)
+        self.client.loop_start()
+
+    def publish(self):
+        payload = {"temp_f": 70.0, "timestamp": datetime.now().strftime("%Y-%m-%dT%H:%M:%S")}
+        self.client.publish(f"{BENCH_ROOM}/temperature/status", json.dumps(payload), qos=1, retain=False)
+
+    def close(self):
+        self.client.loop_stop()
+        self.client.disconnect()
+
+
+def run_once(name, java_args, env, port, probe, timeout):
+    """One cold start, returns (first request seconds, first ingest seconds or None)"""
+    work_dir = Path(tempfile.mkdtemp(prefix=f"bench_{name}_"))
+    command = ["java", *java_args,
+               f"--server.port={port}",
+               f"--spring.datasource.url=jdbc:sqlite:{work_dir / 'bench.db'}",
+               "--spring.jpa.show-sql=false"]
+
+    process_env = dict(env)
+    process_env["MQTT_CLIENT_ID"] = "mobile_backend_benchmark"  # Never kick a running backend off the broker
+
+    start = time.monotonic()
+    process = subprocess.Popen(command, cwd=work_dir, env=process_env, stdout=subprocess.DEVNULL, stderr=subprocess.DEVNULL)
+
+    first_request = None
+    first_ingest = None
+    last_publish = 0.0
+    try:
+        while time.monotonic() - start < timeout:
+            if process.poll() is not None:
+                raise RuntimeError(f"{name} exited with code {process.returncode}")
+
+            if first_request is None and http_ok(f"http://localhost:{port}/api/rooms"):
+                first_request = time.monotonic() - start
+
+            if probe is not None and first_ingest is None:
+                # Messages published before the backend subscribes are lost, so keep publishing.
+                if time.monotonic() - last_publish > 0.1:
+                    probe.publish()
+                    last_publish = time.monotonic()
+                if first_request is not None and http_ok(f"http://localhost:{port}/api/temperature/status/{BENCH_ROOM}"):
+                    first_ingest = time.monotonic() - start
+
+            if first_request is not None and (probe is None or first_ingest is not None):
+                break
+            time.sleep(0.02)
+    finally:
+        process.terminate()
+        try:
+            process.wait(timeout=30)
+        except subprocess.TimeoutExpired:
+            process.kill()
+        shutil.rmtree(work_dir, ignore_errors=True)
+
+    if first_request is None:
+        raise RuntimeError(f"{name} did not answer within {timeout} seconds")
+    return first_request, first_ingest
+
+
+def summarize(samples):
+    samples = [s for s in samples if s is not None]
+    if not samples:
+        return "n/a"
+    return f"{statistics.median(samples):6.2f}s (min {min(samples):.2f}s)"
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Mobile_Backend startup benchmark")
+    parser.add_argument("--runs", type=int, default=3, help="Cold starts per build")
+    parser.add_argument("--port", type=int, default=18080, help="HTTP port for the benchmarked backend")
+    parser.add_argument("--timeout", type=float, default=120, help="Seconds to wait for one start")
+    parser.add_argument("--skip-ingest", action="store_true", help="Only measure time-to-first-request")
+    args = parser.parse_args()
+
+    variants = find_variants()
+    if not variants:
+        print(f"ERROR: No build found in {BACKEND_DIR / 'target'}")
+        print("Build first: ./mvnw package (plain) and ./mvnw -Paot package (optimized)")
+        return
+
+    env = load_env()
+    probe = None
+    if not args.skip_ingest:
+        try:
+            probe = IngestProbe(env)
+            print(f"✓ Publishing to {env.get('MQTT_BROKER_HOST', 'localhost')} for time-to-first-ingest")
+        except Exception as e:
+            print(f"✗ MQTT probe unavailable ({e}), measuring time-to-first-request only")
+
+    print("=" * 60)
+    print("ThermaLink - Backend Startup Benchmark")
+    print("=" * 60)
+
+    results = {}
+    try:
+        for name, java_args in variants:
+            requests, ingests = [], []
+            for run in range(args.runs):
+                first_request, first_ingest = run_once(name, java_args, env, args.port, probe, args.timeout)
+                requests.append(first_request)
+                ingests.append(first_ingest)
+                ingest_text = f"{first_ingest:.2f}s" if first_ingest is not None else "n/a"
+                print(f"  {name:10s} run {run + 1}: first request {first_request:.2f}s | first ingest {ingest_text}")
+            results[name] = (requests, ingests)
+    finally:
+        if probe is not None:
+            probe.close()
+
+    print()
+    print(f"{'Build':10s} | {'First request (median)':28s} | {'First ingest (median)':28s}")
+    print("-" * 72)
+    for name, (requests, ingests) in results.items():
+        print(f"{name:10s} | {summarize(requests):28s} | {summarize(ingests):28s}")
+
+
+if __name__ == "__main__":
+    main()
@@ -9,6 +9,8 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.EventListener;
 
+import java.util.List;
+
 @SpringBootApplication
 public class MobileBackendApplication {
 
@@ -16,13 +18,14 @@ public class MobileBackendApplication {
 
     public static void main(String[] args) {
         logger.info("Configuring environment variables...");
-        Dotenv dotenv = Dotenv.configure().load();
-        System.setProperty("CORS_ALLOWED_ORIGIN", dotenv.get("CORS_ALLOWED_ORIGIN"));
-        System.setProperty("MQTT_BROKER_HOST", dotenv.get("MQTT_BROKER_HOST"));
-        System.setProperty("MQTT_BROKER_PORT", dotenv.get("MQTT_BROKER_PORT"));
-        System.setProperty("MQTT_USERNAME", dotenv.get("MQTT_USERNAME"));
-        System.setProperty("MQTT_PASSWORD", dotenv.get("MQTT_PASSWORD"));
-        System.setProperty("MQTT_CLIENT_ID", dotenv.get("MQTT_CLIENT_ID"));
+        // A missing .env or key falls back to the defaults in application.properties (e.g. the AOT training run).
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+        for (String key : List.of("CORS_ALLOWED_ORIGIN", "MQTT_BROKER_HOST", "MQTT_BROKER_PORT", "MQTT_USERNAME", "MQTT_PASSWORD", "MQTT_CLIENT_ID")) {
+            String value = dotenv.get(key);
+            if (value != null) {
+                System.setProperty(key, value);
+            }
+        }
         logger.info("Environment variables configured successfully");
 
         logger.info("Starting Spring Boot application...");
@@ -0,0 +1,48 @@
+package com.iot.mobile_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "anomaly")
+public class AnomalyProperties {
+
+    private boolean enabled = true;
+
+    // EWMA weight of a new reading, about 1/alpha readings make up the baseline.
+    private double alpha = 0.05;
+
+    // Readings folded in before spikes are judged.
+    private int warmup = 30;
+
+    // A reading this many standard deviations away from the baseline is a spike.
+    private double spikeThreshold = 4.0;
+
+    // Spikes in a row on the same side of the baseline that make it restart from the new level.
+    private int spikeRun = 5;
+
+    // Floor for the standard deviation, so a perfectly steady signal does not turn every small step into a spike.
+    private double minDeviation = 0.5;
+
+    // The same value repeated for at least this many readings and this long is a flatline.
+    private int flatlineSamples = 60;
+    private Duration flatlineDuration = Duration.ofHours(1);
+
+    // The same anomaly of one sensor is stored at most once per interval, the metrics count every one.
+    private Duration repeatInterval = Duration.ofMinutes(5);
+
+    // Per sensor type overrides, e.g. anomaly.sensors.temperature.max-rate=5.0
+    private Map<String, SensorLimits> sensors = new HashMap<>();
+
+    @Data
+    public static class SensorLimits {
+        // Largest physically possible change per minute, faster changes are impossible jumps. No check when unset.
+        private Double maxRate;
+        private Double minDeviation;
+        private Duration flatlineDuration;
+    }
+}
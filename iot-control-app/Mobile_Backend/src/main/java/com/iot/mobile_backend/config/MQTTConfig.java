@@ -2,15 +2,24 @@ package com.iot.mobile_backend.config;
 
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
+import com.iot.mobile_backend.service.MqttConnectionState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.time.LocalTime;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
+/*
+Two connections to the broker, so commands never queue behind the inbound flood of readings on one socket:
+the ingest client subscribes to every status topic and keeps the persistent session under the configured client id,
+the command client only publishes heater, fan and target temperature commands under that id plus a suffix.
+Each has its own MqttConnectionState; health and presence follow the ingest one, command replay the command one.
+*/
 @Configuration
 public class MQTTConfig {
 
@@ -23,27 +32,57 @@ public class MQTTConfig {
     @Value("${mqtt.clientId}")
     private String clientId;
 
+    // Appended to the client id for the command connection, the broker would otherwise drop one of the two.
+    @Value("${mqtt.command.client-id-suffix:-cmd}")
+    private String commandClientIdSuffix;
+
+    // Reconnect backoff, doubling from the initial delay up to the max. Also paces retries of the first connect.
+    @Value("${mqtt.reconnect.initial-delay:1s}")
+    private Duration reconnectInitialDelay;
+
+    @Value("${mqtt.reconnect.max-delay:10s}")
+    private Duration reconnectMaxDelay;
+
     private static final Logger logger = LoggerFactory.getLogger(MQTTConfig.class);
 
     @Bean
-    public Mqtt5AsyncClient MQTTClient() {
-        logger.info("Configuring MQTT client...");
+    public MqttConnectionState ingestConnectionState(ApplicationEventPublisher eventPublisher) {
+        return new MqttConnectionState(MqttConnectionState.INGEST, eventPublisher);
+    }
+
+    @Bean
+    public MqttConnectionState commandConnectionState(ApplicationEventPublisher eventPublisher) {
+        return new MqttConnectionState(MqttConnectionState.COMMAND, eventPublisher);
+    }
+
+    @Bean
+    public Mqtt5AsyncClient ingestClient(@Qualifier("ingestConnectionState") MqttConnectionState connectionState) {
+        return buildClient(clientId, connectionState);
+    }
+
+    @Bean
+    public Mqtt5AsyncClient commandClient(@Qualifier("commandConnectionState") MqttConnectionState connectionState) {
+        return buildClient(clientId + commandClientIdSuffix, connectionState);
+    }
+
+    private Mqtt5AsyncClient buildClient(String identifier, MqttConnectionState connectionState) {
+        logger.info("Configuring MQTT {} client...", connectionState.getConnection());
 
         // Preconfigured MQTT client, connect to MQTT broker without needing to retype host and port.
         Mqtt5AsyncClient client = Mqtt5Client.builder()
-                .identifier(clientId)
+                .identifier(identifier)
                 .serverHost(brokerUrl)
                 .serverPort(brokerPort)
                 .sslWithDefaultConfig()
                 .automaticReconnect()
-                .initialDelay(1, TimeUnit.SECONDS)
-                .maxDelay(10, TimeUnit.SECONDS)
+                .initialDelay(reconnectInitialDelay.toMillis(), TimeUnit.MILLISECONDS)
+                .maxDelay(reconnectMaxDelay.toMillis(), TimeUnit.MILLISECONDS)
                 .applyAutomaticReconnect()
-                .addConnectedListener(event -> logger.info("MQTT client connected at {}", LocalTime.now()))
-                .addDisconnectedListener(event -> logger.info("MQTT client disconnected at {}", LocalTime.now()))
+                .addConnectedListener(context -> connectionState.onConnected())
+                .addDisconnectedListener(connectionState::onDisconnected)
                 .buildAsync();
 
-        logger.info("MQTT client configured successfully");
+        logger.info("MQTT {} client configured successfully as {}", connectionState.getConnection(), identifier);
         return client;
     }
 }
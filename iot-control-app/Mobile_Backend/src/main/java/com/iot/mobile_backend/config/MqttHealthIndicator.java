@@ -0,0 +1,52 @@
+package com.iot.mobile_backend.config;
+
+import com.iot.mobile_backend.service.CommandJournal;
+import com.iot.mobile_backend.service.MqttConnectionState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/*
+Reported as "mqtt" in the ingest health group. Kept out of liveness and readiness on purpose:
+the REST API keeps serving stored data while the broker is away, and restarting would not bring it back.
+The status follows the ingest connection; the command connection is reported alongside, its commands wait in the journal.
+*/
+@Component
+public class MqttHealthIndicator implements HealthIndicator {
+
+    private final MqttConnectionState connectionState;
+    private final MqttConnectionState commandConnectionState;
+    private final CommandJournal commandJournal;
+
+    @Autowired
+    public MqttHealthIndicator(@Qualifier("ingestConnectionState") MqttConnectionState connectionState,
+                               @Qualifier("commandConnectionState") MqttConnectionState commandConnectionState,
+                               CommandJournal commandJournal) {
+        this.connectionState = connectionState;
+        this.commandConnectionState = commandConnectionState;
+        this.commandJournal = commandJournal;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = connectionState.getStatus() == MqttConnectionState.Status.SUBSCRIBED
+                ? Health.up()
+                : Health.outOfService();
+
+        builder.withDetail("status", connectionState.getStatus())
+                .withDetail("since", connectionState.getSince().toString())
+                .withDetail("failedAttempts", connectionState.getFailedAttempts())
+                .withDetail("commandStatus", commandConnectionState.getStatus())
+                .withDetail("commandSince", commandConnectionState.getSince().toString())
+                .withDetail("queuedCommands", commandJournal.getPendingCount());
+        if (connectionState.getLastError() != null) {
+            builder.withDetail("lastError", connectionState.getLastError());
+        }
+        if (commandConnectionState.getLastError() != null) {
+            builder.withDetail("commandLastError", commandConnectionState.getLastError());
+        }
+        return builder.build();
+    }
+}
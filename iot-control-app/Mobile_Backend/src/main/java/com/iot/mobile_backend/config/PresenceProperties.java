@@ -0,0 +1,38 @@
+package com.iot.mobile_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "presence")
+public class PresenceProperties {
+
+    // Last-will topic of the room controllers, "online" while connected and "offline" once the broker lost them.
+    private String lastWillTopicFilter = "+/device/status";
+
+    // A source not heard from for this long goes offline. Zero leaves it to its last-will messages.
+    private Duration offlineAfter = Duration.ofSeconds(30);
+
+    // Offline transitions fire within one tick of their deadline.
+    private Duration tick = Duration.ofSeconds(1);
+
+    // Slots of the timing wheel, one turn covers wheelSlots * tick. Rounded up to a power of two.
+    private int wheelSlots = 512;
+
+    // Per source overrides, the sensor type of a status topic or "device" for the last will, e.g. presence.sources.heater.offline-after=0s
+    private Map<String, SourceSettings> sources = new HashMap<>();
+
+    @Data
+    public static class SourceSettings {
+        private Duration offlineAfter;
+    }
+
+    public Duration offlineAfter(String source) {
+        SourceSettings settings = sources.get(source);
+        return settings != null && settings.getOfflineAfter() != null ? settings.getOfflineAfter() : offlineAfter;
+    }
+}
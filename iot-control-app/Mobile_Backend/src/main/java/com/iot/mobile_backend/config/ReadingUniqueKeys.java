@@ -0,0 +1,45 @@
+package com.iot.mobile_backend.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/*
+Natural key of every reading table (room, sensor, device timestamp), so a redelivered message can never be stored twice.
+Hibernate's update can only add constraints with ALTER TABLE, which SQLite does not support, so they are created
+here as unique indexes once Hibernate has created the tables. Existing duplicates are removed by SchemaMigration.
+*/
+@Component("readingUniqueKeys")
+@DependsOn("entityManagerFactory")
+public class ReadingUniqueKeys {
+
+    public record UniqueKey(String name, String columns) {
+    }
+
+    public static final Map<String, UniqueKey> KEYS = Map.of(
+            "temperature_activity", new UniqueKey("uk_temperature_activity_room_time", "room_id, recording_time"),
+            "person_detection", new UniqueKey("uk_person_detection_room_time", "room_id, detection_time"),
+            "heater_status", new UniqueKey("uk_heater_status_room_time", "room_id, recording_time"),
+            "fan_status", new UniqueKey("uk_fan_status_room_time", "room_id, recording_time"),
+            "sensor_reading", new UniqueKey("uk_sensor_reading_type_room_time", "sensor_type, room_id, recording_time"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final static Logger logger = LoggerFactory.getLogger(ReadingUniqueKeys.class);
+
+    @Autowired
+    public ReadingUniqueKeys(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    private void createUniqueKeys() {
+        KEYS.forEach((table, key) -> jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + key.name() + " ON " + table + " (" + key.columns() + ")"));
+        logger.info("Unique keys of {} reading tables are in place.", KEYS.size());
+    }
+}
@@ -0,0 +1,128 @@
+package com.iot.mobile_backend.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+Upgrades an existing iotdb.db before Hibernate's ddl-auto runs (see SchemaMigrationConfig).
+ddl-auto=update only adds columns, so layout changes it cannot express are done here with plain SQL.
+Every step checks the current layout (or user_version) first, so running it against an up-to-date database is a no-op.
+*/
+@Component("schemaMigration")
+public class SchemaMigration {
+
+    // Raw readings, room names are moved into the room dictionary.
+    private static final List<String> READING_TABLES = List.of("temperature_activity", "person_detection", "heater_status", "fan_status");
+
+    // Derived from the readings and rebuilt as new readings arrive, cheaper to drop than convert.
+    private static final List<String> DERIVED_TABLES = List.of("occupancy_session", "device_runtime");
+
+    // Every timestamp column, stored as epoch millis from schema version 2 on.
+    private static final Map<String, List<String>> TIMESTAMP_COLUMNS = Map.of(
+            "temperature_activity", List.of("recording_time"),
+            "person_detection", List.of("detection_time"),
+            "heater_status", List.of("recording_time"),
+            "fan_status", List.of("recording_time"),
+            "occupancy_session", List.of("start_time", "end_time"),
+            "device_runtime", List.of("bucket_start"));
+
+    // Kept in SQLite's user_version, for steps that cannot be detected from the table layout.
+    private static final int SCHEMA_VERSION = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final static Logger logger = LoggerFactory.getLogger(SchemaMigration.class);
+
+    @Autowired
+    public SchemaMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    private void migrate() {
+        // Readers never block the writer in WAL mode, so a long export does not hold up ingest. Kept in the file once set.
+        String journalMode = jdbcTemplate.queryForObject("PRAGMA journal_mode = WAL", String.class);
+        if (!"wal".equalsIgnoreCase(journalMode)) {
+            logger.warn("SQLite stayed in {} journal mode, long exports will delay ingest writes.", journalMode);
+        }
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS room (id INTEGER, name VARCHAR(255) NOT NULL UNIQUE, PRIMARY KEY (id))");
+
+        for (String table : READING_TABLES) {
+            if (hasColumn(table, "room_type") && !hasColumn(table, "room_id")) {
+                migrateRoomNames(table);
+            }
+        }
+        for (String table : DERIVED_TABLES) {
+            if (hasColumn(table, "room_type")) {
+                logger.warn("Dropping {} from the old room name layout, it will be rebuilt from new readings.", table);
+                jdbcTemplate.execute("DROP TABLE " + table);
+            }
+        }
+
+        Integer version = jdbcTemplate.queryForObject("PRAGMA user_version", Integer.class);
+        if (version == null || version < 2) {
+            TIMESTAMP_COLUMNS.forEach((table, columns) -> columns.forEach(column -> migrateToEpochMillis(table, column)));
+        }
+        if (version == null || version < 3) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_sensor_reading_type_room_time");  // Same columns as its unique key
+            ReadingUniqueKeys.KEYS.forEach(this::removeDuplicates);
+        }
+        jdbcTemplate.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+    }
+
+    /* =========================================================================
+       Steps
+       ========================================================================= */
+
+    private void migrateRoomNames(String table) {
+        logger.info("Moving room names of {} into the room dictionary...", table);
+
+        jdbcTemplate.update("INSERT OR IGNORE INTO room (name) SELECT DISTINCT room_type FROM " + table + " WHERE room_type IS NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN room_id INTEGER");
+        int rows = jdbcTemplate.update("UPDATE " + table + " SET room_id = (SELECT id FROM room WHERE room.name = " + table + ".room_type)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN room_type");
+
+        logger.info("Migrated {} rows of {} to room ids.", rows, table);
+    }
+
+    private void migrateToEpochMillis(String table, String column) {
+        if (!hasColumn(table, column)) {
+            return;
+        }
+
+        // Older rows hold either ISO text or the driver's java.sql.Timestamp encoding (epoch millis in the local zone).
+        // Both become the wall-clock time as if it were UTC, see EpochMillisConverter.
+        // Integer rows first, the text rows are integers once converted.
+        int integerRows = jdbcTemplate.update("UPDATE " + table + " SET " + column + " = "
+                + "CAST(strftime('%s', " + column + " / 1000, 'unixepoch', 'localtime') AS INTEGER) * 1000 + " + column + " % 1000 "
+                + "WHERE typeof(" + column + ") = 'integer'");
+        int textRows = jdbcTemplate.update("UPDATE " + table + " SET " + column + " = "
+                + "CAST(strftime('%s', " + column + ") AS INTEGER) * 1000 + CAST(substr(strftime('%f', " + column + "), 4, 3) AS INTEGER) "
+                + "WHERE typeof(" + column + ") = 'text' AND strftime('%s', " + column + ") IS NOT NULL");
+
+        logger.info("Converted {} text and {} local-zone values of {}.{} to epoch millis.", textRows, integerRows, table, column);
+    }
+
+    // Keeps the first copy of every reading, so ReadingUniqueKeys can create the unique index.
+    private void removeDuplicates(String table, ReadingUniqueKeys.UniqueKey key) {
+        if (!hasColumn(table, "id")) {
+            return;
+        }
+
+        int duplicates = jdbcTemplate.update("DELETE FROM " + table + " WHERE id NOT IN (SELECT MIN(id) FROM " + table + " GROUP BY " + key.columns() + ")");
+        logger.info("Removed {} duplicate rows of {}.", duplicates, table);
+    }
+
+    private boolean hasColumn(String table, String column) {
+        // pragma_table_info returns no rows for a missing table.
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pragma_table_info(?) WHERE name = ?", Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.iot.mobile_backend.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Hibernate's schema update must see the migrated layout, so the entity manager waits for SchemaMigration.
+@Configuration
+public class SchemaMigrationConfig {
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor schemaMigrationDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor("schemaMigration");
+    }
+}
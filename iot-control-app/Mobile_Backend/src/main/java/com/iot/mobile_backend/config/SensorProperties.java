@@ -0,0 +1,34 @@
+package com.iot.mobile_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Extra sensor kinds, ingested and stored without new code, e.g.
+sensors.types.humidity.numeric-field=humidity_pct
+sensors.types.humidity.min=0
+sensors.types.humidity.max=100
+*/
+@Data
+@ConfigurationProperties(prefix = "sensors")
+public class SensorProperties {
+
+    private Map<String, Definition> types = new LinkedHashMap<>();
+
+    @Data
+    public static class Definition {
+        // Topic after the room, defaults to {type}/status.
+        private String topic;
+
+        // Payload field holding the numeric value, with optional inclusive bounds.
+        private String numericField;
+        private Double min;
+        private Double max;
+
+        // Payload field holding the on/off value (true/false or "on"/"off").
+        private String booleanField;
+    }
+}
@@ -0,0 +1,36 @@
+package com.iot.mobile_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "thermostat.control")
+public class ThermostatProperties {
+
+    // Off by default, the ESP32 still runs its own loop from the target topic.
+    private boolean enabled = false;
+
+    // Heater turns on below (target - hysteresis) and the fan turns on above (target + hysteresis).
+    private double hysteresis = 1.0;
+
+    // Degrees subtracted from the target while the room is unoccupied.
+    private double unoccupiedSetback = 4.0;
+
+    // A room stays occupied this long after the last positive detection.
+    private Duration occupancyTimeout = Duration.ofMinutes(10);
+
+    // Per room overrides, e.g. thermostat.control.rooms.roomA.hysteresis=0.5
+    private Map<String, RoomOverride> rooms = new HashMap<>();
+
+    @Data
+    public static class RoomOverride {
+        private Double hysteresis;
+        private Double unoccupiedSetback;
+        private Double defaultTarget;
+        private Boolean occupancyControl;
+    }
+}
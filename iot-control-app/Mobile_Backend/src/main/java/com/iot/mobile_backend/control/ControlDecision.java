@@ -0,0 +1,17 @@
+package com.iot.mobile_backend.control;
+
+// Desired actuator states, null means the rule has no opinion and the current state is kept.
+public record ControlDecision(Boolean heaterOn, Boolean fanOn) {
+
+    public static final ControlDecision HOLD = new ControlDecision(null, null);
+
+    // Later rules in the list win over earlier ones for the actuators they decide on.
+    public ControlDecision merge(ControlDecision other) {
+        if (other == null || other == HOLD) {
+            return this;
+        }
+        return new ControlDecision(
+                other.heaterOn != null ? other.heaterOn : heaterOn,
+                other.fanOn != null ? other.fanOn : fanOn);
+    }
+}
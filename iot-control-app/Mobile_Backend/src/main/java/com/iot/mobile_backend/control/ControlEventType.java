@@ -0,0 +1,7 @@
+package com.iot.mobile_backend.control;
+
+public enum ControlEventType {
+    TEMPERATURE,
+    OCCUPANCY,
+    TARGET
+}
@@ -0,0 +1,8 @@
+package com.iot.mobile_backend.control;
+
+@FunctionalInterface
+public interface ControlRule {
+
+    // Called with the room state lock held, must not block.
+    ControlDecision evaluate(RoomControlState state, long nowMillis);
+}
@@ -0,0 +1,29 @@
+package com.iot.mobile_backend.control;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Rules indexed by room id, then by event type, so an incoming event only looks at the rules that
+can react to it. Rooms without their own rules share the default set.
+*/
+public class ControlRuleIndex {
+
+    private final Map<ControlEventType, List<ControlRule>> defaultRules;
+    private final Map<Integer, Map<ControlEventType, List<ControlRule>>> roomRules = new ConcurrentHashMap<>();
+
+    public ControlRuleIndex(Map<ControlEventType, List<ControlRule>> defaultRules) {
+        this.defaultRules = new EnumMap<>(defaultRules);
+    }
+
+    public void putRoomRules(int roomId, Map<ControlEventType, List<ControlRule>> rules) {
+        roomRules.put(roomId, new EnumMap<>(rules));
+    }
+
+    public List<ControlRule> rulesFor(int roomId, ControlEventType eventType) {
+        Map<ControlEventType, List<ControlRule>> rules = roomRules.getOrDefault(roomId, defaultRules);
+        return rules.getOrDefault(eventType, List.of());
+    }
+}
@@ -0,0 +1,49 @@
+package com.iot.mobile_backend.control;
+
+/*
+Classic two-point thermostat with a dead band around the target. When occupancy control is on, the
+target is set back while the room has been empty for longer than the occupancy timeout.
+*/
+public class HysteresisRule implements ControlRule {
+
+    private final double hysteresis;
+    private final double unoccupiedSetback;
+    private final long occupancyTimeoutMillis;
+    private final boolean occupancyControl;
+
+    public HysteresisRule(double hysteresis, double unoccupiedSetback, long occupancyTimeoutMillis, boolean occupancyControl) {
+        this.hysteresis = hysteresis;
+        this.unoccupiedSetback = unoccupiedSetback;
+        this.occupancyTimeoutMillis = occupancyTimeoutMillis;
+        this.occupancyControl = occupancyControl;
+    }
+
+    @Override
+    public ControlDecision evaluate(RoomControlState state, long nowMillis) {
+        if (state.getTargetTemperature() == null || state.getTemperature() == null) {
+            return ControlDecision.HOLD;
+        }
+
+        double target = state.getTargetTemperature();
+        if (occupancyControl && isUnoccupied(state, nowMillis)) {
+            target -= unoccupiedSetback;
+        }
+
+        double temperature = state.getTemperature();
+        if (temperature <= target - hysteresis) {
+            return new ControlDecision(true, false);
+        }
+        if (temperature >= target + hysteresis) {
+            return new ControlDecision(false, true);
+        }
+        return ControlDecision.HOLD;
+    }
+
+    // Rooms without camera data are treated as occupied, so we never set back blindly.
+    private boolean isUnoccupied(RoomControlState state, long nowMillis) {
+        if (state.getOccupied() == null || state.getOccupied()) {
+            return false;
+        }
+        return nowMillis - state.getLastOccupiedMillis() > occupancyTimeoutMillis;
+    }
+}
@@ -0,0 +1,20 @@
+package com.iot.mobile_backend.control;
+
+import lombok.Data;
+
+// Mutable per room state, always accessed while synchronized on the instance.
+@Data
+public class RoomControlState {
+    private final int roomId;
+    private final String roomType;
+
+    private Double targetTemperature;
+    private Double temperature;
+
+    private Boolean occupied;           // null until the camera reports for this room
+    private long lastOccupiedMillis;
+
+    // What we last commanded, so we only publish on changes.
+    private Boolean heaterCommanded;
+    private Boolean fanCommanded;
+}
@@ -0,0 +1,117 @@
+package com.iot.mobile_backend.control;
+
+/*
+How fast one room warms or cools, learned online by recursive least squares. The temperature rate (°F per
+minute) is modelled as idle drift plus what the heater and the fan add while on:
+
+    rate = drift + heating * heaterOn + cooling * fanOn
+
+Each observation is the rate between two readings at least min-interval apart with the devices in the same
+state all along. An update is a few 3x3 multiplications, and the model is three parameters, their covariance
+and the reading the current observation started at. Older observations fade with the forgetting factor,
+so the model follows the seasons and an open window.
+
+Not thread safe, always accessed through ConcurrentHashMap.compute (see ThermalModelService).
+*/
+public class ThermalModel {
+
+    private final static int PARAMETERS = 3;
+    private final static double INITIAL_COVARIANCE = 100.0;
+
+    private final double forgetting;
+    private final double[] theta = new double[PARAMETERS];
+    private final double[][] covariance = new double[PARAMETERS][PARAMETERS];
+    private final long[] observations = new long[4];  // per mode, heaterOn + 2 * fanOn
+
+    // Start of the current observation.
+    private double anchorTemperature;
+    private long anchorMillis;
+    private int anchorMode = -1;
+
+    public ThermalModel(double forgetting) {
+        this.forgetting = forgetting;
+        for (int i = 0; i < PARAMETERS; i++) {
+            covariance[i][i] = INITIAL_COVARIANCE;
+        }
+    }
+
+    public static int mode(boolean heaterOn, boolean fanOn) {
+        return (heaterOn ? 1 : 0) + (fanOn ? 2 : 0);
+    }
+
+    // Folds in a reading taken in the given mode. Returns true if it completed an observation.
+    public boolean observe(double temperature, long timeMillis, int mode, long minIntervalMillis, long maxIntervalMillis) {
+        long elapsed = timeMillis - anchorMillis;
+        if (mode != anchorMode || elapsed <= 0 || elapsed > maxIntervalMillis) {
+            anchor(temperature, timeMillis, mode);
+            return false;
+        }
+        if (elapsed < minIntervalMillis) {
+            return false;
+        }
+
+        update(regressors(mode), (temperature - anchorTemperature) / (elapsed / 60000.0));
+        observations[mode]++;
+        anchor(temperature, timeMillis, mode);
+        return true;
+    }
+
+    // Modelled rate in the given mode (°F per minute), null until the mode has been observed often enough.
+    public Double rate(int mode, long minObservations) {
+        if (observations[mode] < minObservations) {
+            return null;
+        }
+        double[] x = regressors(mode);
+        double rate = 0;
+        for (int i = 0; i < PARAMETERS; i++) {
+            rate += theta[i] * x[i];
+        }
+        return rate;
+    }
+
+    private void anchor(double temperature, long timeMillis, int mode) {
+        anchorTemperature = temperature;
+        anchorMillis = timeMillis;
+        anchorMode = mode;
+    }
+
+    private static double[] regressors(int mode) {
+        return new double[]{1, mode & 1, (mode >> 1) & 1};
+    }
+
+    private void update(double[] x, double rate) {
+        // k = P x / (lambda + x' P x)
+        double[] px = new double[PARAMETERS];
+        double denominator = 0;
+        for (int i = 0; i < PARAMETERS; i++) {
+            for (int j = 0; j < PARAMETERS; j++) {
+                px[i] += covariance[i][j] * x[j];
+            }
+            denominator += x[i] * px[i];
+        }
+
+        // A mode that is never used leaves its direction unexcited, forgetting would then grow its covariance without
+        // bound. Forget only while the covariance is below where it started.
+        double trace = 0;
+        for (int i = 0; i < PARAMETERS; i++) {
+            trace += covariance[i][i];
+        }
+        double lambda = trace < PARAMETERS * INITIAL_COVARIANCE ? forgetting : 1.0;
+        denominator += lambda;
+
+        double error = rate;
+        for (int i = 0; i < PARAMETERS; i++) {
+            error -= theta[i] * x[i];
+        }
+        for (int i = 0; i < PARAMETERS; i++) {
+            theta[i] += px[i] / denominator * error;
+        }
+
+        // P = (P - k x' P) / lambda, P stays symmetric so x' P = (P x)'
+        for (int i = 0; i < PARAMETERS; i++) {
+            for (int j = 0; j < PARAMETERS; j++) {
+                covariance[i][j] = (covariance[i][j] - px[i] * px[j] / denominator) / lambda;
+            }
+        }
+    }
+}
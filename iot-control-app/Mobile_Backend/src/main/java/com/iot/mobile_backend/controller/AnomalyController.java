@@ -0,0 +1,58 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.service.AnomalyDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/anomalies")
+public class AnomalyController {
+
+    private final AnomalyDetector anomalyDetector;
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyController.class);
+
+    @Autowired
+    public AnomalyController(AnomalyDetector anomalyDetector) {
+        this.anomalyDetector = anomalyDetector;
+    }
+
+    // Example: GET /api/anomalies?since=2025-11-24T00:00:00 (defaults to the last 24 hours)
+    @GetMapping
+    public ResponseEntity<?> getAnomalies(@RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        logger.info("Getting sensor anomalies of all rooms...");
+
+        try {
+            return ResponseEntity.ok(anomalyDetector.getAnomalies(since != null ? since : LocalDateTime.now().minusDays(1)));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting sensor anomalies", e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+
+    // Example: GET /api/anomalies/roomA?since=2025-11-24T00:00:00 (defaults to the last 24 hours)
+    @GetMapping("/{roomType}")
+    public ResponseEntity<?> getRoomAnomalies(@PathVariable("roomType") String roomType,
+                                              @RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        logger.info("Getting sensor anomalies for room: {}...", roomType);
+
+        try {
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.error("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            return ResponseEntity.ok(anomalyDetector.getRoomAnomalies(roomType, since != null ? since : LocalDateTime.now().minusDays(1)));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting sensor anomalies for room: {}", roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.sensor.SensorType;
+import com.iot.mobile_backend.service.ExportService;
+import com.iot.mobile_backend.service.RoomRegistry;
+import com.iot.mobile_backend.service.SensorTypeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@RestController
+@RequestMapping("/api")
+public class ExportController {
+
+    private final ExportService exportService;
+    private final SensorTypeRegistry sensorTypeRegistry;
+    private final RoomRegistry roomRegistry;
+    private static final Logger logger = LoggerFactory.getLogger(ExportController.class);
+
+    @Autowired
+    public ExportController(ExportService exportService, SensorTypeRegistry sensorTypeRegistry, RoomRegistry roomRegistry) {
+        this.exportService = exportService;
+        this.sensorTypeRegistry = sensorTypeRegistry;
+        this.roomRegistry = roomRegistry;
+    }
+
+    /*
+    Example: GET /api/temperature/export?room=roomA&from=2025-11-24T00:00:00&to=2025-11-25T00:00:00&format=csv
+    Example: GET /api/humidity/export?format=ndjson (every room, all time)
+    The body is streamed after the headers are sent, an error past that point ends the response early.
+    */
+    @GetMapping("/{sensor}/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable("sensor") String sensor,
+                                                        @RequestParam(value = "room", required = false) String roomType,
+                                                        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                        @RequestParam(value = "format", defaultValue = "csv") String format) {
+        logger.info("Exporting {} readings for room: {}...", sensor, roomType != null ? roomType : "all");
+
+        try {
+            Optional<SensorType> type = sensorTypeRegistry.find(sensor);
+            if (type.isEmpty()) {
+                logger.warn("Unknown sensor type: {}, aborting...", sensor);
+                return ResponseEntity.notFound().build();  // 404
+            }
+
+            ExportService.Format exportFormat;
+            try {
+                exportFormat = ExportService.Format.valueOf(format.toUpperCase());
+            }
+            catch (IllegalArgumentException e) {
+                logger.error("Invalid export format {}, aborting...", format);
+                return ResponseEntity.badRequest().body(message("Format must be csv or ndjson."));
+            }
+
+            if (from != null && to != null && !from.isBefore(to)) {
+                logger.error("Export range is empty, aborting...");
+                return ResponseEntity.badRequest().body(message("from must be before to."));
+            }
+
+            Integer roomId = null;
+            if (roomType != null && !roomType.trim().isEmpty()) {
+                roomId = roomRegistry.findId(roomType);
+                if (roomId == null) {
+                    logger.error("No data found for this room: {}.", roomType);
+                    return ResponseEntity.notFound().build();  // 404
+                }
+            }
+
+            Integer exportRoomId = roomId;
+            StreamingResponseBody body = out -> exportService.export(type.get(), exportRoomId, from, to, exportFormat, out);
+            // A blank room exports every room, like no room at all. The name is encoded by ContentDisposition, not quoted by hand.
+            String filename = sensor + (roomId != null ? "-" + roomType : "") + "." + exportFormat.name().toLowerCase();
+            ContentDisposition disposition = ContentDisposition.attachment().filename(filename, UTF_8).build();
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                    .body(body);
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while exporting {} readings", sensor, e);
+            return ResponseEntity.internalServerError().body(message("Internal server error."));  // 500
+        }
+    }
+
+    // Streaming bodies are the only body type this endpoint can return, errors are written the same way.
+    private static StreamingResponseBody message(String text) {
+        return out -> out.write(text.getBytes(UTF_8));
+    }
+}
@@ -2,6 +2,7 @@ package com.iot.mobile_backend.controller;
 
 import com.iot.mobile_backend.dto.FanDTO;
 import com.iot.mobile_backend.service.FanService;
+import com.iot.mobile_backend.service.SnapshotCache;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,11 +15,13 @@ import org.springframework.web.bind.annotation.*;
 public class FanController {
 
     private final FanService fanService;
+    private final SnapshotCache snapshotCache;
     private static final Logger logger = LoggerFactory.getLogger(FanController.class);
 
     @Autowired
-    public FanController(FanService fanService) {
+    public FanController(FanService fanService, SnapshotCache snapshotCache) {
         this.fanService = fanService;
+        this.snapshotCache = snapshotCache;
     }
 
     // Example: GET /api/fan/status/roomA
@@ -47,11 +50,12 @@ public class FanController {
 
     // Example: GET /api/fan/status/all
     @GetMapping("/status/all")
-    public ResponseEntity<?> getAllFanStatusByRooms() {
+    public ResponseEntity<?> getAllFanStatusByRooms(@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding, @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         logger.info("Getting all fan status records...");
 
         try {
-            return ResponseEntity.ok(fanService.getAllFanStatusRecordsByRoomType()); // Returns an empty list if no data found
+            // Pre-encoded bytes, rebuilt only after new fan data arrives. Empty list if no data found.
+            return snapshotCache.respond(SnapshotCache.FAN, fanService::getAllFanStatusRecordsByRoomType, acceptEncoding, ifNoneMatch);
         }
         catch (Exception e) {
             logger.error("Error occurred while getting all fan status records: {}", e.getMessage(), e);
@@ -0,0 +1,62 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.dto.FreshnessDTO;
+import com.iot.mobile_backend.service.FreshnessTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/freshness")
+public class FreshnessController {
+
+    private final FreshnessTracker freshnessTracker;
+    private static final Logger logger = LoggerFactory.getLogger(FreshnessController.class);
+
+    @Autowired
+    public FreshnessController(FreshnessTracker freshnessTracker) {
+        this.freshnessTracker = freshnessTracker;
+    }
+
+    // Example: GET /api/freshness
+    @GetMapping
+    public ResponseEntity<?> getAllFreshness() {
+        logger.info("Getting data freshness of all sensors...");
+
+        try {
+            return ResponseEntity.ok(freshnessTracker.getAll());
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting data freshness: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+
+    // Example: GET /api/freshness/roomA
+    @GetMapping("/{roomType}")
+    public ResponseEntity<?> getRoomFreshness(@PathVariable("roomType") String roomType) {
+        logger.info("Getting data freshness for room: {}...", roomType);
+
+        try {
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.error("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            List<FreshnessDTO> freshness = freshnessTracker.getRoom(roomType);
+            if (freshness.isEmpty()) {
+                logger.error("No readings received for this room: {}.", roomType);
+                return ResponseEntity.notFound().build(); // 404
+            }
+            return ResponseEntity.ok(freshness);
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting data freshness for room: {}", roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+}
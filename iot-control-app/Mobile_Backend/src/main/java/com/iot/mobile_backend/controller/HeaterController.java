@@ -2,6 +2,7 @@ package com.iot.mobile_backend.controller;
 
 import com.iot.mobile_backend.dto.HeaterDTO;
 import com.iot.mobile_backend.service.HeaterService;
+import com.iot.mobile_backend.service.SnapshotCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,11 +14,13 @@ import org.springframework.web.bind.annotation.*;
 public class HeaterController {
 
     private final HeaterService heaterService;
+    private final SnapshotCache snapshotCache;
     private static final Logger logger = LoggerFactory.getLogger(HeaterController.class);
 
     @Autowired
-    public HeaterController(HeaterService heaterService) {
+    public HeaterController(HeaterService heaterService, SnapshotCache snapshotCache) {
         this.heaterService = heaterService;
+        this.snapshotCache = snapshotCache;
     }
 
     // Example: GET /api/heater/status/roomA
@@ -46,11 +49,12 @@ public class HeaterController {
 
     // Example: GET /api/heater/status/all
     @GetMapping("/status/all")
-    public ResponseEntity<?> getAllHeaterStatusByRoom () {
+    public ResponseEntity<?> getAllHeaterStatusByRoom(@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding, @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         logger.info("Getting all latest heater status records...");
 
         try {
-            return ResponseEntity.ok(heaterService.getAllHeaterStatusRecordsByRoomType());
+            // Pre-encoded bytes, rebuilt only after new heater data arrives. Empty list if no data found.
+            return snapshotCache.respond(SnapshotCache.HEATER, heaterService::getAllHeaterStatusRecordsByRoomType, acceptEncoding, ifNoneMatch);
         }
         catch (Exception e) {
             logger.error("Error occurred while getting all heater status records: {}", e.getMessage(), e);
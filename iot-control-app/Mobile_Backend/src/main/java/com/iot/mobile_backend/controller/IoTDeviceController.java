@@ -1,7 +1,10 @@
 package com.iot.mobile_backend.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.iot.mobile_backend.dto.CommandResultDTO;
+import com.iot.mobile_backend.dto.SceneDTO;
 import com.iot.mobile_backend.service.MqttService;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -128,4 +132,43 @@ public class IoTDeviceController {
             return ResponseEntity.internalServerError().body("Internal server error."); // 500
         }
     }
+
+    /*
+    Example: POST /api/command/scene
+    {"actions": [{"roomType": "roomA", "heaterStatus": true, "targetTemperature": 72},
+                 {"roomType": "roomB", "fanStatus": false}]}
+    */
+    @PostMapping("/scene")
+    public ResponseEntity<?> applyScene(@Valid @RequestBody SceneDTO scene) {
+        logger.info("Applying scene for {} rooms...", scene.getActions().size());
+
+        try {
+            List<CommandResultDTO> results = mqttService.publishScene(scene.getActions());
+            long failed = results.stream().filter(result -> !result.isSuccess()).count();
+            int expected = scene.getActions().stream()
+                    .mapToInt(action -> (action.getHeaterStatus() != null ? 1 : 0) + (action.getFanStatus() != null ? 1 : 0) + (action.getTargetTemperature() != null ? 1 : 0))
+                    .sum();
+            boolean success = failed == 0 && results.size() == expected;
+
+            logger.info("Scene applied, {} of {} commands acknowledged successfully.", results.size() - failed, expected);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", success);
+            response.put("message", success ? "Scene applied successfully." : "Scene partially applied.");
+            response.put("acknowledged", results.size() - failed);
+            response.put("expected", expected);
+            response.put("results", results);
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok().body(response);
+        }
+        catch (JsonProcessingException e) {
+            logger.error("Error occurred while serializing scene commands: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body("Internal server error.");
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while applying scene: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.service.OccupancyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/occupancy")
+public class OccupancyController {
+
+    private final OccupancyService occupancyService;
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyController.class);
+
+    @Autowired
+    public OccupancyController(OccupancyService occupancyService) {
+        this.occupancyService = occupancyService;
+    }
+
+    // Example: GET /api/occupancy/roomA/timeline?date=2025-11-24 (defaults to today)
+    @GetMapping("/{roomType}/timeline")
+    public ResponseEntity<?> getOccupancyTimeline(@PathVariable("roomType") String roomType,
+                                                  @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        logger.info("Getting occupancy timeline for room: {}...", roomType);
+
+        try {
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.error("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            return ResponseEntity.ok(occupancyService.getTimeline(roomType, date != null ? date : LocalDate.now()));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting occupancy timeline for room: {}", roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+
+    // Example: GET /api/occupancy/roomA/total?date=2025-11-24 (defaults to today)
+    @GetMapping("/{roomType}/total")
+    public ResponseEntity<?> getOccupancyTotal(@PathVariable("roomType") String roomType,
+                                               @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        logger.info("Getting occupancy total for room: {}...", roomType);
+
+        try {
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.error("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            return ResponseEntity.ok(occupancyService.getDailySummary(roomType, date != null ? date : LocalDate.now()));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting occupancy total for room: {}", roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.iot.mobile_backend.controller;
 
 import com.iot.mobile_backend.dto.PersonDetectionDTO;
 import com.iot.mobile_backend.service.PersonDetectService;
+import com.iot.mobile_backend.service.SnapshotCache;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,11 +15,13 @@ import org.springframework.web.bind.annotation.*;
 public class PersonDetectController {
 
     private final PersonDetectService personDetectService;
+    private final SnapshotCache snapshotCache;
     private static final Logger logger = LoggerFactory.getLogger(PersonDetectController.class);
 
     @Autowired
-    public PersonDetectController(PersonDetectService personDetectService) {
+    public PersonDetectController(PersonDetectService personDetectService, SnapshotCache snapshotCache) {
         this.personDetectService = personDetectService;
+        this.snapshotCache = snapshotCache;
     }
 
     // Example: GET /api/person-detect/status/roomA
@@ -47,11 +50,12 @@ public class PersonDetectController {
 
     // Example: GET /api/person-detect/status/all
     @GetMapping("/status/all")
-    public ResponseEntity<?> getAllPersonDetectionRecords() {
+    public ResponseEntity<?> getAllPersonDetectionRecords(@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding, @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         logger.info("Getting all person detection records...");
 
         try {
-            return ResponseEntity.ok(personDetectService.getAllPersonDetectionRecords()); // Returns an empty list if no data found
+            // Pre-encoded bytes, rebuilt only after new person data arrives. Empty list if no data found.
+            return snapshotCache.respond(SnapshotCache.PERSON, personDetectService::getAllPersonDetectionRecords, acceptEncoding, ifNoneMatch);
         }
         catch (Exception e) {
             logger.error("Error occurred while getting all person detection records: {}", e.getMessage(), e);
@@ -0,0 +1,62 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.dto.PresenceDTO;
+import com.iot.mobile_backend.service.PresenceTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+
+    private final PresenceTracker presenceTracker;
+    private static final Logger logger = LoggerFactory.getLogger(PresenceController.class);
+
+    @Autowired
+    public PresenceController(PresenceTracker presenceTracker) {
+        this.presenceTracker = presenceTracker;
+    }
+
+    // Example: GET /api/presence
+    @GetMapping
+    public ResponseEntity<?> getAllPresence() {
+        logger.info("Getting online state of all devices...");
+
+        try {
+            return ResponseEntity.ok(presenceTracker.getAll());
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting device presence: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+
+    // Example: GET /api/presence/roomA
+    @GetMapping("/{roomType}")
+    public ResponseEntity<?> getRoomPresence(@PathVariable("roomType") String roomType) {
+        logger.info("Getting online state of devices in room: {}...", roomType);
+
+        try {
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.error("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            List<PresenceDTO> presence = presenceTracker.getRoom(roomType);
+            if (presence.isEmpty()) {
+                logger.error("No device heard from in this room: {}.", roomType);
+                return ResponseEntity.notFound().build(); // 404
+            }
+            return ResponseEntity.ok(presence);
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting device presence for room: {}", roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.service.LatestStateService;
+import com.iot.mobile_backend.service.SnapshotCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/rooms")
+public class RoomController {
+
+    private final LatestStateService latestStateService;
+    private final SnapshotCache snapshotCache;
+    private static final Logger logger = LoggerFactory.getLogger(RoomController.class);
+
+    @Autowired
+    public RoomController(LatestStateService latestStateService, SnapshotCache snapshotCache) {
+        this.latestStateService = latestStateService;
+        this.snapshotCache = snapshotCache;
+    }
+
+    // Example: GET /api/rooms
+    @GetMapping
+    public ResponseEntity<?> getAllRooms(@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding, @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        logger.info("Getting snapshot of all rooms...");
+
+        try {
+            return snapshotCache.respond(SnapshotCache.ROOMS, latestStateService::getAllRooms, acceptEncoding, ifNoneMatch);
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting all room snapshots: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+
+    // Example: GET /api/rooms/roomA
+    @GetMapping("/{roomType}")
+    public ResponseEntity<?> getRoom(@PathVariable("roomType") String roomType) {
+        logger.info("Getting snapshot for room: {}...", roomType);
+
+        try {
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.error("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            return latestStateService.getRoom(roomType)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> {
+                        logger.error("No data found for this room: {}.", roomType);
+                        return ResponseEntity.notFound().build(); // 404
+                    });
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting snapshot for room: {}", roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.service.DutyCycleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/runtime")
+public class RuntimeController {
+
+    private final DutyCycleService dutyCycleService;
+    private static final Logger logger = LoggerFactory.getLogger(RuntimeController.class);
+
+    @Autowired
+    public RuntimeController(DutyCycleService dutyCycleService) {
+        this.dutyCycleService = dutyCycleService;
+    }
+
+    /*
+    Example: GET /api/runtime/heater/roomA?date=2025-11-24
+    Example: GET /api/runtime/fan/roomA (defaults to today)
+    */
+    @GetMapping("/{device}/{roomType}")
+    public ResponseEntity<?> getDailyRuntime(@PathVariable("device") String device,
+                                             @PathVariable("roomType") String roomType,
+                                             @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        logger.info("Getting {} runtime for room: {}...", device, roomType);
+
+        try {
+            if (!device.equals("heater") && !device.equals("fan")) {
+                logger.error("Invalid device type, aborting...");
+                return ResponseEntity.badRequest().body("Device must be heater or fan.");
+            }
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.error("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            return ResponseEntity.ok(dutyCycleService.getDailyRuntime(roomType, device, date != null ? date : LocalDate.now()));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting {} runtime for room: {}", device, roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error."); // 500
+        }
+    }
+}
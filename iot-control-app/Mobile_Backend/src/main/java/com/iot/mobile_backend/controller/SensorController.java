@@ -0,0 +1,113 @@
+package com.iot.mobile_backend.controller;
+
+import com.iot.mobile_backend.sensor.SensorType;
+import com.iot.mobile_backend.service.GenericSensorService;
+import com.iot.mobile_backend.service.SensorTypeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/sensors")
+public class SensorController {
+
+    private final SensorTypeRegistry sensorTypeRegistry;
+    private final GenericSensorService genericSensorService;
+    private static final Logger logger = LoggerFactory.getLogger(SensorController.class);
+
+    @Autowired
+    public SensorController(SensorTypeRegistry sensorTypeRegistry, GenericSensorService genericSensorService) {
+        this.sensorTypeRegistry = sensorTypeRegistry;
+        this.genericSensorService = genericSensorService;
+    }
+
+    // Example: GET /api/sensors
+    @GetMapping
+    public ResponseEntity<?> getSensorTypes() {
+        logger.info("Getting all sensor types...");
+        return ResponseEntity.ok(sensorTypeRegistry.getAll());
+    }
+
+    // Example: GET /api/sensors/humidity/status/roomA
+    @GetMapping("/{sensorType}/status/{roomType}")
+    public ResponseEntity<?> getCurrentReading(@PathVariable("sensorType") String sensorType, @PathVariable("roomType") String roomType) {
+        logger.info("Getting current {} reading for room type: {}...", sensorType, roomType);
+
+        try {
+            ResponseEntity<?> invalid = checkSensorType(sensorType);
+            if (invalid != null) {
+                return invalid;
+            }
+
+            return ResponseEntity.ok(genericSensorService.getCurrentReading(sensorType, roomType));
+        }
+        catch (RuntimeException e) {
+            logger.error("No {} data found for room type: {}", sensorType, roomType, e);
+            return ResponseEntity.notFound().build();  // 404
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting current {} reading for room type: {}", sensorType, roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error.");  // 500
+        }
+    }
+
+    // Example: GET /api/sensors/humidity/status/all
+    @GetMapping("/{sensorType}/status/all")
+    public ResponseEntity<?> getAllRoomReadings(@PathVariable("sensorType") String sensorType) {
+        logger.info("Getting all room {} readings...", sensorType);
+
+        try {
+            ResponseEntity<?> invalid = checkSensorType(sensorType);
+            if (invalid != null) {
+                return invalid;
+            }
+
+            // Will return empty list if no data
+            return ResponseEntity.ok(genericSensorService.getAllRoomReadings(sensorType));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting all room {} readings", sensorType, e);
+            return ResponseEntity.internalServerError().body("Internal server error.");  // 500
+        }
+    }
+
+    // Example: GET /api/sensors/humidity/roomA/readings?date=2025-11-24 (defaults to today)
+    @GetMapping("/{sensorType}/{roomType}/readings")
+    public ResponseEntity<?> getDailyReadings(@PathVariable("sensorType") String sensorType, @PathVariable("roomType") String roomType,
+                                              @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        logger.info("Getting {} readings for room: {}...", sensorType, roomType);
+
+        try {
+            ResponseEntity<?> invalid = checkSensorType(sensorType);
+            if (invalid != null) {
+                return invalid;
+            }
+
+            return ResponseEntity.ok(genericSensorService.getDailyReadings(sensorType, roomType, date != null ? date : LocalDate.now()));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting {} readings for room: {}", sensorType, roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error.");  // 500
+        }
+    }
+
+    // Built-in types are stored in their own tables and served by their own endpoints.
+    private ResponseEntity<?> checkSensorType(String sensorType) {
+        Optional<SensorType> type = sensorTypeRegistry.find(sensorType);
+        if (type.isEmpty()) {
+            logger.warn("Unknown sensor type: {}, aborting...", sensorType);
+            return ResponseEntity.notFound().build();  // 404
+        }
+        if (type.get().builtIn()) {
+            logger.warn("Sensor type {} is built-in, aborting...", sensorType);
+            return ResponseEntity.badRequest().body("Built-in sensor type, use its dedicated endpoints.");
+        }
+        return null;
+    }
+}
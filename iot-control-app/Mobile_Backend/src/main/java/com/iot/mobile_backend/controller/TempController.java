@@ -2,14 +2,18 @@ package com.iot.mobile_backend.controller;
 
 import com.iot.mobile_backend.dto.TemperatureDTO;
 import com.iot.mobile_backend.model.TemperatureSensor;
+import com.iot.mobile_backend.service.SnapshotCache;
+import com.iot.mobile_backend.service.TemperaturePercentileService;
 import com.iot.mobile_backend.service.TemperatureService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -17,11 +21,15 @@ import java.util.List;
 public class TempController {
 
     private final TemperatureService temperatureService;
+    private final SnapshotCache snapshotCache;
+    private final TemperaturePercentileService percentileService;
     private static final Logger logger = LoggerFactory.getLogger(TempController.class);
 
     @Autowired
-    public TempController(TemperatureService temperatureService) {
+    public TempController(TemperatureService temperatureService, SnapshotCache snapshotCache, TemperaturePercentileService percentileService) {
         this.temperatureService = temperatureService;
+        this.snapshotCache = snapshotCache;
+        this.percentileService = percentileService;
     }
 
     /*
@@ -53,12 +61,12 @@ public class TempController {
 
     // Example: GET /api/temperature/status/all
     @GetMapping("/status/all")
-    public ResponseEntity<List<TemperatureSensor>> getAllRoomTemperatures() {
+    public ResponseEntity<byte[]> getAllRoomTemperatures(@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding, @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         logger.info("Getting all room temperatures...");
 
         try {
-            List<TemperatureSensor> temperatures = temperatureService.getAllRoomTemperatures();
-            return ResponseEntity.ok(temperatures);  // Will return empty list if no data
+            // Pre-encoded bytes, rebuilt only after a new reading arrives. Will return empty list if no data
+            return snapshotCache.respond(SnapshotCache.TEMPERATURE, temperatureService::getAllRoomTemperatures, acceptEncoding, ifNoneMatch);
         }
         catch (Exception e) {
             logger.error("Error occurred while getting all room temperatures", e);
@@ -66,6 +74,43 @@ public class TempController {
         }
     }
 
+    /*
+    Example: GET /api/temperature/percentiles/roomA?from=2025-11-17&to=2025-11-23
+    Example: GET /api/temperature/percentiles/roomA?p=10,50,90 (defaults to today and p5, p50, p95)
+    */
+    @GetMapping("/percentiles/{roomType}")
+    public ResponseEntity<?> getTemperaturePercentiles(@PathVariable("roomType") String roomType,
+                                                       @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                       @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                       @RequestParam(value = "p", required = false) List<Double> percentiles) {
+        logger.info("Getting temperature percentiles for room: {}...", roomType);
+
+        try {
+            if (roomType == null || roomType.trim().isEmpty()) {
+                logger.warn("Room type is empty or null, aborting...");
+                return ResponseEntity.badRequest().body("Room type is empty or null.");
+            }
+
+            LocalDate start = from != null ? from : LocalDate.now();
+            LocalDate end = to != null ? to : start;
+            if (end.isBefore(start)) {
+                logger.warn("Date range ends before it starts, aborting...");
+                return ResponseEntity.badRequest().body("The to date must not be before the from date.");
+            }
+            List<Double> requested = percentiles != null && !percentiles.isEmpty() ? percentiles : List.of(5.0, 50.0, 95.0);
+            if (requested.stream().anyMatch(percentile -> percentile == null || percentile < 0 || percentile > 100)) {
+                logger.warn("Percentile out of range, aborting...");
+                return ResponseEntity.badRequest().body("Percentiles must be between 0 and 100.");
+            }
+
+            return ResponseEntity.ok(percentileService.getPercentiles(roomType, start, end, requested));
+        }
+        catch (Exception e) {
+            logger.error("Error occurred while getting temperature percentiles for room: {}", roomType, e);
+            return ResponseEntity.internalServerError().body("Internal server error.");  // 500
+        }
+    }
+
     // Example: POST /api/temperature/create?roomtype=roomA&temperature=74&recordingtime=2022-01-01T12:00:00
     @PostMapping("/create")
     public ResponseEntity<?> createTemperatureRecord(@Valid @RequestParam("roomtype") String roomType, @RequestParam("temperature") Double temperature, @RequestParam("recordingtime") String recordingTime) {
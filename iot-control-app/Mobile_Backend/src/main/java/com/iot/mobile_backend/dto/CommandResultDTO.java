@@ -0,0 +1,13 @@
+package com.iot.mobile_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CommandResultDTO {
+    private String roomType;
+    private String command;     // heater, fan or target-temp
+    private boolean success;
+    private String error;
+}
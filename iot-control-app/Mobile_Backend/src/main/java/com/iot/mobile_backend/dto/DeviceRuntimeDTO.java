@@ -0,0 +1,17 @@
+package com.iot.mobile_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DeviceRuntimeDTO {
+    private String roomType;
+    private String device;
+    private LocalDate date;
+    private RuntimeBucketDTO total;
+    private List<RuntimeBucketDTO> hours;
+}
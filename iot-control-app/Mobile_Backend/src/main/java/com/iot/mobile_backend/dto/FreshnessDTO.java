@@ -0,0 +1,24 @@
+package com.iot.mobile_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class FreshnessDTO {
+    private String roomType;
+    private String sensorType;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime lastDeviceTime;
+
+    private long lastSeenAgeSeconds;
+    private boolean stale;
+    private LagDTO deviceLag;
+    private LagDTO commitLag;
+    private long clockOffsetMillis;
+    private boolean clockSkewed;
+}
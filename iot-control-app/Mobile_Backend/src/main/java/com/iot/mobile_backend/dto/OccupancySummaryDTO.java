@@ -0,0 +1,16 @@
+package com.iot.mobile_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class OccupancySummaryDTO {
+    private String roomType;
+    private LocalDate date;
+    private int sessionCount;
+    private long occupiedSeconds;
+    private double occupancyPercent;
+}
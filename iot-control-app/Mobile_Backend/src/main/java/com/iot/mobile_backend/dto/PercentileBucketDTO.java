@@ -0,0 +1,20 @@
+package com.iot.mobile_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// Temperature distribution over the days from and to, both inclusive. Percentiles are keyed like "p95".
+@Data
+@AllArgsConstructor
+public class PercentileBucketDTO {
+    private LocalDate from;
+    private LocalDate to;
+    private long sampleCount;
+    private Double min;
+    private Double max;
+    private Double mean;
+    private Map<String, Double> percentiles;
+}
@@ -0,0 +1,24 @@
+package com.iot.mobile_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class PresenceDTO {
+    private String roomType;
+    private String source;
+    private boolean online;
+    private String reason;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime since;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime lastSeen;
+
+    private Long lastSeenAgeSeconds;  // null for a controller only known from its last will
+}
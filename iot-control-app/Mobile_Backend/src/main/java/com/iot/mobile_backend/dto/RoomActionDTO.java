@@ -0,0 +1,21 @@
+package com.iot.mobile_backend.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class RoomActionDTO {
+    @NotBlank(message = "Room type is required")
+    private String roomType;
+
+    // Each field is optional, only the ones that are set get published for the room.
+    private Boolean heaterStatus;
+
+    private Boolean fanStatus;
+
+    @DecimalMin(value = "50.0", message = "Target temperature must be >= 50")
+    @DecimalMax(value = "90.0", message = "Target temperature must be <= 90")
+    private Double targetTemperature;
+}
@@ -0,0 +1,47 @@
+package com.iot.mobile_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Immutable latest state of one room, replaced as a whole on every update so readers never see a half-applied change.
+@Value
+@Builder(toBuilder = true)
+public class RoomSnapshotDTO {
+    String roomType;
+
+    Double temperature;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    LocalDateTime temperatureTime;
+
+    Double targetTemperature;
+
+    // Learned from live readings (see ThermalModelService), null until the room has been observed in its current heater/fan state.
+    Double temperatureRate;         // °F per hour
+    Long timeToTargetSeconds;       // null when the room is not moving towards the target
+
+    Boolean occupied;
+    Boolean personDetected;
+    Double confidence;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    LocalDateTime detectionTime;
+
+    Boolean heaterStatus;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    LocalDateTime heaterTime;
+
+    Boolean fanStatus;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    LocalDateTime fanTime;
+
+    // Configured sensor types by name, see SensorProperties.
+    @Builder.Default
+    Map<String, SensorValueDTO> sensors = Map.of();
+
+    // Online state by source, a sensor type or "device" for the room controller, see PresenceTracker.
+    @Builder.Default
+    Map<String, Boolean> presence = Map.of();
+}
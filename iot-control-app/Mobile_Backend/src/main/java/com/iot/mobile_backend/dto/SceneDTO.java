@@ -0,0 +1,13 @@
+package com.iot.mobile_backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SceneDTO {
+    @NotEmpty(message = "At least one room action is required")
+    private List<@Valid RoomActionDTO> actions;
+}
@@ -0,0 +1,20 @@
+package com.iot.mobile_backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class SensorReadingDTO {
+    @NotBlank(message = "Sensor type is required")
+    private String sensorType;
+
+    @NotBlank(message = "Room type is required")
+    private String roomType;
+
+    private Double numericValue;
+
+    private Boolean booleanValue;
+
+    @NotBlank(message = "Recording time is required")
+    private String recordingTime;
+}
@@ -0,0 +1,15 @@
+package com.iot.mobile_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+// Latest value of a configured sensor type in a room snapshot.
+@Value
+public class SensorValueDTO {
+    Double numericValue;
+    Boolean booleanValue;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    LocalDateTime recordingTime;
+}
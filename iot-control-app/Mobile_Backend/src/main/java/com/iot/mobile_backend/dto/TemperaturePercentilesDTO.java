@@ -0,0 +1,15 @@
+package com.iot.mobile_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TemperaturePercentilesDTO {
+    private String roomType;
+    private double relativeAccuracy;
+    private PercentileBucketDTO total;
+    private List<PercentileBucketDTO> days;
+}
@@ -0,0 +1,5 @@
+package com.iot.mobile_backend.event;
+
+// Published when a device or sensor of a room goes online or offline, see PresenceTracker. source is a sensor type or "device".
+public record DevicePresenceChangedEvent(int roomId, String roomType, String source, boolean online, String reason) {
+}
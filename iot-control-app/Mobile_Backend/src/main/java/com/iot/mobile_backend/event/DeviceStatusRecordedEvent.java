@@ -0,0 +1,7 @@
+package com.iot.mobile_backend.event;
+
+import java.time.LocalDateTime;
+
+// Published once a heater or fan status has been stored. device is "heater" or "fan".
+public record DeviceStatusRecordedEvent(int roomId, String roomType, String device, boolean on, LocalDateTime recordingTime, long receivedAtNanos) {
+}
@@ -0,0 +1,6 @@
+package com.iot.mobile_backend.event;
+
+// Published whenever an MQTT client (re)connects to the broker, on the client's own thread. connection is
+// MqttConnectionState.INGEST or MqttConnectionState.COMMAND.
+public record MqttConnectedEvent(String connection) {
+}
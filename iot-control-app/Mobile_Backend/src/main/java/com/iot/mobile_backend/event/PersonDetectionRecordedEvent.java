@@ -0,0 +1,7 @@
+package com.iot.mobile_backend.event;
+
+import java.time.LocalDateTime;
+
+// Published once a person detection sample has been stored. receivedAtNanos is System.nanoTime() at message arrival.
+public record PersonDetectionRecordedEvent(int roomId, String roomType, boolean personDetected, double confidence, LocalDateTime detectionTime, long receivedAtNanos) {
+}
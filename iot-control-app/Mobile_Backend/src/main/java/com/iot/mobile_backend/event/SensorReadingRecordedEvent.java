@@ -0,0 +1,7 @@
+package com.iot.mobile_backend.event;
+
+import java.time.LocalDateTime;
+
+// Published after a reading of a configured (non built-in) sensor type has been stored.
+public record SensorReadingRecordedEvent(int roomId, String roomType, String sensorType, Double numericValue, Boolean booleanValue, LocalDateTime recordingTime, long receivedAtNanos) {
+}
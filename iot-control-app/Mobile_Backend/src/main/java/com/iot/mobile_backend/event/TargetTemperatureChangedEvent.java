@@ -0,0 +1,5 @@
+package com.iot.mobile_backend.event;
+
+// Published whenever a new target temperature is sent to a room.
+public record TargetTemperatureChangedEvent(int roomId, String roomType, double targetTemperature) {
+}
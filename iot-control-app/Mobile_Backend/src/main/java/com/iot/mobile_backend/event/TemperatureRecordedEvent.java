@@ -0,0 +1,7 @@
+package com.iot.mobile_backend.event;
+
+import java.time.LocalDateTime;
+
+// Published once a temperature reading has been stored. receivedAtNanos is System.nanoTime() at message arrival.
+public record TemperatureRecordedEvent(int roomId, String roomType, double temperature, LocalDateTime recordingTime, long receivedAtNanos) {
+}
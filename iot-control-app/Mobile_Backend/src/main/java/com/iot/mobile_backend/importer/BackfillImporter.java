@@ -0,0 +1,368 @@
+package com.iot.mobile_backend.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import com.iot.mobile_backend.sensor.ReadingTable;
+import com.iot.mobile_backend.sensor.SensorType;
+import com.iot.mobile_backend.service.PartitionStore;
+import com.iot.mobile_backend.service.ReadingParser;
+import com.iot.mobile_backend.service.RoomRegistry;
+import com.iot.mobile_backend.service.SensorTypeRegistry;
+import com.iot.mobile_backend.service.TimestampParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.InputMismatchException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+Offline backfill of historical readings from CSV or NDJSON files, started with the import profile:
+
+    SPRING_PROFILES_ACTIVE=import java -jar Mobile_Backend.jar site-logs/*.csv
+
+Each line is one reading with its sensor, room and device timestamp plus the payload fields of its sensor type,
+validated by the same rules as MQTT ingest (ReadingParser). Files are streamed and loaded in chunks of
+import.chunk-size rows, one transaction per chunk with one prepared-statement batch per table. Rows that are
+already stored are skipped by the unique keys, so loading overlapping files is harmless. With partitioned
+storage, rows of archived periods land in iotdb.db first and are moved into their period's file afterwards.
+
+Progress is committed with every chunk (ImportProgress), so running the same command again resumes where it
+stopped, and picks up lines appended to a file since. Occupancy sessions, runtime buckets and temperature
+sketches of the imported ranges are rebuilt once all files are loaded. The backend seeds its latest room state
+from the tables when it starts, so newer readings imported while it runs show up after a restart.
+*/
+@Component
+@Profile("import")
+public class BackfillImporter implements ApplicationRunner {
+
+    private final static int MAX_REJECTS_LOGGED = 20;
+    private final static ObjectMapper objectMapper = new ObjectMapper();
+
+    // One validated reading, ready to be inserted.
+    private record Row(SensorType type, ReadingTable table, String roomType, long recordingMillis, SensorReadingDTO reading) {
+    }
+
+    // Rebuilds the rows of one room derived from readings between fromMillis and toMillis, returns the rows written.
+    private interface Rebuild {
+        int rebuild(int roomId, long fromMillis, long toMillis);
+    }
+
+    private record DerivedTable(String name, Rebuild rebuild) {
+    }
+
+    private final SensorTypeRegistry sensorTypeRegistry;
+    private final RoomRegistry roomRegistry;
+    private final ImportProgress importProgress;
+    private final DerivedTableRebuilder derivedTableRebuilder;
+    private final PartitionStore partitionStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, DerivedTable> derivedTables;  // Sensor types with tables derived from their readings
+    private final static Logger logger = LoggerFactory.getLogger(BackfillImporter.class);
+
+    @Value("${import.chunk-size:5000}")
+    private int chunkSize;
+
+    // For files without sensor or room columns, e.g. the log of one sensor in one room.
+    @Value("${import.sensor:}")
+    private String defaultSensor;
+
+    @Value("${import.room:}")
+    private String defaultRoom;
+
+    @Autowired
+    public BackfillImporter(SensorTypeRegistry sensorTypeRegistry, RoomRegistry roomRegistry, ImportProgress importProgress, DerivedTableRebuilder derivedTableRebuilder,
+                            PartitionStore partitionStore, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.sensorTypeRegistry = sensorTypeRegistry;
+        this.roomRegistry = roomRegistry;
+        this.importProgress = importProgress;
+        this.derivedTableRebuilder = derivedTableRebuilder;
+        this.partitionStore = partitionStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.derivedTables = Map.of(
+                "person", new DerivedTable("occupancy session", derivedTableRebuilder::rebuildOccupancy),
+                "temperature", new DerivedTable("temperature sketch", derivedTableRebuilder::rebuildTemperatureSketches),
+                "heater", new DerivedTable("heater runtime", (roomId, from, to) -> derivedTableRebuilder.rebuildRuntime(roomId, "heater", from, to)),
+                "fan", new DerivedTable("fan runtime", (roomId, from, to) -> derivedTableRebuilder.rebuildRuntime(roomId, "fan", from, to)));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> files = args.getNonOptionArgs();
+        if (files.isEmpty()) {
+            logger.warn("No files to import. Usage: SPRING_PROFILES_ACTIVE=import java -jar Mobile_Backend.jar <file.csv|file.ndjson>...");
+        }
+
+        for (String file : files) {
+            importFile(Path.of(file).toAbsolutePath().normalize());
+        }
+        // With partitioned storage, move readings of archived periods into their files before reading them back.
+        partitionStore.roll();
+        rebuildDerivedTables();
+    }
+
+    /*
+    ================================================
+    Loading
+    ================================================
+    */
+
+    private void importFile(Path path) throws IOException {
+        String file = path.toString();
+        boolean csv = file.toLowerCase().endsWith(".csv");
+        ImportProgress.FileProgress progress = importProgress.load(file);
+        if (progress.line() > 0) {
+            logger.info("Resuming {} after line {} ({} stored so far).", file, progress.line(), progress.stored());
+        }
+        else {
+            logger.info("Importing {}...", file);
+        }
+
+        long started = System.nanoTime();
+        long storedBefore = progress.stored();
+        long line = 0;
+        long rejectsLogged = 0;
+        String[] header = null;
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long rejected = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (csv && header == null) {
+                    header = splitCsv(text);
+                    continue;
+                }
+                if (line <= progress.line() || text.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    chunk.add(parse(csv ? csvToJson(header, splitCsv(text)) : objectMapper.readTree(text)));
+                }
+                catch (Exception e) {
+                    rejected++;
+                    if (rejectsLogged++ < MAX_REJECTS_LOGGED) {
+                        logger.warn("Rejected line {} of {}: {}", line, path.getFileName(), e.getMessage());
+                    }
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    progress = storeChunk(file, chunk, line, rejected, progress);
+                    chunk.clear();
+                    rejected = 0;
+                }
+            }
+        }
+        progress = storeChunk(file, chunk, line, rejected, progress);
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long stored = progress.stored() - storedBefore;
+        logger.info("Imported {}: {} rows stored in {} s ({} rows/s), {} duplicates and {} rejected in total.",
+                path.getFileName(), stored, String.format("%.1f", seconds), Math.round(stored / Math.max(seconds, 0.001)), progress.duplicates(), progress.rejected());
+    }
+
+    private Row parse(JsonNode data) {
+        String sensor = data.path("sensor").asText(defaultSensor);
+        String roomType = data.path("room").asText(defaultRoom);
+
+        SensorType type = sensorTypeRegistry.find(sensor)
+                .orElseThrow(() -> new InputMismatchException("Unknown sensor type '" + sensor + "', aborting..."));
+        SensorReadingDTO reading = ReadingParser.parse(type, roomType, data);
+
+        // Live ingest falls back to the receive time, a backfilled reading has nothing to fall back to.
+        LocalDateTime recordingTime = TimestampParser.parse(reading.getRecordingTime());
+        if (recordingTime == null) {
+            throw new InputMismatchException("Invalid timestamp '" + reading.getRecordingTime() + "', aborting...");
+        }
+        return new Row(type, ReadingTable.of(type), roomType, EpochMillisConverter.toEpochMillis(recordingTime), reading);
+    }
+
+    // Commits the chunk's rows, the file's progress and the pending derived ranges together.
+    private ImportProgress.FileProgress storeChunk(String file, List<Row> chunk, long line, long rejected, ImportProgress.FileProgress progress) {
+        // Outside the transaction, RoomRegistry writes through its own connection.
+        Map<String, Integer> roomIds = new HashMap<>();
+        chunk.forEach(row -> roomIds.computeIfAbsent(row.roomType(), roomRegistry::register));
+
+        Map<String, List<Object[]>> batches = new LinkedHashMap<>();
+        Map<String, ImportProgress.PendingRange> ranges = new HashMap<>();
+        for (Row row : chunk) {
+            int roomId = roomIds.get(row.roomType());
+            batches.computeIfAbsent(insertSql(row.table()), sql -> new ArrayList<>()).add(values(row, roomId));
+
+            if (derivedTables.containsKey(row.type().name())) {
+                ranges.merge(roomId + "/" + row.type().name(), new ImportProgress.PendingRange(roomId, row.type().name(), row.recordingMillis(), row.recordingMillis()),
+                        (a, b) -> new ImportProgress.PendingRange(a.roomId(), a.sensorType(), Math.min(a.fromMillis(), b.fromMillis()), Math.max(a.toMillis(), b.toMillis())));
+            }
+        }
+
+        return transactionTemplate.execute(status -> {
+            long stored = 0;
+            for (Map.Entry<String, List<Object[]>> batch : batches.entrySet()) {
+                for (int count : jdbcTemplate.batchUpdate(batch.getKey(), batch.getValue())) {
+                    stored += count;
+                }
+            }
+            ranges.values().forEach(importProgress::addPendingRange);
+
+            ImportProgress.FileProgress next = new ImportProgress.FileProgress(line, progress.stored() + stored,
+                    progress.duplicates() + chunk.size() - stored, progress.rejected() + rejected);
+            importProgress.save(file, next);
+            return next;
+        });
+    }
+
+    // OR IGNORE: a reading that is already stored hits its unique key and is skipped.
+    private static String insertSql(ReadingTable table) {
+        StringBuilder columns = new StringBuilder("room_id, ").append(table.timeColumn());
+        StringBuilder placeholders = new StringBuilder("?, ?");
+        if (table.generic()) {
+            columns.append(", sensor_type");
+            placeholders.append(", ?");
+        }
+        for (ReadingTable.ValueColumn value : table.values()) {
+            columns.append(", ").append(value.column());
+            placeholders.append(", ?");
+        }
+        return "INSERT OR IGNORE INTO " + table.table() + " (" + columns + ") VALUES (" + placeholders + ")";
+    }
+
+    private static Object[] values(Row row, int roomId) {
+        List<Object> values = new ArrayList<>();
+        values.add(roomId);
+        values.add(row.recordingMillis());
+        if (row.table().generic()) {
+            values.add(row.type().name());
+        }
+        for (ReadingTable.ValueColumn value : row.table().values()) {
+            values.add(value.bool() ? row.reading().getBooleanValue() : row.reading().getNumericValue());
+        }
+        return values.toArray();
+    }
+
+    /*
+    ================================================
+    Derived Tables
+    ================================================
+    */
+
+    private void rebuildDerivedTables() {
+        for (ImportProgress.PendingRange range : importProgress.getPendingRanges()) {
+            DerivedTable derived = derivedTables.get(range.sensorType());
+            if (derived == null) {
+                // Left by a build that derived more tables than this one, nothing to rebuild here.
+                logger.warn("No derived table for sensor type {}, dropping its pending range.", range.sensorType());
+                transactionTemplate.executeWithoutResult(status -> importProgress.removePendingRange(range));
+                continue;
+            }
+
+            int written = transactionTemplate.execute(status -> {
+                int rows = derived.rebuild().rebuild(range.roomId(), range.fromMillis(), range.toMillis());
+                importProgress.removePendingRange(range);
+                return rows;
+            });
+
+            logger.info("Rebuilt {} {} rows of room {} between {} and {}.", written, derived.name(),
+                    roomRegistry.nameOf(range.roomId()), EpochMillisConverter.fromEpochMillis(range.fromMillis()), EpochMillisConverter.fromEpochMillis(range.toMillis()));
+        }
+    }
+
+    /*
+    ================================================
+    CSV
+    ================================================
+    */
+
+    // Numeric-looking fields become JSON numbers, so a CSV row passes the same checks as a device payload.
+    private static JsonNode csvToJson(String[] header, String[] fields) {
+        if (fields.length != header.length) {
+            throw new InputMismatchException("Expected " + header.length + " fields but found " + fields.length + ", aborting...");
+        }
+
+        ObjectNode data = objectMapper.createObjectNode();
+        for (int i = 0; i < header.length; i++) {
+            String field = fields[i];
+            if (field.isEmpty()) {
+                continue;
+            }
+            Optional<Double> number = parseNumber(field);
+            if (number.isPresent() && !header[i].equals("timestamp") && !header[i].equals("room") && !header[i].equals("sensor")) {
+                data.put(header[i], number.get());
+            }
+            else {
+                data.put(header[i], field);
+            }
+        }
+        return data;
+    }
+
+    private static Optional<Double> parseNumber(String field) {
+        try {
+            return Optional.of(Double.parseDouble(field));
+        }
+        catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Splits one CSV line, with "quoted" fields that may contain commas and "" for a quote.
+    private static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"') {
+                    quoted = false;
+                }
+                else {
+                    field.append(c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            }
+            else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+}
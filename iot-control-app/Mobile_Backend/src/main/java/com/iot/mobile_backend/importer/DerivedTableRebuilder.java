@@ -0,0 +1,235 @@
+package com.iot.mobile_backend.importer;
+
+import com.iot.mobile_backend.service.OccupancyService;
+import com.iot.mobile_backend.service.PartitionStore;
+import com.iot.mobile_backend.service.TemperaturePercentileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Brings occupancy sessions, hourly runtime buckets and daily temperature sketches in line with backfilled
+readings. Live ingest folds readings in one at a time as they arrive (OccupancyService, DutyCycleService,
+TemperaturePercentileService); an import lands rows in the middle of the history instead, so the affected
+range is rebuilt in one pass over the readings, with the same rules, and written with batch inserts. Readings are read from every partition the range touches
+(see PartitionStore), derived tables live in iotdb.db. Must be called inside a transaction.
+*/
+@Component
+@Profile("import")
+public class DerivedTableRebuilder {
+
+    private final static long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OccupancyService occupancyService;
+    private final PartitionStore partitionStore;
+    private final TemperaturePercentileService percentileService;
+    private final static Logger logger = LoggerFactory.getLogger(DerivedTableRebuilder.class);
+
+    @Value("${occupancy.exit-grace:30s}")
+    private Duration exitGrace;
+
+    @Autowired
+    public DerivedTableRebuilder(JdbcTemplate jdbcTemplate, OccupancyService occupancyService, PartitionStore partitionStore, TemperaturePercentileService percentileService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.occupancyService = occupancyService;
+        this.partitionStore = partitionStore;
+        this.percentileService = percentileService;
+    }
+
+    /*
+    ================================================
+    Occupancy Sessions
+    ================================================
+    */
+
+    private static class Session {
+        private final long start;
+        private long end;
+        private double peak;
+        private double sum;
+        private int count = 1;
+
+        private Session(long time, double confidence) {
+            this.start = time;
+            this.end = time;
+            this.peak = confidence;
+            this.sum = confidence;
+        }
+    }
+
+    // Rebuilds the closed sessions of a room around [fromMillis, toMillis]. Returns the number of sessions written.
+    public int rebuildOccupancy(int roomId, long fromMillis, long toMillis) {
+        long grace = exitGrace.toMillis();
+
+        // Sessions the new samples could extend, merge or split are rebuilt whole.
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(start_time) AS first_start, MAX(end_time) AS last_end FROM occupancy_session "
+                + "WHERE room_id = ? AND is_open = 0 AND start_time <= ? AND end_time >= ?", roomId, toMillis + grace, fromMillis - grace);
+        long from = bounds.get("first_start") != null ? Math.min(fromMillis, ((Number) bounds.get("first_start")).longValue()) : fromMillis;
+        long to = bounds.get("last_end") != null ? Math.max(toMillis, ((Number) bounds.get("last_end")).longValue()) : toMillis;
+
+        // The open session belongs to the running backend, stop short of it.
+        Long openStart = jdbcTemplate.queryForObject("SELECT MIN(start_time) FROM occupancy_session WHERE room_id = ? AND is_open = 1", Long.class, roomId);
+        if (openStart != null && to >= openStart) {
+            to = openStart - 1;
+        }
+        if (from > to) {
+            logger.warn("Imported person samples of room {} fall inside its open occupancy session, leaving it to the backend.", roomId);
+            return 0;
+        }
+
+        jdbcTemplate.update("DELETE FROM occupancy_session WHERE room_id = ? AND is_open = 0 AND start_time >= ? AND start_time <= ?", roomId, from, to);
+
+        List<Object[]> sessions = new ArrayList<>();
+        Session[] current = new Session[1];
+        RowCallbackHandler sessionizer = resultSet -> {
+            long time = resultSet.getLong(3);
+            double confidence = resultSet.getDouble(2);
+            Session session = current[0];
+
+            if (occupancyService.isOccupied(resultSet.getBoolean(1), confidence)) {
+                if (session == null) {
+                    current[0] = new Session(time, confidence);
+                    return;
+                }
+                session.end = time;
+                session.peak = Math.max(session.peak, confidence);
+                session.sum += confidence;
+                session.count++;
+            }
+            else if (session != null && time >= session.end + grace) {
+                sessions.add(toRow(roomId, session));
+                current[0] = null;
+            }
+        };
+        for (JdbcTemplate partition : partitionStore.partitionsFor(from, to + 1)) {
+            partition.query("SELECT person_detected, confidence, detection_time FROM person_detection WHERE room_id = ? AND detection_time >= ? AND detection_time <= ? "
+                    + "ORDER BY detection_time", sessionizer, roomId, from, to);
+        }
+        if (current[0] != null) {
+            sessions.add(toRow(roomId, current[0]));
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO occupancy_session (room_id, start_time, end_time, is_open, peak_confidence, confidence_sum, sample_count) "
+                + "VALUES (?, ?, ?, 0, ?, ?, ?)", sessions);
+        return sessions.size();
+    }
+
+    private static Object[] toRow(int roomId, Session session) {
+        return new Object[]{roomId, session.start, session.end, session.peak, session.sum, session.count};
+    }
+
+    /*
+    ================================================
+    Runtime Buckets
+    ================================================
+    */
+
+    /*
+    Recomputes the hourly buckets of a heater or fan from the hour of fromMillis up to the hour of the first stored
+    status after toMillis. Buckets outside that window see the same device state as before the import.
+    Returns the number of buckets written.
+    */
+    public int rebuildRuntime(int roomId, String device, long fromMillis, long toMillis) {
+        String table = device + "_status";
+        String statusColumn = device + "_status";
+
+        long windowStart = Math.floorDiv(fromMillis, HOUR_MILLIS) * HOUR_MILLIS;
+        Long nextStatus = firstStatusTime(table, roomId, toMillis + 1);
+        long windowEnd = (Math.floorDiv(nextStatus != null ? nextStatus : toMillis, HOUR_MILLIS) + 1) * HOUR_MILLIS;
+
+        // State going into the window, from the last status before it.
+        List<JdbcTemplate> earlier = partitionStore.partitionsFor(null, windowStart);
+        List<Boolean> before = List.of();
+        for (int i = earlier.size() - 1; i >= 0 && before.isEmpty(); i--) {
+            before = earlier.get(i).query("SELECT " + statusColumn + " FROM " + table + " WHERE room_id = ? AND recording_time < ? ORDER BY recording_time DESC LIMIT 1",
+                    (resultSet, row) -> resultSet.getBoolean(1), roomId, windowStart);
+        }
+
+        TreeMap<Long, long[]> buckets = new TreeMap<>();  // bucket start -> {on millis, switches}
+        Boolean[] on = {before.isEmpty() ? null : before.get(0)};
+        long[] since = {windowStart};
+
+        RowCallbackHandler switches = resultSet -> {
+            boolean status = resultSet.getBoolean(1);
+            long time = resultSet.getLong(2);
+
+            // Same rules as DutyCycleService: the first status only sets the state, repeats cost nothing.
+            if (on[0] == null) {
+                on[0] = status;
+                since[0] = time;
+                return;
+            }
+            if (on[0] == status) {
+                return;
+            }
+            if (on[0]) {
+                addRuntime(buckets, since[0], time);
+            }
+            buckets.computeIfAbsent(Math.floorDiv(time, HOUR_MILLIS) * HOUR_MILLIS, start -> new long[2])[1]++;
+            on[0] = status;
+            since[0] = time;
+        };
+        for (JdbcTemplate partition : partitionStore.partitionsFor(windowStart, windowEnd)) {
+            partition.query("SELECT " + statusColumn + ", recording_time FROM " + table + " WHERE room_id = ? AND recording_time >= ? AND recording_time < ? ORDER BY recording_time",
+                    switches, roomId, windowStart, windowEnd);
+        }
+
+        // An on-period still running at the end of the window lasted at least that long if statuses follow it.
+        // Otherwise it is still running, and the backend accounts for it when the device switches off.
+        Long statusAfter = firstStatusTime(table, roomId, windowEnd);
+        if (Boolean.TRUE.equals(on[0]) && statusAfter != null) {
+            addRuntime(buckets, since[0], windowEnd);
+        }
+
+        jdbcTemplate.update("DELETE FROM device_runtime WHERE room_id = ? AND device = ? AND bucket_start >= ? AND bucket_start < ?", roomId, device, windowStart, windowEnd);
+
+        List<Object[]> rows = new ArrayList<>(buckets.size());
+        buckets.forEach((start, bucket) -> rows.add(new Object[]{roomId, device, start, bucket[0], (int) bucket[1]}));
+        jdbcTemplate.batchUpdate("INSERT INTO device_runtime (room_id, device, bucket_start, on_millis, switch_count) VALUES (?, ?, ?, ?, ?)", rows);
+        return rows.size();
+    }
+
+    // Time of the room's first status at or after fromMillis, in the earliest partition that has one.
+    private Long firstStatusTime(String table, int roomId, long fromMillis) {
+        for (JdbcTemplate partition : partitionStore.partitionsFor(fromMillis, null)) {
+            Long time = partition.queryForObject("SELECT MIN(recording_time) FROM " + table + " WHERE room_id = ? AND recording_time >= ?", Long.class, roomId, fromMillis);
+            if (time != null) {
+                return time;
+            }
+        }
+        return null;
+    }
+
+    // Spreads an on-period over the hours it covered.
+    private static void addRuntime(TreeMap<Long, long[]> buckets, long from, long to) {
+        long bucketStart = Math.floorDiv(from, HOUR_MILLIS) * HOUR_MILLIS;
+        while (bucketStart < to) {
+            long bucketEnd = bucketStart + HOUR_MILLIS;
+            buckets.computeIfAbsent(bucketStart, start -> new long[2])[0] += Math.min(to, bucketEnd) - Math.max(from, bucketStart);
+            bucketStart = bucketEnd;
+        }
+    }
+
+    /*
+    ================================================
+    Temperature Sketches
+    ================================================
+    */
+
+    // Every day the imported temperatures touch is sketched again from all of its readings, short of the room's latest stored day. Returns the number of sketches written.
+    public int rebuildTemperatureSketches(int roomId, long fromMillis, long toMillis) {
+        return percentileService.rebuild(roomId, fromMillis, toMillis);
+    }
+}
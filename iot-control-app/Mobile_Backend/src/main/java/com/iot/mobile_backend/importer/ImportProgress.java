@@ -0,0 +1,72 @@
+package com.iot.mobile_backend.importer;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+What the backfill importer has done so far, kept in the database itself. Every chunk updates its file's
+line count in the same transaction as its rows, so after a crash or Ctrl-C the import resumes right after
+the last committed chunk. Time ranges whose derived tables still need rebuilding are kept the same way,
+and only removed in the transaction that rebuilds them.
+*/
+@Component
+@Profile("import")
+public class ImportProgress {
+
+    public record FileProgress(long line, long stored, long duplicates, long rejected) {
+    }
+
+    // Imported readings of one room and sensor type cover [fromMillis, toMillis].
+    public record PendingRange(int roomId, String sensorType, long fromMillis, long toMillis) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportProgress(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    private void createTables() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS import_progress (file VARCHAR(1024) NOT NULL, line INTEGER NOT NULL, stored INTEGER NOT NULL, "
+                + "duplicates INTEGER NOT NULL, rejected INTEGER NOT NULL, PRIMARY KEY (file))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS import_pending_range (room_id INTEGER NOT NULL, sensor_type VARCHAR(255) NOT NULL, "
+                + "from_time INTEGER NOT NULL, to_time INTEGER NOT NULL, PRIMARY KEY (room_id, sensor_type))");
+    }
+
+    public FileProgress load(String file) {
+        List<FileProgress> progress = jdbcTemplate.query("SELECT line, stored, duplicates, rejected FROM import_progress WHERE file = ?",
+                (resultSet, row) -> new FileProgress(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4)), file);
+        return progress.isEmpty() ? new FileProgress(0, 0, 0, 0) : progress.get(0);
+    }
+
+    // Called inside the chunk's transaction.
+    public void save(String file, FileProgress progress) {
+        jdbcTemplate.update("INSERT INTO import_progress (file, line, stored, duplicates, rejected) VALUES (?, ?, ?, ?, ?) "
+                        + "ON CONFLICT (file) DO UPDATE SET line = excluded.line, stored = excluded.stored, duplicates = excluded.duplicates, rejected = excluded.rejected",
+                file, progress.line(), progress.stored(), progress.duplicates(), progress.rejected());
+    }
+
+    // Called inside the chunk's transaction, widens the pending range of the room and sensor type.
+    public void addPendingRange(PendingRange range) {
+        jdbcTemplate.update("INSERT INTO import_pending_range (room_id, sensor_type, from_time, to_time) VALUES (?, ?, ?, ?) "
+                        + "ON CONFLICT (room_id, sensor_type) DO UPDATE SET from_time = MIN(from_time, excluded.from_time), to_time = MAX(to_time, excluded.to_time)",
+                range.roomId(), range.sensorType(), range.fromMillis(), range.toMillis());
+    }
+
+    public List<PendingRange> getPendingRanges() {
+        return jdbcTemplate.query("SELECT room_id, sensor_type, from_time, to_time FROM import_pending_range ORDER BY room_id, sensor_type",
+                (resultSet, row) -> new PendingRange(resultSet.getInt(1), resultSet.getString(2), resultSet.getLong(3), resultSet.getLong(4)));
+    }
+
+    // Called inside the transaction that rebuilt the range.
+    public void removePendingRange(PendingRange range) {
+        jdbcTemplate.update("DELETE FROM import_pending_range WHERE room_id = ? AND sensor_type = ?", range.roomId(), range.sensorType());
+    }
+}
@@ -0,0 +1,10 @@
+package com.iot.mobile_backend.model;
+
+public enum AnomalyKind {
+    // Far outside the recent spread of the sensor's readings.
+    SPIKE,
+    // Changed faster than the quantity can physically change, the reading is ignored by the baseline.
+    JUMP,
+    // The same value for too long, the sensor is most likely stuck.
+    FLATLINE
+}
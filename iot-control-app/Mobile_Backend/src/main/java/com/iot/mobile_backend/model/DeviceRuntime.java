@@ -0,0 +1,36 @@
+package com.iot.mobile_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// One row per room, device and hour with the accumulated on-time and number of switches.
+@Entity
+@Data
+@Table(name = "device_runtime", uniqueConstraints = @UniqueConstraint(name = "uk_device_runtime_bucket", columnNames = {"room_id", "device", "bucket_start"}))
+public class DeviceRuntime {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
+    private String roomType;
+
+    @Column(nullable = false)
+    private String device;
+
+    @Convert(converter = EpochMillisConverter.class)
+    @Column(nullable = false, name = "bucket_start")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false, name = "on_millis")
+    private Long onMillis;
+
+    @Column(nullable = false, name = "switch_count")
+    private Integer switchCount;
+}
@@ -0,0 +1,34 @@
+package com.iot.mobile_backend.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/*
+Stores timestamps as epoch milliseconds in INTEGER columns so range scans and sorting compare native integers.
+Device timestamps carry no zone, the wall-clock time is stored as if it were UTC: pure arithmetic both ways,
+no zone rules and no DST gaps or overlaps.
+*/
+@Converter
+public class EpochMillisConverter implements AttributeConverter<LocalDateTime, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(LocalDateTime time) {
+        return time == null ? null : toEpochMillis(time);
+    }
+
+    @Override
+    public LocalDateTime convertToEntityAttribute(Long millis) {
+        return millis == null ? null : fromEpochMillis(millis);
+    }
+
+    public static long toEpochMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,50 @@
+package com.iot.mobile_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "occupancy_session", indexes = @Index(name = "idx_occupancy_room_start", columnList = "room_id, start_time"))
+public class OccupancySession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
+    private String roomType;
+
+    @Convert(converter = EpochMillisConverter.class)
+    @Column(nullable = false, name = "start_time")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime startTime;
+
+    // Last positive detection so far, final exit time once the session is closed.
+    @Convert(converter = EpochMillisConverter.class)
+    @Column(nullable = false, name = "end_time")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime endTime;
+
+    @Column(nullable = false, name = "is_open")
+    private Boolean open;
+
+    @Column(nullable = false, name = "peak_confidence")
+    private Double peakConfidence;
+
+    @JsonIgnore
+    @Column(nullable = false, name = "confidence_sum")
+    private Double confidenceSum;
+
+    @Column(nullable = false, name = "sample_count")
+    private Integer sampleCount;
+
+    public double getMeanConfidence() {
+        return sampleCount == null || sampleCount == 0 ? 0 : confidenceSum / sampleCount;
+    }
+}
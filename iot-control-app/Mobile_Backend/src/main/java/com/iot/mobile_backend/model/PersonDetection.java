@@ -15,7 +15,8 @@ public class PersonDetection {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "room_type", nullable = false)
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
     private String roomType;
 
     @Column(nullable = false, name="person_detected")
@@ -24,6 +25,7 @@ public class PersonDetection {
     @Column(nullable = false)
     private Double confidence;
 
+    @Convert(converter = EpochMillisConverter.class)
     @Column(nullable = false, name="detection_time")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime detectionTime;
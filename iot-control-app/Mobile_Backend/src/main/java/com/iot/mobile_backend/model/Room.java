@@ -0,0 +1,18 @@
+package com.iot.mobile_backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Room dictionary, every time-series table stores the compact id instead of repeating the name.
+@Entity
+@Data
+@Table(name = "room")
+public class Room {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, unique = true)
+    private String name;
+}
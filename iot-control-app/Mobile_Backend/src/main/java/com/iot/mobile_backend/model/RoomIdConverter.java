@@ -0,0 +1,31 @@
+package com.iot.mobile_backend.model;
+
+import com.iot.mobile_backend.service.RoomRegistry;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.ObjectProvider;
+
+/*
+Stores room names as their room id. Created by Hibernate through Spring, the registry is looked up
+lazily because the converter is built while the EntityManagerFactory is still starting.
+*/
+@Converter
+public class RoomIdConverter implements AttributeConverter<String, Integer> {
+
+    private final ObjectProvider<RoomRegistry> roomRegistry;
+
+    public RoomIdConverter(ObjectProvider<RoomRegistry> roomRegistry) {
+        this.roomRegistry = roomRegistry;
+    }
+
+    // Unknown rooms map to null, which matches no rows on reads. Writers register the room first.
+    @Override
+    public Integer convertToDatabaseColumn(String roomType) {
+        return roomType == null ? null : roomRegistry.getObject().findId(roomType);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer roomId) {
+        return roomId == null ? null : roomRegistry.getObject().nameOf(roomId);
+    }
+}
@@ -0,0 +1,44 @@
+package com.iot.mobile_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A reading flagged by the AnomalyDetector, with what it was compared against.
+@Entity
+@Data
+@Table(name = "sensor_anomaly", indexes = @Index(name = "idx_sensor_anomaly_room_time", columnList = "room_id, detected_at"))
+public class SensorAnomaly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
+    private String roomType;
+
+    @Column(nullable = false, name = "sensor_type")
+    private String sensorType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AnomalyKind kind;
+
+    // Device timestamp of the flagged reading.
+    @Convert(converter = EpochMillisConverter.class)
+    @Column(nullable = false, name = "detected_at")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime detectedAt;
+
+    @Column(nullable = false)
+    private Double value;
+
+    // Baseline mean for a spike, last steady reading for a jump, the repeated value for a flatline.
+    @Column(nullable = false)
+    private Double reference;
+
+    private String detail;
+}
@@ -0,0 +1,36 @@
+package com.iot.mobile_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Readings of every configured sensor type, in one table with a numeric and a boolean value column.
+@Entity
+@Data
+@Table(name = "sensor_reading")
+public class SensorReading {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "sensor_type")
+    private String sensorType;
+
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
+    private String roomType;
+
+    @Column(name = "numeric_value")
+    private Double numericValue;
+
+    @Column(name = "boolean_value")
+    private Boolean booleanValue;
+
+    @Convert(converter = EpochMillisConverter.class)
+    @Column(nullable = false, name = "recording_time")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime recordingTime;
+}
@@ -0,0 +1,30 @@
+package com.iot.mobile_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// The last target temperature the broker acknowledged for a room, one row per room.
+@Entity
+@Data
+@Table(name = "target_temperature", uniqueConstraints = @UniqueConstraint(name = "uk_target_temperature_room", columnNames = {"room_id"}))
+public class TargetTemperature {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
+    private String roomType;
+
+    @Column(nullable = false, name = "target_f")
+    private Double targetTemperature;
+
+    @Convert(converter = EpochMillisConverter.class)
+    @Column(nullable = false, name = "updated_at")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime updatedAt;
+}
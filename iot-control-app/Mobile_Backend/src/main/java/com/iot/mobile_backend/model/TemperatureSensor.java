@@ -15,12 +15,14 @@ public class TemperatureSensor {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "room_type", nullable = false)
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
     private String roomType;
 
     @Column(name = "temperature_f",nullable = false)
     private Double temperature;
 
+    @Convert(converter = EpochMillisConverter.class)
     @Column(nullable = false, name = "recording_time")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime recordingTime;
@@ -0,0 +1,33 @@
+package com.iot.mobile_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// One row per room and day with a serialized QuantileSketch of that day's temperatures.
+@Entity
+@Data
+@Table(name = "temperature_sketch", uniqueConstraints = @UniqueConstraint(name = "uk_temperature_sketch_bucket", columnNames = {"room_id", "bucket_start"}))
+public class TemperatureSketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Convert(converter = RoomIdConverter.class)
+    @Column(name = "room_id", nullable = false)
+    private String roomType;
+
+    @Convert(converter = EpochMillisConverter.class)
+    @Column(nullable = false, name = "bucket_start")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false, name = "sample_count")
+    private Long sampleCount;
+
+    @Column(nullable = false)
+    private byte[] sketch;
+}
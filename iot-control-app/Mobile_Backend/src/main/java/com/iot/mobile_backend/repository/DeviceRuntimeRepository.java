@@ -0,0 +1,18 @@
+package com.iot.mobile_backend.repository;
+
+import com.iot.mobile_backend.model.DeviceRuntime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DeviceRuntimeRepository extends JpaRepository<DeviceRuntime, Long> {
+
+    Optional<DeviceRuntime> findByRoomTypeAndDeviceAndBucketStart(String roomType, String device, LocalDateTime bucketStart);
+
+    // Fetch the hourly buckets of a device in the [from, to) window, in time order.
+    List<DeviceRuntime> findByRoomTypeAndDeviceAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(String roomType, String device, LocalDateTime from, LocalDateTime to);
+}
@@ -11,8 +11,8 @@ import java.util.Optional;
 @Repository
 public interface FanRepository extends JpaRepository<FanSensor, Long> {
 
-    // Fetch the latest fan status on the database, sorted by recording time.
-    Optional<FanSensor> findFirstByOrderByRecordingTimeDesc();
+    // Fetch the latest fan status of a room, sorted by recording time.
+    Optional<FanSensor> findFirstByRoomTypeOrderByRecordingTimeDesc(String roomType);
 
     // Fetch all fan statuses for all rooms, sorted by room type and recording time.
     @Query("SELECT f FROM FanSensor f WHERE f.id IN (SELECT MAX(f2.id) FROM FanSensor f2 GROUP BY f2.roomType)")
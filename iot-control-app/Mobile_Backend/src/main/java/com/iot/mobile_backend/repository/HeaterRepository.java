@@ -11,8 +11,8 @@ import java.util.Optional;
 @Repository
 public interface HeaterRepository extends JpaRepository<HeaterSensor, Long> {
 
-    // Fetch the latest heater status on the database, sorted by recording time.
-    Optional<HeaterSensor> findFirstByOrderByRecordingTimeDesc();
+    // Fetch the latest heater status of a room, sorted by recording time.
+    Optional<HeaterSensor> findFirstByRoomTypeOrderByRecordingTimeDesc(String roomType);
 
     // Fetch all heater statuses for all rooms, sorted by room type and recording time.
     @Query("SELECT h FROM HeaterSensor h WHERE h.id IN (SELECT MAX(h2.id) FROM HeaterSensor h2 GROUP BY h2.roomType)")
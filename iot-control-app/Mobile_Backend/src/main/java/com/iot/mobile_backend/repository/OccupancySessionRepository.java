@@ -0,0 +1,21 @@
+package com.iot.mobile_backend.repository;
+
+import com.iot.mobile_backend.model.OccupancySession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OccupancySessionRepository extends JpaRepository<OccupancySession, Long> {
+
+    // Sessions still open when the application stopped, resumed on startup.
+    List<OccupancySession> findByOpenTrue();
+
+    // Fetch all sessions of a room overlapping the [from, to) window, in start order.
+    @Query("SELECT s FROM OccupancySession s WHERE s.roomType = :roomType AND s.startTime < :to AND s.endTime >= :from ORDER BY s.startTime")
+    List<OccupancySession> findOverlapping(@Param("roomType") String roomType, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,17 @@
+package com.iot.mobile_backend.repository;
+
+import com.iot.mobile_backend.model.SensorAnomaly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SensorAnomalyRepository extends JpaRepository<SensorAnomaly, Long> {
+
+    // Latest anomalies first.
+    List<SensorAnomaly> findTop500ByDetectedAtGreaterThanEqualOrderByDetectedAtDesc(LocalDateTime since);
+
+    List<SensorAnomaly> findTop500ByRoomTypeAndDetectedAtGreaterThanEqualOrderByDetectedAtDesc(String roomType, LocalDateTime since);
+}
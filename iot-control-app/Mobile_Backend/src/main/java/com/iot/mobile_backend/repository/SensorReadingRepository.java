@@ -0,0 +1,29 @@
+package com.iot.mobile_backend.repository;
+
+import com.iot.mobile_backend.model.SensorReading;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SensorReadingRepository extends JpaRepository<SensorReading, Long> {
+
+    Optional<SensorReading> findFirstBySensorTypeAndRoomTypeOrderByRecordingTimeDesc(String sensorType, String roomType);
+
+    // Latest reading of one sensor type per room
+    @Query("SELECT r FROM SensorReading r WHERE r.id IN (SELECT MAX(r2.id) FROM SensorReading r2 WHERE r2.sensorType = :sensorType GROUP BY r2.roomType)")
+    List<SensorReading> getAllRoomReadings(@Param("sensorType") String sensorType);
+
+    // Latest reading of every sensor type per room
+    @Query("SELECT r FROM SensorReading r WHERE r.id IN (SELECT MAX(r2.id) FROM SensorReading r2 GROUP BY r2.sensorType, r2.roomType)")
+    List<SensorReading> getAllLatestReadings();
+
+    // Readings of a room in the [from, to) window, in time order.
+    @Query("SELECT r FROM SensorReading r WHERE r.sensorType = :sensorType AND r.roomType = :roomType AND r.recordingTime >= :from AND r.recordingTime < :to ORDER BY r.recordingTime")
+    List<SensorReading> findInRange(@Param("sensorType") String sensorType, @Param("roomType") String roomType, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,13 @@
+package com.iot.mobile_backend.repository;
+
+import com.iot.mobile_backend.model.TargetTemperature;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TargetTemperatureRepository extends JpaRepository<TargetTemperature, Long> {
+
+    Optional<TargetTemperature> findByRoomType(String roomType);
+}
@@ -0,0 +1,18 @@
+package com.iot.mobile_backend.repository;
+
+import com.iot.mobile_backend.model.TemperatureSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TemperatureSketchRepository extends JpaRepository<TemperatureSketch, Long> {
+
+    Optional<TemperatureSketch> findByRoomTypeAndBucketStart(String roomType, LocalDateTime bucketStart);
+
+    // Fetch the daily sketches of a room in the [from, to) window, in time order.
+    List<TemperatureSketch> findByRoomTypeAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(String roomType, LocalDateTime from, LocalDateTime to);
+}
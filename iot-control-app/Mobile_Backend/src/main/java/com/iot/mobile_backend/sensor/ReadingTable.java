@@ -0,0 +1,36 @@
+package com.iot.mobile_backend.sensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+Where the readings of a sensor type are stored, for the code that reads or writes them with plain SQL
+(export, backfill import, partitioning). Every table has room_id and a time column, and at most one numeric and one
+boolean value column; configured types share sensor_reading and are told apart by sensor_type.
+*/
+public record ReadingTable(String table, String timeColumn, List<ValueColumn> values, boolean generic) {
+
+    // A value column, and the name it is exported under.
+    public record ValueColumn(String column, String name, boolean bool) {
+    }
+
+    private final static Map<String, ReadingTable> BUILT_IN_TABLES = Map.of(
+            "temperature", new ReadingTable("temperature_activity", "recording_time", List.of(new ValueColumn("temperature_f", "temperature", false)), false),
+            "person", new ReadingTable("person_detection", "detection_time", List.of(new ValueColumn("person_detected", "personDetected", true), new ValueColumn("confidence", "confidence", false)), false),
+            "heater", new ReadingTable("heater_status", "recording_time", List.of(new ValueColumn("heater_status", "heaterStatus", true)), false),
+            "fan", new ReadingTable("fan_status", "recording_time", List.of(new ValueColumn("fan_status", "fanStatus", true)), false));
+
+    private final static ReadingTable GENERIC_TABLE = new ReadingTable("sensor_reading", "recording_time",
+            List.of(new ValueColumn("numeric_value", "numericValue", false), new ValueColumn("boolean_value", "booleanValue", true)), true);
+
+    public static ReadingTable of(SensorType type) {
+        return type.builtIn() ? BUILT_IN_TABLES.get(type.name()) : GENERIC_TABLE;
+    }
+
+    public static List<ReadingTable> all() {
+        List<ReadingTable> tables = new ArrayList<>(BUILT_IN_TABLES.values());
+        tables.add(GENERIC_TABLE);
+        return tables;
+    }
+}
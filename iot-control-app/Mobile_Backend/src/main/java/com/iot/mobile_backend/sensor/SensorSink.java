@@ -0,0 +1,10 @@
+package com.iot.mobile_backend.sensor;
+
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+
+// Where a validated reading of one sensor type is stored.
+@FunctionalInterface
+public interface SensorSink {
+
+    void record(SensorReadingDTO reading, long receivedAtNanos);
+}
@@ -0,0 +1,27 @@
+package com.iot.mobile_backend.sensor;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+One kind of sensor: where it publishes, which payload fields hold its values and where readings go.
+Every type has a numeric value, a boolean value or both, matching the two value columns of the generic store.
+*/
+public record SensorType(String name,
+                         String topicSuffix,
+                         String numericField,
+                         Double min,
+                         Double max,
+                         String booleanField,
+                         boolean builtIn,
+                         @JsonIgnore SensorSink sink) {
+
+    // Subscription filter for every room, e.g. +/temperature/status
+    @JsonIgnore
+    public String getTopicFilter() {
+        return "+/" + topicSuffix;
+    }
+
+    public boolean inRange(double value) {
+        return (min == null || value >= min) && (max == null || value <= max);
+    }
+}
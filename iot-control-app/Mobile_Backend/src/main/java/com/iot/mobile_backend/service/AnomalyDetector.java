@@ -0,0 +1,286 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.config.AnomalyProperties;
+import com.iot.mobile_backend.event.PersonDetectionRecordedEvent;
+import com.iot.mobile_backend.event.SensorReadingRecordedEvent;
+import com.iot.mobile_backend.event.TemperatureRecordedEvent;
+import com.iot.mobile_backend.model.AnomalyKind;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import com.iot.mobile_backend.model.SensorAnomaly;
+import com.iot.mobile_backend.repository.SensorAnomalyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Flags suspicious readings as they are stored: spikes far outside a sensor's recent spread, jumps faster than
+the quantity can physically change, and flatlines where a stuck sensor keeps repeating its last value.
+Every room and sensor keeps a handful of numbers (EWMA mean and variance, the previous reading, a repeat
+counter), updated in constant time per reading. Only a flagged reading touches the database, and the same
+anomaly of a sensor is stored at most once per repeat interval.
+
+Spikes and jumps stay out of the baseline: folding a reading four deviations away in would widen the variance
+by as much as the spike itself and hide the next one. A level that really moved (a sensor carried into another
+room, a window left open) then keeps spiking, so after spike-run spikes in a row on the same side of the mean
+the baseline restarts from the new level, the variance is kept as the best guess of the sensor's noise.
+
+The camera's confidence is only checked for flatlines, and only while it is above zero: an empty room
+reports zero for hours, and a person walking in is a legitimate jump.
+*/
+@Service
+@EnableConfigurationProperties(AnomalyProperties.class)
+public class AnomalyDetector {
+
+    private record StreamKey(int roomId, String sensorType) {
+    }
+
+    private static class Stream {
+        private long count;
+        private double mean;
+        private double variance;
+        private double last;
+        private int spikes;  // Spikes in a row on the same side of the mean, negative below it
+        private double steady;  // Last reading that was neither a spike nor a jump, what the rate is measured from
+        private long steadyMillis;
+        private long repeats;
+        private long repeatingSinceMillis;
+        private boolean flatlined;
+        private final long[] lastStoredMillis = new long[AnomalyKind.values().length];
+        private final Counter[] flagged = new Counter[AnomalyKind.values().length];  // Registered on a kind's first flag
+    }
+
+    private final SensorAnomalyRepository anomalyRepository;
+    private final AnomalyProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<StreamKey, Stream> streams = new ConcurrentHashMap<>();
+    private final Timer evaluationTimer;
+    private final static Logger logger = LoggerFactory.getLogger(AnomalyDetector.class);
+
+    @Autowired
+    public AnomalyDetector(SensorAnomalyRepository anomalyRepository, AnomalyProperties properties, MeterRegistry meterRegistry) {
+        this.anomalyRepository = anomalyRepository;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        this.evaluationTimer = Timer.builder("sensor.anomaly.evaluation")
+                .description("Time spent checking one reading for anomalies")
+                .register(meterRegistry);
+        Gauge.builder("sensor.anomaly.flatlined", streams, all -> all.values().stream().filter(stream -> stream.flatlined).count())
+                .description("Sensors currently repeating the same value")
+                .register(meterRegistry);
+    }
+
+    /*
+    ================================================
+    Event Listeners
+    ================================================
+    */
+
+    @EventListener
+    public void onTemperatureRecorded(TemperatureRecordedEvent event) {
+        check(event.roomId(), event.roomType(), "temperature", event.temperature(), event.recordingTime(), true);
+    }
+
+    @EventListener
+    public void onPersonDetectionRecorded(PersonDetectionRecordedEvent event) {
+        check(event.roomId(), event.roomType(), "person", event.confidence(), event.detectionTime(), false);
+    }
+
+    @EventListener
+    public void onSensorReadingRecorded(SensorReadingRecordedEvent event) {
+        if (event.numericValue() != null) {
+            check(event.roomId(), event.roomType(), event.sensorType(), event.numericValue(), event.recordingTime(), true);
+        }
+    }
+
+    /*
+    ================================================
+    Detection
+    ================================================
+    */
+
+    // statistical: also check for spikes and jumps, otherwise only for flatlines of a non-zero value.
+    private void check(int roomId, String roomType, String sensorType, double value, LocalDateTime recordingTime, boolean statistical) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long time = EpochMillisConverter.toEpochMillis(recordingTime);
+        AnomalyProperties.SensorLimits limits = properties.getSensors().get(sensorType);
+        List<SensorAnomaly> anomalies = new ArrayList<>(0);
+
+        // compute() locks the stream's entry, so readings of one sensor are applied one at a time.
+        streams.compute(new StreamKey(roomId, sensorType), (key, stream) -> {
+            if (stream == null) {
+                stream = new Stream();
+            }
+
+            if (statistical) {
+                if (!checkRate(stream, limits, roomType, sensorType, value, time, anomalies)) {
+                    return stream;  // Impossible reading, keep it out of the baseline
+                }
+                if (checkSpike(stream, limits, roomType, sensorType, value, time, anomalies)) {
+                    shift(stream, value, time);
+                }
+                else {
+                    stream.spikes = 0;
+                    stream.steady = value;
+                    stream.steadyMillis = time;
+                    fold(stream, value);
+                }
+            }
+            checkFlatline(stream, limits, roomType, sensorType, value, time, statistical, anomalies);
+
+            stream.last = value;
+            stream.count++;
+            return stream;
+        });
+
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!anomalies.isEmpty()) {
+            anomalyRepository.saveAll(anomalies);
+        }
+    }
+
+    // False for a change faster than the sensor type's max-rate. Measured from the last steady reading, so coming back from a spike is not a jump.
+    private boolean checkRate(Stream stream, AnomalyProperties.SensorLimits limits, String roomType, String sensorType, double value, long time, List<SensorAnomaly> anomalies) {
+        if (limits == null || limits.getMaxRate() == null || stream.count == 0 || time <= stream.steadyMillis) {
+            return true;
+        }
+
+        double perMinute = Math.abs(value - stream.steady) / ((time - stream.steadyMillis) / 60000.0);
+        if (perMinute <= limits.getMaxRate()) {
+            return true;
+        }
+
+        flag(stream, AnomalyKind.JUMP, roomType, sensorType, value, stream.steady, time,
+                String.format("%.2f per minute, at most %.2f is possible", perMinute, limits.getMaxRate()), anomalies);
+        return false;
+    }
+
+    // True for a spike.
+    private boolean checkSpike(Stream stream, AnomalyProperties.SensorLimits limits, String roomType, String sensorType, double value, long time, List<SensorAnomaly> anomalies) {
+        if (stream.count < properties.getWarmup()) {
+            return false;
+        }
+
+        double minDeviation = limits != null && limits.getMinDeviation() != null ? limits.getMinDeviation() : properties.getMinDeviation();
+        double deviation = Math.max(Math.sqrt(stream.variance), minDeviation);
+        double score = Math.abs(value - stream.mean) / deviation;
+        if (score > properties.getSpikeThreshold()) {
+            flag(stream, AnomalyKind.SPIKE, roomType, sensorType, value, stream.mean, time,
+                    String.format("%.1f standard deviations from the mean", score), anomalies);
+            return true;
+        }
+        return false;
+    }
+
+    // Exponentially weighted mean and variance, a lasting change becomes the new normal within a few dozen readings.
+    private void fold(Stream stream, double value) {
+        if (stream.count == 0) {
+            stream.mean = value;
+            return;
+        }
+
+        double alpha = properties.getAlpha();
+        double difference = value - stream.mean;
+        double increment = alpha * difference;
+        stream.mean += increment;
+        stream.variance = (1 - alpha) * (stream.variance + difference * increment);
+    }
+
+    // A spike is not folded in, only counted. Enough of them in a row on one side are the new normal.
+    private void shift(Stream stream, double value, long time) {
+        int side = value > stream.mean ? 1 : -1;
+        stream.spikes = Integer.signum(stream.spikes) == side ? stream.spikes + side : side;
+        if (Math.abs(stream.spikes) >= properties.getSpikeRun()) {
+            logger.info("Baseline moved from {} to {} after {} spikes in a row.", stream.mean, value, Math.abs(stream.spikes));
+            stream.mean = value;
+            stream.spikes = 0;
+            stream.steady = value;
+            stream.steadyMillis = time;
+        }
+    }
+
+    private void checkFlatline(Stream stream, AnomalyProperties.SensorLimits limits, String roomType, String sensorType, double value, long time, boolean statistical, List<SensorAnomaly> anomalies) {
+        if (stream.count == 0 || value != stream.last || (!statistical && value == 0)) {
+            if (stream.flatlined) {
+                logger.info("{} sensor of {} is changing again after {} identical readings.", sensorType, roomType, stream.repeats);
+            }
+            stream.repeats = 1;
+            stream.repeatingSinceMillis = time;
+            stream.flatlined = false;
+            return;
+        }
+
+        stream.repeats++;
+        long flatlineMillis = (limits != null && limits.getFlatlineDuration() != null ? limits.getFlatlineDuration() : properties.getFlatlineDuration()).toMillis();
+        long repeatingMillis = time - stream.repeatingSinceMillis;
+        if (!stream.flatlined && stream.repeats >= properties.getFlatlineSamples() && repeatingMillis >= flatlineMillis) {
+            stream.flatlined = true;
+            flag(stream, AnomalyKind.FLATLINE, roomType, sensorType, value, value, time,
+                    String.format("%d identical readings over %d minutes", stream.repeats, repeatingMillis / 60000), anomalies);
+        }
+    }
+
+    private void flag(Stream stream, AnomalyKind kind, String roomType, String sensorType, double value, double reference, long time, String detail, List<SensorAnomaly> anomalies) {
+        Counter counter = stream.flagged[kind.ordinal()];
+        if (counter == null) {
+            counter = Counter.builder("sensor.anomalies")
+                    .description("Readings flagged as anomalous")
+                    .tag("room", roomType)
+                    .tag("sensor", sensorType)
+                    .tag("kind", kind.name().toLowerCase())
+                    .register(meterRegistry);
+            stream.flagged[kind.ordinal()] = counter;
+        }
+        counter.increment();
+
+        long lastStored = stream.lastStoredMillis[kind.ordinal()];
+        if (lastStored != 0 && time - lastStored < properties.getRepeatInterval().toMillis()) {
+            return;
+        }
+        stream.lastStoredMillis[kind.ordinal()] = time;
+
+        SensorAnomaly anomaly = new SensorAnomaly();
+        anomaly.setRoomType(roomType);
+        anomaly.setSensorType(sensorType);
+        anomaly.setKind(kind);
+        anomaly.setDetectedAt(EpochMillisConverter.fromEpochMillis(time));
+        anomaly.setValue(value);
+        anomaly.setReference(reference);
+        anomaly.setDetail(detail);
+        anomalies.add(anomaly);
+
+        logger.warn("{} in {} {} sensor: {} against {} ({}).", kind, roomType, sensorType, value, reference, detail);
+    }
+
+    /*
+    ================================================
+    Queries
+    ================================================
+    */
+
+    public List<SensorAnomaly> getAnomalies(LocalDateTime since) {
+        return anomalyRepository.findTop500ByDetectedAtGreaterThanEqualOrderByDetectedAtDesc(since);
+    }
+
+    public List<SensorAnomaly> getRoomAnomalies(String roomType, LocalDateTime since) {
+        return anomalyRepository.findTop500ByRoomTypeAndDetectedAtGreaterThanEqualOrderByDetectedAtDesc(roomType, since);
+    }
+}
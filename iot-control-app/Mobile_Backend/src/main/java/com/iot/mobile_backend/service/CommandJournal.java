@@ -0,0 +1,239 @@
+package com.iot.mobile_backend.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishResult;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+Outbound commands that the broker has not acknowledged yet, kept in an append-only file so they survive
+broker outages and restarts. Every command is appended before it is published and acknowledged after the
+PUBACK; MqttService replays whatever is still pending, oldest first, once the client is connected again.
+
+Commands are keyed by topic ({room}/heater/command, {room}/temperature/target, ...), so a newer command for
+the same device supersedes the pending one. Each command expires after mqtt.journal.ttl, a setpoint from
+hours ago is dropped rather than applied. The file is rewritten with only the pending commands on startup,
+on every replay, and whenever enough acknowledged lines have piled up.
+*/
+@Component
+public class CommandJournal {
+
+    // One line of the journal: either a command or the acknowledgement of one.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record JournalLine(Long seq, String topic, String payload, Long expires, Long ack) {
+    }
+
+    public static class PendingCommand {
+        private final long seq;
+        private final String topic;
+        private final String payload;
+        private final long expiresAtMillis;
+        private final CompletableFuture<Mqtt5PublishResult> result = new CompletableFuture<>();
+
+        PendingCommand(long seq, String topic, String payload, long expiresAtMillis) {
+            this.seq = seq;
+            this.topic = topic;
+            this.payload = payload;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+
+        // Completes on the broker's acknowledgement, fails when the command is superseded, expires or is rejected.
+        public CompletableFuture<Mqtt5PublishResult> getResult() {
+            return result;
+        }
+    }
+
+    private final static int COMPACT_AFTER_LINES = 500;
+    private final static Logger logger = LoggerFactory.getLogger(CommandJournal.class);
+    private final static ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, PendingCommand> pendingByTopic = new LinkedHashMap<>();
+    private final Path path;
+    private final Duration ttl;
+    private BufferedWriter writer;
+    private long nextSeq = 1;
+    private int linesSinceCompaction = 0;
+
+    public CommandJournal(@Value("${mqtt.journal.path:command-journal.jsonl}") String path, @Value("${mqtt.journal.ttl:10m}") Duration ttl) {
+        this.path = Path.of(path);
+        this.ttl = ttl;
+    }
+
+    @PostConstruct
+    synchronized void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        Map<Long, PendingCommand> bySeq = new LinkedHashMap<>();
+        try {
+            for (String text : Files.readAllLines(path, UTF_8)) {
+                JournalLine line;
+                try {
+                    line = objectMapper.readValue(text, JournalLine.class);
+                }
+                catch (IOException e) {
+                    // A line cut short by a crash, everything before it is still valid.
+                    logger.warn("Skipping unreadable command journal line: {}", text);
+                    continue;
+                }
+
+                if (line.ack() != null) {
+                    bySeq.remove(line.ack());
+                }
+                else if (line.seq() != null && line.topic() != null && line.payload() != null && line.expires() != null) {
+                    bySeq.put(line.seq(), new PendingCommand(line.seq(), line.topic(), line.payload(), line.expires()));
+                }
+                nextSeq = Math.max(nextSeq, (line.seq() != null ? line.seq() : 0) + 1);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not read the command journal " + path, e);
+        }
+
+        // Replay the lines in order, so only the newest command per topic is kept.
+        bySeq.values().forEach(command -> pendingByTopic.put(command.topic, command));
+        dropExpired();
+        compact();
+        logger.info("Loaded {} pending commands from the command journal.", pendingByTopic.size());
+    }
+
+    // Records a command before it is published. Supersedes the pending command for the same topic.
+    public synchronized PendingCommand append(String topic, String payload) {
+        PendingCommand command = new PendingCommand(nextSeq++, topic, payload, System.currentTimeMillis() + ttl.toMillis());
+        write(new JournalLine(command.seq, topic, payload, command.expiresAtMillis, null));
+
+        PendingCommand superseded = pendingByTopic.remove(topic);
+        pendingByTopic.put(topic, command);
+        if (superseded != null) {
+            logger.info("Command on {} superseded before the broker acknowledged it.", topic);
+            superseded.result.completeExceptionally(new IllegalStateException("Superseded by a newer command on " + topic));
+        }
+        return command;
+    }
+
+    // The broker acknowledged the command, it is never replayed again.
+    public synchronized void acknowledge(PendingCommand command, Mqtt5PublishResult result) {
+        remove(command);
+        command.result.complete(result);
+    }
+
+    // The broker refused the command, retrying would only be refused again.
+    public synchronized void reject(PendingCommand command, Throwable error) {
+        remove(command);
+        command.result.completeExceptionally(error);
+    }
+
+    // Pending commands still within their TTL, oldest first. The file is compacted down to exactly these.
+    public synchronized List<PendingCommand> drainForReplay() {
+        dropExpired();
+        compact();
+
+        List<PendingCommand> replay = new ArrayList<>(pendingByTopic.values());
+        replay.sort(Comparator.comparingLong(command -> command.seq));
+        return replay;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingByTopic.size();
+    }
+
+    private void remove(PendingCommand command) {
+        // A superseded command may still be acknowledged, it must not take its successor with it.
+        if (pendingByTopic.get(command.topic) != command) {
+            return;
+        }
+
+        pendingByTopic.remove(command.topic);
+        write(new JournalLine(null, null, null, null, command.seq));
+        if (linesSinceCompaction >= COMPACT_AFTER_LINES) {
+            compact();
+        }
+    }
+
+    private void dropExpired() {
+        long nowMillis = System.currentTimeMillis();
+        Iterator<PendingCommand> iterator = pendingByTopic.values().iterator();
+        while (iterator.hasNext()) {
+            PendingCommand command = iterator.next();
+            if (command.expiresAtMillis <= nowMillis) {
+                iterator.remove();
+                logger.warn("Dropping expired command on {}: {}.", command.topic, command.payload);
+                command.result.completeExceptionally(new IllegalStateException("Command on " + command.topic + " expired before the broker was reachable"));
+            }
+        }
+    }
+
+    private void write(JournalLine line) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(objectMapper.writeValueAsString(line));
+            writer.newLine();
+            writer.flush();
+            linesSinceCompaction++;
+        }
+        catch (IOException e) {
+            // The command still goes out while connected, it just would not survive a restart.
+            logger.error("Could not write to the command journal {}.", path, e);
+        }
+    }
+
+    // Rewrites the journal with only the pending commands, through a temp file so a crash never loses it.
+    private void compact() {
+        if (writer == null && !Files.exists(path)) {
+            return;
+        }
+
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+
+            Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(compacted, UTF_8)) {
+                for (PendingCommand command : pendingByTopic.values()) {
+                    out.write(objectMapper.writeValueAsString(new JournalLine(command.seq, command.topic, command.payload, command.expiresAtMillis, null)));
+                    out.newLine();
+                }
+            }
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            linesSinceCompaction = 0;
+        }
+        catch (IOException e) {
+            logger.error("Could not compact the command journal {}.", path, e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.iot.mobile_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Drops QoS 1 redeliveries (after a reconnect or a broker retry) before they reach the database.
+Remembers the key of every reading seen within mqtt.dedup.window, bounded to mqtt.dedup.max-entries,
+so a check is one map lookup. Anything older than the window is caught by the unique key on each
+reading table instead, see SchemaMigration.
+*/
+@Component
+public class DuplicateFilter {
+
+    // A reading is identified by its sensor type, room and device timestamp.
+    private record ReadingKey(String sensorType, String roomType, long recordingMillis) {
+    }
+
+    // Insertion ordered, so the eldest entries are the first to fall out of the window.
+    private final LinkedHashMap<ReadingKey, Long> seenAtMillis = new LinkedHashMap<>();
+    private final Duration window;
+    private final int maxEntries;
+    private final Counter duplicates;
+
+    @Autowired
+    public DuplicateFilter(@Value("${mqtt.dedup.window:10m}") Duration window, @Value("${mqtt.dedup.max-entries:100000}") int maxEntries, MeterRegistry meterRegistry) {
+        this.window = window;
+        this.maxEntries = maxEntries;
+        this.duplicates = Counter.builder("mqtt.ingest.duplicates")
+                .description("Redelivered readings dropped before reaching the database")
+                .register(meterRegistry);
+    }
+
+    // True the first time a reading is seen. A reading that then fails to store must be released, or its redelivery would be dropped.
+    public synchronized boolean firstSighting(String sensorType, String roomType, long recordingMillis) {
+        long nowMillis = System.currentTimeMillis();
+        evict(nowMillis);
+
+        if (seenAtMillis.putIfAbsent(new ReadingKey(sensorType, roomType, recordingMillis), nowMillis) != null) {
+            duplicates.increment();
+            return false;
+        }
+
+        // Full, the eldest makes room. Only after the lookup, so the reading being checked is never the one evicted.
+        if (seenAtMillis.size() > maxEntries) {
+            Iterator<ReadingKey> eldest = seenAtMillis.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        return true;
+    }
+
+    public synchronized void release(String sensorType, String roomType, long recordingMillis) {
+        seenAtMillis.remove(new ReadingKey(sensorType, roomType, recordingMillis));
+    }
+
+    // Counts a duplicate the unique key caught after it fell out of the window.
+    public void countStoredDuplicate() {
+        duplicates.increment();
+    }
+
+    private void evict(long nowMillis) {
+        long cutoff = nowMillis - window.toMillis();
+        Iterator<Map.Entry<ReadingKey, Long>> iterator = seenAtMillis.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ReadingKey, Long> eldest = iterator.next();
+            if (eldest.getValue() > cutoff) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.dto.DeviceRuntimeDTO;
+import com.iot.mobile_backend.dto.RuntimeBucketDTO;
+import com.iot.mobile_backend.event.DeviceStatusRecordedEvent;
+import com.iot.mobile_backend.model.DeviceRuntime;
+import com.iot.mobile_backend.repository.DeviceRuntimeRepository;
+import com.iot.mobile_backend.repository.FanRepository;
+import com.iot.mobile_backend.repository.HeaterRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Heater and fan runtime accounting. Each device keeps its current state and since-when in memory,
+and only a state transition touches the hourly device_runtime buckets: the finished on-period is
+spread over the hours it covered and the switch is counted in the hour it happened. Repeated
+status messages with the same state cost nothing.
+*/
+@Service
+public class DutyCycleService {
+
+    private final DeviceRuntimeRepository runtimeRepository;
+    private final HeaterRepository heaterRepo;
+    private final FanRepository fanRepo;
+    private final SingleFlight singleFlight;
+    private final RoomRegistry roomRegistry;
+    private final Map<Long, TrackedDevice> devices = new ConcurrentHashMap<>();
+    private final static Logger logger = LoggerFactory.getLogger(DutyCycleService.class);
+
+    private record DeviceState(boolean on, LocalDateTime since) {
+    }
+
+    // Locked while a status of the device is applied and its buckets are written, so other devices never wait on that IO.
+    private static class TrackedDevice {
+        private volatile DeviceState state;  // Replaced whole, readers take it without the lock
+    }
+
+    @Autowired
+    public DutyCycleService(DeviceRuntimeRepository runtimeRepository, HeaterRepository heaterRepo, FanRepository fanRepo, SingleFlight singleFlight, RoomRegistry roomRegistry) {
+        this.runtimeRepository = runtimeRepository;
+        this.heaterRepo = heaterRepo;
+        this.fanRepo = fanRepo;
+        this.singleFlight = singleFlight;
+        this.roomRegistry = roomRegistry;
+    }
+
+    // Pick up where we left off from the latest stored status of every device.
+    @PostConstruct
+    private void seedDeviceStates() {
+        heaterRepo.getAllRoomHeaterStatuses().forEach(heater ->
+                trackedDevice(roomRegistry.register(heater.getRoomType()), "heater").state = new DeviceState(heater.getHeaterStatus(), heater.getRecordingTime()));
+        fanRepo.getAllRoomFanStatuses().forEach(fan ->
+                trackedDevice(roomRegistry.register(fan.getRoomType()), "fan").state = new DeviceState(fan.getFanStatus(), fan.getRecordingTime()));
+
+        logger.info("Seeded runtime accounting with {} devices.", devices.size());
+    }
+
+    /*
+    ================================================
+    Incremental Accounting
+    ================================================
+    */
+
+    @EventListener
+    public void onDeviceStatusRecorded(DeviceStatusRecordedEvent event) {
+        TrackedDevice device = trackedDevice(event.roomId(), event.device());
+        synchronized (device) {
+            DeviceState state = device.state;
+            LocalDateTime time = event.recordingTime();
+
+            if (state == null) {
+                device.state = new DeviceState(event.on(), time);
+                return;
+            }
+            // Same state again, or a late message older than what we already accounted for.
+            if (state.on() == event.on() || time.isBefore(state.since())) {
+                return;
+            }
+
+            if (state.on()) {
+                addRuntime(event.roomType(), event.device(), state.since(), time);
+            }
+            addSwitch(event.roomType(), event.device(), time);
+            device.state = new DeviceState(event.on(), time);
+        }
+    }
+
+    private TrackedDevice trackedDevice(int roomId, String device) {
+        return devices.computeIfAbsent(key(roomId, device), key -> new TrackedDevice());
+    }
+
+    private void addRuntime(String roomType, String device, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime bucketStart = from.truncatedTo(ChronoUnit.HOURS);
+
+        while (bucketStart.isBefore(to)) {
+            LocalDateTime bucketEnd = bucketStart.plusHours(1);
+            LocalDateTime start = from.isAfter(bucketStart) ? from : bucketStart;
+            LocalDateTime end = to.isBefore(bucketEnd) ? to : bucketEnd;
+
+            DeviceRuntime bucket = findOrCreateBucket(roomType, device, bucketStart);
+            bucket.setOnMillis(bucket.getOnMillis() + Duration.between(start, end).toMillis());
+            runtimeRepository.save(bucket);
+
+            bucketStart = bucketEnd;
+        }
+    }
+
+    private void addSwitch(String roomType, String device, LocalDateTime time) {
+        DeviceRuntime bucket = findOrCreateBucket(roomType, device, time.truncatedTo(ChronoUnit.HOURS));
+        bucket.setSwitchCount(bucket.getSwitchCount() + 1);
+        runtimeRepository.save(bucket);
+    }
+
+    private DeviceRuntime findOrCreateBucket(String roomType, String device, LocalDateTime bucketStart) {
+        return runtimeRepository.findByRoomTypeAndDeviceAndBucketStart(roomType, device, bucketStart)
+                .orElseGet(() -> {
+                    DeviceRuntime bucket = new DeviceRuntime();
+                    bucket.setRoomType(roomType);
+                    bucket.setDevice(device);
+                    bucket.setBucketStart(bucketStart);
+                    bucket.setOnMillis(0L);
+                    bucket.setSwitchCount(0);
+                    return bucket;
+                });
+    }
+
+    /*
+    ================================================
+    Runtime Queries
+    ================================================
+    */
+
+    public DeviceRuntimeDTO getDailyRuntime(String roomType, String device, LocalDate date) {
+        logger.info("Fetching {} runtime for room {} on {}...", device, roomType, date);
+
+        LocalDateTime dayStart = date.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<LocalDateTime, DeviceRuntime> stored = new HashMap<>();
+        singleFlight.execute("runtime.daily", roomType + "/" + device + "/" + date,
+                        () -> runtimeRepository.findByRoomTypeAndDeviceAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(roomType, device, dayStart, dayEnd))
+                .forEach(bucket -> stored.put(bucket.getBucketStart(), bucket));
+
+        // The on-period still running is not in the table yet, add it on the fly.
+        Integer roomId = roomRegistry.findId(roomType);
+        TrackedDevice tracked = roomId != null ? devices.get(key(roomId, device)) : null;
+        DeviceState live = tracked != null ? tracked.state : null;
+        LocalDateTime liveSince = live != null && live.on() ? live.since() : null;
+
+        List<RuntimeBucketDTO> hours = new ArrayList<>(24);
+        long totalMillis = 0;
+        int totalSwitches = 0;
+
+        for (LocalDateTime hour = dayStart; hour.isBefore(dayEnd); hour = hour.plusHours(1)) {
+            LocalDateTime hourEnd = hour.plusHours(1);
+            DeviceRuntime bucket = stored.get(hour);
+
+            long onMillis = bucket != null ? bucket.getOnMillis() : 0;
+            int switches = bucket != null ? bucket.getSwitchCount() : 0;
+            if (liveSince != null) {
+                onMillis += overlapMillis(liveSince, now, hour, hourEnd);
+            }
+
+            hours.add(toBucket(hour, hourEnd, onMillis, switches, now));
+            totalMillis += onMillis;
+            totalSwitches += switches;
+        }
+
+        return new DeviceRuntimeDTO(roomType, device, date, toBucket(dayStart, dayEnd, totalMillis, totalSwitches, now), hours);
+    }
+
+    private static RuntimeBucketDTO toBucket(LocalDateTime from, LocalDateTime to, long onMillis, int switches, LocalDateTime now) {
+        // Duty cycle of the current hour/day is relative to the time elapsed so far.
+        long elapsedMillis = Duration.between(from, to.isAfter(now) ? now : to).toMillis();
+        double dutyPercent = elapsedMillis > 0 ? Math.min(100.0, onMillis * 100.0 / elapsedMillis) : 0;
+        return new RuntimeBucketDTO(from, to, onMillis / 1000, switches, dutyPercent);
+    }
+
+    private static long overlapMillis(LocalDateTime start, LocalDateTime end, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        LocalDateTime from = start.isAfter(windowStart) ? start : windowStart;
+        LocalDateTime to = end.isBefore(windowEnd) ? end : windowEnd;
+        return from.isBefore(to) ? Duration.between(from, to).toMillis() : 0;
+    }
+
+    // Room id in the high bits, device in the lowest bit.
+    private static long key(int roomId, String device) {
+        return ((long) roomId << 1) | (device.equals("heater") ? 0 : 1);
+    }
+}
@@ -0,0 +1,269 @@
+package com.iot.mobile_backend.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import com.iot.mobile_backend.sensor.ReadingTable;
+import com.iot.mobile_backend.sensor.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+Streams the stored readings of one sensor type as CSV or NDJSON. Rows come from a forward-only JDBC cursor and
+are written to the response as they are read: no entities, no lists, so memory use is the same for a thousand
+rows as for a hundred million. A client that disconnects fails the next write, which closes the cursor.
+
+Rows are ordered by room and time, the order of each table's unique key, so SQLite walks the index instead of
+sorting. The database runs in WAL mode (see SchemaMigration), so a long export never blocks ingest writes.
+With partitioned storage the partitions are read one after another, so rows come period by period, ordered
+by room and time within each (see PartitionStore).
+*/
+@Service
+public class ExportService {
+
+    public enum Format {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    private final static int FETCH_SIZE = 1000;
+    private final static DateTimeFormatter timestampFormatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private final static JsonFactory jsonFactory = new JsonFactory();
+
+    private final PartitionStore partitionStore;
+    private final RoomRegistry roomRegistry;
+    private final static Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    @Autowired
+    public ExportService(PartitionStore partitionStore, RoomRegistry roomRegistry) {
+        this.partitionStore = partitionStore;
+        this.roomRegistry = roomRegistry;
+    }
+
+    /*
+    Writes every reading of the type between from (inclusive) and to (exclusive), any bound may be null.
+    roomId limits the export to one room. Returns the number of rows written.
+    */
+    public long export(SensorType type, Integer roomId, LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        ReadingTable table = ReadingTable.of(type);
+
+        Long fromMillis = from != null ? EpochMillisConverter.toEpochMillis(from) : null;
+        Long toMillis = to != null ? EpochMillisConverter.toEpochMillis(to) : null;
+
+        // Room names come from the registry, archived partitions have no room table to join.
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT room_id, ").append(table.timeColumn());
+        table.values().forEach(value -> sql.append(", ").append(value.column()));
+        sql.append(" FROM ").append(table.table()).append(" WHERE 1 = 1");
+        if (table.generic()) {
+            sql.append(" AND sensor_type = ?");
+            parameters.add(type.name());
+        }
+        if (roomId != null) {
+            sql.append(" AND room_id = ?");
+            parameters.add(roomId);
+        }
+        if (fromMillis != null) {
+            sql.append(" AND ").append(table.timeColumn()).append(" >= ?");
+            parameters.add(fromMillis);
+        }
+        if (toMillis != null) {
+            sql.append(" AND ").append(table.timeColumn()).append(" < ?");
+            parameters.add(toMillis);
+        }
+        sql.append(" ORDER BY room_id, ").append(table.timeColumn());
+
+        PreparedStatementCreator statement = connection -> {
+            PreparedStatement prepared = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            prepared.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < parameters.size(); i++) {
+                prepared.setObject(i + 1, parameters.get(i));
+            }
+            return prepared;
+        };
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), 64 * 1024);
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer, table, roomRegistry) : new NdjsonRowWriter(writer, table, roomRegistry);
+        rowWriter.writeHeader();
+
+        try {
+            for (JdbcTemplate partition : partitionStore.partitionsFor(fromMillis, toMillis)) {
+                partition.query(statement, rowWriter);
+            }
+        }
+        catch (UncheckedIOException e) {
+            // Usually the client went away, the cursor is closed by now.
+            logger.info("Export of {} readings stopped after {} rows: {}", type.name(), rowWriter.rows, e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        rowWriter.finish();
+        logger.info("Exported {} {} readings as {}.", rowWriter.rows, type.name(), format);
+        return rowWriter.rows;
+    }
+
+    /*
+    ================================================
+    Row Writers
+    ================================================
+    */
+
+    private abstract static class RowWriter implements RowCallbackHandler {
+        protected final Writer writer;
+        protected final ReadingTable table;
+        private final RoomRegistry roomRegistry;
+        private long rows = 0;
+
+        private RowWriter(Writer writer, ReadingTable table, RoomRegistry roomRegistry) {
+            this.writer = writer;
+            this.table = table;
+            this.roomRegistry = roomRegistry;
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            String time = EpochMillisConverter.fromEpochMillis(resultSet.getLong(2)).format(timestampFormatter);
+            try {
+                writeRow(resultSet, roomRegistry.nameOf(resultSet.getInt(1)), time);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+
+        protected abstract void writeHeader() throws IOException;
+
+        protected abstract void writeRow(ResultSet resultSet, String room, String time) throws SQLException, IOException;
+
+        protected void finish() throws IOException {
+            writer.flush();
+        }
+
+        // Value of the i-th value column: a Double, a Boolean or null.
+        protected Object value(ResultSet resultSet, int i) throws SQLException {
+            ReadingTable.ValueColumn column = table.values().get(i);
+            if (column.bool()) {
+                boolean value = resultSet.getBoolean(i + 3);
+                return resultSet.wasNull() ? null : value;
+            }
+            double value = resultSet.getDouble(i + 3);
+            return resultSet.wasNull() ? null : value;
+        }
+    }
+
+    // room,time,<values>; empty fields for null values.
+    private static class CsvRowWriter extends RowWriter {
+
+        private CsvRowWriter(Writer writer, ReadingTable table, RoomRegistry roomRegistry) {
+            super(writer, table, roomRegistry);
+        }
+
+        @Override
+        protected void writeHeader() throws IOException {
+            writer.write("room,time");
+            for (ReadingTable.ValueColumn column : table.values()) {
+                writer.write(',');
+                writer.write(column.name());
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        protected void writeRow(ResultSet resultSet, String room, String time) throws SQLException, IOException {
+            writer.write(quote(room));
+            writer.write(',');
+            writer.write(time);
+            for (int i = 0; i < table.values().size(); i++) {
+                writer.write(',');
+                Object value = value(resultSet, i);
+                if (value != null) {
+                    writer.write(value.toString());
+                }
+            }
+            writer.write('\n');
+        }
+
+        private static String quote(String field) {
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+                return field;
+            }
+            return '"' + field.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    // One JSON object per line, {"room":"roomA","time":"2025-11-24T19:36:55","temperature":74.1}
+    private static class NdjsonRowWriter extends RowWriter {
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(Writer writer, ReadingTable table, RoomRegistry roomRegistry) throws IOException {
+            super(writer, table, roomRegistry);
+            this.generator = jsonFactory.createGenerator(writer);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);  // Rows are separated by the newline written after each one
+        }
+
+        @Override
+        protected void writeHeader() {
+        }
+
+        @Override
+        protected void writeRow(ResultSet resultSet, String room, String time) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField("room", room);
+            generator.writeStringField("time", time);
+            for (int i = 0; i < table.values().size(); i++) {
+                generator.writeFieldName(table.values().get(i).name());
+                Object value = value(resultSet, i);
+                if (value == null) {
+                    generator.writeNull();
+                }
+                else if (value instanceof Boolean bool) {
+                    generator.writeBoolean(bool);
+                }
+                else {
+                    generator.writeNumber((Double) value);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            generator.flush();
+            super.finish();
+        }
+    }
+}
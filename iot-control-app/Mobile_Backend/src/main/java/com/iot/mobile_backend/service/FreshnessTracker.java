@@ -0,0 +1,210 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.dto.FreshnessDTO;
+import com.iot.mobile_backend.dto.LagDTO;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+How fresh each room's sensor data is, per room and sensor type:
+- device lag: device timestamp to arrival at the backend (network, broker, device clock)
+- commit lag: arrival to the committed database write (our own pipeline)
+- last-seen age: how long ago the sensor was last heard from
+A stale sensor shows a growing last-seen age with normal lags, a slow pipeline shows a growing commit lag.
+
+Device timestamps have no zone and second resolution, so they are compared with the local wall clock the same
+way they are stored (see EpochMillisConverter). The smallest device lag among the last few readings estimates
+the device's clock offset: a reading can arrive late but never before it was taken, so the fastest one is the
+closest to the offset. A device whose offset leaves ingest.freshness.skew-threshold is flagged as skewed.
+*/
+@Service
+public class FreshnessTracker {
+
+    private final static int OFFSET_SAMPLES = 32;
+    private final static double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private record StreamKey(String roomType, String sensorType) {
+    }
+
+    private class Stream {
+        private final StreamKey key;
+        private final Timer deviceLag;
+        private final Timer commitLag;
+        private final long[] recentDeviceLags = new long[OFFSET_SAMPLES];
+        private int sampleCount = 0;
+        private volatile long lastSeenMillis;
+        private volatile LocalDateTime lastDeviceTime;
+        private volatile long clockOffsetMillis;
+        private volatile boolean clockSkewed;
+
+        private Stream(StreamKey key) {
+            this.key = key;
+            this.deviceLag = Timer.builder("ingest.lag.device")
+                    .description("Device timestamp to arrival at the backend")
+                    .tags("room", key.roomType(), "sensor", key.sensorType())
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry);
+            this.commitLag = Timer.builder("ingest.lag.commit")
+                    .description("Arrival at the backend to the committed database write")
+                    .tags("room", key.roomType(), "sensor", key.sensorType())
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry);
+            Gauge.builder("ingest.last.seen.age", this, stream -> stream.lastSeenAgeMillis(System.currentTimeMillis()) / 1000.0)
+                    .description("Seconds since the sensor was last heard from")
+                    .tags("room", key.roomType(), "sensor", key.sensorType())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            Gauge.builder("ingest.clock.offset", this, stream -> stream.clockOffsetMillis / 1000.0)
+                    .description("Estimated device clock offset, positive when the device is behind")
+                    .tags("room", key.roomType(), "sensor", key.sensorType())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+
+        private long lastSeenAgeMillis(long nowMillis) {
+            return nowMillis - lastSeenMillis;
+        }
+
+        // Returns true when the skew flag changed.
+        private synchronized boolean addDeviceLag(long lagMillis) {
+            recentDeviceLags[sampleCount++ % OFFSET_SAMPLES] = lagMillis;
+
+            long offset = Long.MAX_VALUE;
+            for (int i = 0; i < Math.min(sampleCount, OFFSET_SAMPLES); i++) {
+                offset = Math.min(offset, recentDeviceLags[i]);
+            }
+            clockOffsetMillis = offset;
+
+            boolean skewed = Math.abs(offset) > skewThreshold.toMillis();
+            if (skewed == clockSkewed) {
+                return false;
+            }
+            clockSkewed = skewed;
+            return true;
+        }
+    }
+
+    private final Map<StreamKey, Stream> streams = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration staleAfter;
+    private final Duration skewThreshold;
+    private final static Logger logger = LoggerFactory.getLogger(FreshnessTracker.class);
+
+    @Autowired
+    public FreshnessTracker(MeterRegistry meterRegistry,
+                            @Value("${ingest.freshness.stale-after:30s}") Duration staleAfter,
+                            @Value("${ingest.freshness.skew-threshold:5s}") Duration skewThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.staleAfter = staleAfter;
+        this.skewThreshold = skewThreshold;
+
+        Gauge.builder("ingest.streams.stale", this, tracker -> tracker.countStale(System.currentTimeMillis()))
+                .description("Sensors not heard from within ingest.freshness.stale-after")
+                .register(meterRegistry);
+    }
+
+    /*
+    ================================================
+    Ingest Hooks
+    ================================================
+    */
+
+    // A new reading arrived. recordingMillis is the device timestamp as stored, null when the reading has none.
+    public void received(String sensorType, String roomType, Long recordingMillis) {
+        Stream stream = streamFor(roomType, sensorType);
+        stream.lastSeenMillis = System.currentTimeMillis();
+        if (recordingMillis == null) {
+            return;
+        }
+
+        long lagMillis = EpochMillisConverter.toEpochMillis(LocalDateTime.now()) - recordingMillis;
+        stream.lastDeviceTime = EpochMillisConverter.fromEpochMillis(recordingMillis);
+        if (lagMillis >= 0) {
+            stream.deviceLag.record(lagMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (stream.addDeviceLag(lagMillis)) {
+            if (stream.clockSkewed) {
+                logger.warn("Clock of the {} sensor in {} is off by about {} ms, its readings are stored at the device's time.",
+                        sensorType, roomType, stream.clockOffsetMillis);
+            }
+            else {
+                logger.info("Clock of the {} sensor in {} is back within {} ms.", sensorType, roomType, skewThreshold.toMillis());
+            }
+        }
+    }
+
+    // The reading has been committed. receivedAtNanos is System.nanoTime() at message arrival.
+    public void committed(String sensorType, String roomType, long receivedAtNanos) {
+        streamFor(roomType, sensorType).commitLag.record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Stream streamFor(String roomType, String sensorType) {
+        return streams.computeIfAbsent(new StreamKey(roomType, sensorType), Stream::new);
+    }
+
+    /*
+    ================================================
+    Queries
+    ================================================
+    */
+
+    public List<FreshnessDTO> getAll() {
+        long nowMillis = System.currentTimeMillis();
+        return streams.values().stream()
+                .sorted(Comparator.comparing((Stream stream) -> stream.key.roomType()).thenComparing(stream -> stream.key.sensorType()))
+                .map(stream -> toDTO(stream, nowMillis))
+                .toList();
+    }
+
+    public List<FreshnessDTO> getRoom(String roomType) {
+        return getAll().stream()
+                .filter(freshness -> freshness.getRoomType().equals(roomType))
+                .toList();
+    }
+
+    private long countStale(long nowMillis) {
+        return streams.values().stream()
+                .filter(stream -> stream.lastSeenAgeMillis(nowMillis) > staleAfter.toMillis())
+                .count();
+    }
+
+    private FreshnessDTO toDTO(Stream stream, long nowMillis) {
+        long ageMillis = stream.lastSeenAgeMillis(nowMillis);
+        return new FreshnessDTO(stream.key.roomType(), stream.key.sensorType(), stream.lastDeviceTime,
+                ageMillis / 1000, ageMillis > staleAfter.toMillis(),
+                toLag(stream.deviceLag), toLag(stream.commitLag),
+                stream.clockOffsetMillis, stream.clockSkewed);
+    }
+
+    // Percentiles over the timer's recent window (a few minutes), not since startup.
+    private static LagDTO toLag(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double[] millis = new double[PERCENTILES.length];
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (value.percentile() == PERCENTILES[i]) {
+                    millis[i] = value.value(TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        return new LagDTO(snapshot.count(), millis[0], millis[1], millis[2], snapshot.max(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,99 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.event.SensorReadingRecordedEvent;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import com.iot.mobile_backend.model.SensorReading;
+import com.iot.mobile_backend.repository.SensorReadingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Storage and queries for sensor types defined in configuration (see SensorProperties).
+@Service
+public class GenericSensorService {
+
+    private final SensorReadingRepository sensorReadingRepository;
+    private final RecordedEvents recordedEvents;
+    private final SingleFlight singleFlight;
+    private final RoomRegistry roomRegistry;
+    private final PartitionStore partitionStore;
+    private final static Logger logger = LoggerFactory.getLogger(GenericSensorService.class);
+
+    @Autowired
+    public GenericSensorService(SensorReadingRepository sensorReadingRepository, RecordedEvents recordedEvents, SingleFlight singleFlight, RoomRegistry roomRegistry, PartitionStore partitionStore) {
+        this.sensorReadingRepository = sensorReadingRepository;
+        this.recordedEvents = recordedEvents;
+        this.singleFlight = singleFlight;
+        this.roomRegistry = roomRegistry;
+        this.partitionStore = partitionStore;
+    }
+
+    public SensorReading getCurrentReading(String sensorType, String roomType) {
+        logger.info("Getting current {} reading for room type: {}...", sensorType, roomType);
+
+        return singleFlight.execute("sensor.current", sensorType + "/" + roomType, () -> sensorReadingRepository.findFirstBySensorTypeAndRoomTypeOrderByRecordingTimeDesc(sensorType, roomType))
+                .orElseThrow(() -> new RuntimeException("No " + sensorType + " data found for room: " + roomType));
+    }
+
+    public List<SensorReading> getAllRoomReadings(String sensorType) {
+        logger.info("Fetching all room {} readings from the database...", sensorType);
+
+        return singleFlight.execute("sensor.all", sensorType, () -> sensorReadingRepository.getAllRoomReadings(sensorType));
+    }
+
+    public List<SensorReading> getDailyReadings(String sensorType, String roomType, LocalDate date) {
+        LocalDateTime from = date.atStartOfDay();
+        long fromMillis = EpochMillisConverter.toEpochMillis(from);
+        if (partitionStore.isHot(fromMillis)) {
+            return sensorReadingRepository.findInRange(sensorType, roomType, from, from.plusDays(1));
+        }
+
+        // Archived day, read from its partition file.
+        Integer roomId = roomRegistry.findId(roomType);
+        List<SensorReading> readings = new ArrayList<>();
+        if (roomId == null) {
+            return readings;
+        }
+        long toMillis = EpochMillisConverter.toEpochMillis(from.plusDays(1));
+        for (JdbcTemplate partition : partitionStore.partitionsFor(fromMillis, toMillis)) {
+            readings.addAll(partition.query("SELECT id, numeric_value, boolean_value, recording_time FROM sensor_reading "
+                    + "WHERE sensor_type = ? AND room_id = ? AND recording_time >= ? AND recording_time < ? ORDER BY recording_time", (resultSet, row) -> {
+                SensorReading reading = new SensorReading();
+                reading.setId(resultSet.getLong(1));
+                reading.setSensorType(sensorType);
+                reading.setRoomType(roomType);
+                reading.setNumericValue(resultSet.getObject(2) != null ? resultSet.getDouble(2) : null);
+                reading.setBooleanValue(resultSet.getObject(3) != null ? resultSet.getBoolean(3) : null);
+                reading.setRecordingTime(EpochMillisConverter.fromEpochMillis(resultSet.getLong(4)));
+                return reading;
+            }, sensorType, roomId, fromMillis, toMillis));
+        }
+        return readings;
+    }
+
+    public void recordReading(SensorReadingDTO readingDTO, long receivedAtNanos) {
+        logger.debug("Recording new {} reading for room: {}...", readingDTO.getSensorType(), readingDTO.getRoomType());
+
+        SensorReading newReading = new SensorReading();
+        newReading.setSensorType(readingDTO.getSensorType());
+        newReading.setRoomType(readingDTO.getRoomType());
+        newReading.setNumericValue(readingDTO.getNumericValue());
+        newReading.setBooleanValue(readingDTO.getBooleanValue());
+        newReading.setRecordingTime(TimestampParser.parseOrNow(readingDTO.getRecordingTime()));
+
+        // Register the room before the write, the converter only stores ids it already knows.
+        int roomId = roomRegistry.register(readingDTO.getRoomType());
+        sensorReadingRepository.save(newReading);
+        logger.debug("{} reading has been added to database.", readingDTO.getSensorType());
+
+        recordedEvents.publish(new SensorReadingRecordedEvent(roomId, newReading.getRoomType(), newReading.getSensorType(), newReading.getNumericValue(), newReading.getBooleanValue(), newReading.getRecordingTime(), receivedAtNanos));
+    }
+}
@@ -0,0 +1,132 @@
+package com.iot.mobile_backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Logging of the ingest hot path. By default every message is logged as it arrives, which is what you want while
+developing. With ingest.logging.summary=true (the ingest profile) message lines are rate limited per topic, at most
+one payload or error per ingest.logging.topic-interval with a count of what was skipped, and counts are logged as
+one summary line per room every ingest.logging.summary-interval instead.
+Summaries are written by whichever message arrives after the interval, a quiet backend logs nothing.
+*/
+@Component
+public class IngestLog {
+
+    private static class RoomCounts {
+        private final Map<String, LongAdder> stored = new ConcurrentHashMap<>();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    private static class TopicSampler {
+        private final AtomicLong nextLogMillis = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+
+        // True for the first message of each interval; counts the others.
+        private boolean sample(long nowMillis, long intervalMillis) {
+            long next = nextLogMillis.get();
+            if (nowMillis >= next && nextLogMillis.compareAndSet(next, nowMillis + intervalMillis)) {
+                return true;
+            }
+            skipped.incrementAndGet();
+            return false;
+        }
+    }
+
+    private final boolean summaryMode;
+    private final long summaryIntervalMillis;
+    private final long topicIntervalMillis;
+    private final Map<String, RoomCounts> countsByRoom = new ConcurrentHashMap<>();
+    private final Map<String, TopicSampler> payloadSamplers = new ConcurrentHashMap<>();
+    private final Map<String, TopicSampler> errorSamplers = new ConcurrentHashMap<>();
+    private final AtomicLong nextSummaryMillis;
+    private final static Logger logger = LoggerFactory.getLogger(IngestLog.class);
+
+    public IngestLog(@Value("${ingest.logging.summary:false}") boolean summaryMode,
+                     @Value("${ingest.logging.summary-interval:60s}") Duration summaryInterval,
+                     @Value("${ingest.logging.topic-interval:10s}") Duration topicInterval) {
+        this.summaryMode = summaryMode;
+        this.summaryIntervalMillis = summaryInterval.toMillis();
+        this.topicIntervalMillis = topicInterval.toMillis();
+        this.nextSummaryMillis = new AtomicLong(System.currentTimeMillis() + summaryIntervalMillis);
+    }
+
+    public void received(String sensorType, String topic, String payload) {
+        if (!summaryMode) {
+            logger.info("Received {} reading: {}.", sensorType, payload);
+            return;
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        TopicSampler sampler = payloadSamplers.computeIfAbsent(topic, ignored -> new TopicSampler());
+        if (sampler.sample(nowMillis, topicIntervalMillis)) {
+            logger.info("Received {} reading on {}: {} ({} more since the last sample).", sensorType, topic, payload, sampler.skipped.getAndSet(0));
+        }
+        summarizeIfDue(nowMillis);
+    }
+
+    public void stored(String sensorType, String roomType) {
+        if (!summaryMode) {
+            logger.info("Added {} reading for the room, {}.", sensorType, roomType);
+            return;
+        }
+        countsFor(roomType).stored.computeIfAbsent(sensorType, ignored -> new LongAdder()).increment();
+    }
+
+    public void duplicate(String sensorType, String roomType) {
+        if (!summaryMode) {
+            logger.info("Dropped duplicate {} reading for the room, {}.", sensorType, roomType);
+            return;
+        }
+        countsFor(roomType).duplicates.increment();
+    }
+
+    public void failed(String sensorType, String topic, String roomType, Exception e) {
+        if (!summaryMode) {
+            logger.error("Error occurred while handling {} message.", sensorType);
+            logger.error("Nothing has been done with the message.", e);
+            return;
+        }
+
+        countsFor(roomType).errors.increment();
+        TopicSampler sampler = errorSamplers.computeIfAbsent(topic, ignored -> new TopicSampler());
+        if (sampler.sample(System.currentTimeMillis(), topicIntervalMillis)) {
+            logger.error("Error occurred while handling {} message on {} ({} more since the last sample), nothing has been done with it.",
+                    sensorType, topic, sampler.skipped.getAndSet(0), e);
+        }
+    }
+
+    private RoomCounts countsFor(String roomType) {
+        return countsByRoom.computeIfAbsent(roomType, ignored -> new RoomCounts());
+    }
+
+    private void summarizeIfDue(long nowMillis) {
+        long due = nextSummaryMillis.get();
+        if (nowMillis < due || !nextSummaryMillis.compareAndSet(due, nowMillis + summaryIntervalMillis)) {
+            return;
+        }
+
+        for (Map.Entry<String, RoomCounts> entry : new TreeMap<>(countsByRoom).entrySet()) {
+            RoomCounts counts = entry.getValue();
+            Map<String, Long> stored = new TreeMap<>();
+            counts.stored.forEach((sensorType, count) -> stored.put(sensorType, count.sumThenReset()));
+            long duplicates = counts.duplicates.sumThenReset();
+            long errors = counts.errors.sumThenReset();
+            if (duplicates == 0 && errors == 0 && stored.values().stream().allMatch(count -> count == 0)) {
+                continue;
+            }
+
+            logger.info("Ingest summary for {} since the last summary: stored {}, {} duplicates, {} errors.", entry.getKey(), stored, duplicates, errors);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.iot.mobile_backend.service;
+
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.sensor.SensorType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/*
+Stores validated readings through their sensor type's sink.
+
+By default every reading is written on the MQTT callback thread and the client acknowledges it on its own.
+With mqtt.ingest.manual-ack=true readings are queued instead, and a single writer thread stores them in batches,
+one transaction per batch, acknowledging each message only after its batch has committed. A crash then loses
+nothing the broker has not kept for us (see the persistent session in MqttService). The queue holds as many
+readings as the broker may have unacknowledged in flight (the MQTT 5 receive maximum), so a slow disk stops
+delivery at the broker instead of filling the heap.
+
+A reading the database refuses for good (a duplicate, a constraint, a value it cannot store) is acknowledged and
+counted, redelivering it would only fail again. A reading that fails for a passing reason (the database busy or
+locked, the disk full) is retried a few times and then left unacknowledged and released from the DuplicateFilter,
+the broker delivers it again with the next session.
+
+The listeners of the recorded events only hear of a reading after it has committed (see RecordedEvents): a batch
+that rolls back and is stored again one by one reaches them once, and a failing listener cannot undo a commit.
+
+Readings of the priority types (person detection, and the heater and fan states that confirm a command) go into a
+lane of their own that the writer empties first, so they never wait behind a backlog of temperature readings: at
+most behind the batch being written. The bulk lane fills up the rest of a batch, one commit serves both. Each lane
+holds the full receive maximum, a put never blocks on the other lane's backlog. MqttService also hands priority
+messages to their own callback thread, which keeps them apart in automatic acknowledgement mode too.
+*/
+@Service
+public class IngestWriter {
+
+    // recordingMillis is null for readings without a usable device timestamp, message is null in automatic acknowledgement mode.
+    public record Item(SensorType type, SensorReadingDTO reading, Long recordingMillis, long receivedAtNanos, Mqtt5Publish message) {
+    }
+
+    private final DuplicateFilter duplicateFilter;
+    private final IngestLog ingestLog;
+    private final FreshnessTracker freshnessTracker;
+    private final RoomRegistry roomRegistry;
+    private final RecordedEvents recordedEvents;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean manualAck;
+    private final int capacity;
+    private final int batchSize;
+    private final Set<String> priorityTypes;
+    private final BlockingQueue<Item> priorityQueue;
+    private final BlockingQueue<Item> queue;
+    private final Semaphore queued = new Semaphore(0);  // One permit per reading in either lane
+    private final static int WRITE_ATTEMPTS = 3;
+    private final static long RETRY_BACKOFF_MILLIS = 200;  // Times the attempt, a busy database usually frees up within a second
+    private final static Logger logger = LoggerFactory.getLogger(IngestWriter.class);
+
+    private volatile boolean running = false;
+    private Thread writerThread;
+    private DistributionSummary batchSizes;
+
+    @Autowired
+    public IngestWriter(DuplicateFilter duplicateFilter, IngestLog ingestLog, FreshnessTracker freshnessTracker, RoomRegistry roomRegistry, RecordedEvents recordedEvents, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                        @Value("${mqtt.ingest.manual-ack:false}") boolean manualAck,
+                        @Value("${mqtt.ingest.capacity:256}") int capacity,
+                        @Value("${mqtt.ingest.batch-size:64}") int batchSize,
+                        @Value("${mqtt.ingest.priority-types:person,heater,fan}") Set<String> priorityTypes) {
+        this.duplicateFilter = duplicateFilter;
+        this.ingestLog = ingestLog;
+        this.freshnessTracker = freshnessTracker;
+        this.roomRegistry = roomRegistry;
+        this.recordedEvents = recordedEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.manualAck = manualAck;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.priorityTypes = priorityTypes;
+        this.priorityQueue = new ArrayBlockingQueue<>(capacity);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /*
+    ================================================
+    Writer Lifecycle
+    ================================================
+    */
+
+    @PostConstruct
+    private void start() {
+        if (!manualAck) {
+            return;
+        }
+
+        Gauge.builder("mqtt.ingest.queue", priorityQueue, BlockingQueue::size)
+                .description("Readings received but not yet committed")
+                .tags(Tags.of("lane", "priority"))
+                .register(meterRegistry);
+        Gauge.builder("mqtt.ingest.queue", queue, BlockingQueue::size)
+                .description("Readings received but not yet committed")
+                .tags(Tags.of("lane", "bulk"))
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("mqtt.ingest.batch.size")
+                .description("Readings committed per transaction")
+                .register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "ingest-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Ingest writer started, batches of up to {} readings, {} in flight, {} ahead of the rest.", batchSize, capacity, priorityTypes);
+    }
+
+    @PreDestroy
+    private void stop() {
+        if (writerThread == null) {
+            return;
+        }
+
+        // Readings still queued are not acknowledged, the broker delivers them again after the restart.
+        running = false;
+        writerThread.interrupt();
+        logger.info("Ingest writer stopped, {} queued readings left to the broker.", priorityQueue.size() + queue.size());
+    }
+
+    public boolean isManualAck() {
+        return manualAck;
+    }
+
+    // Unacknowledged messages the broker may have in flight to us.
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Readings of this type are written ahead of the bulk lane.
+    public boolean isPriority(SensorType type) {
+        return priorityTypes.contains(type.name());
+    }
+
+    /*
+    ================================================
+    Ingest
+    ================================================
+    */
+
+    // Automatic acknowledgement mode: store right away on the calling thread.
+    public void writeNow(Item item) {
+        try {
+            List<Object> events = recordedEvents.collect(() -> item.type().sink().record(item.reading(), item.receivedAtNanos()));
+            committed(item);
+            recordedEvents.publishAll(events);
+        }
+        catch (RuntimeException e) {
+            if (isDuplicate(e)) {
+                countDuplicate(item);
+                return;
+            }
+            release(item);
+            throw e;
+        }
+    }
+
+    // Manual acknowledgement mode: blocks while the queue is full, which only happens for QoS 0 messages.
+    public void submit(Item item) throws InterruptedException {
+        (isPriority(item.type()) ? priorityQueue : queue).put(item);
+        queued.release();
+    }
+
+    private void writeLoop() {
+        List<Item> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                takeBatch(batch);
+                writeBatch(batch);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception e) {
+                // Unacknowledged, the broker delivers them again. Released, so that redelivery is not taken for a duplicate.
+                logger.error("Ingest writer failed on a batch of {} readings, leaving them to the broker.", batch.size(), e);
+                batch.forEach(this::release);
+            }
+            finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Whatever piled up while the last batch was written goes into the next one, the priority lane first. Blocks until one reading is waiting.
+    void takeBatch(List<Item> batch) throws InterruptedException {
+        // A permit is released only after its put, so one acquired permit means at least one reading is waiting.
+        queued.acquire();
+        priorityQueue.drainTo(batch, batchSize);
+        queue.drainTo(batch, batchSize - batch.size());
+        queued.acquire(batch.size() - 1);
+    }
+
+    void writeBatch(List<Item> batch) {
+        List<Object> events;
+        try {
+            // Outside the transaction, RoomRegistry writes through its own connection.
+            batch.forEach(item -> roomRegistry.register(item.reading().getRoomType()));
+            events = recordedEvents.collect(() -> transactionTemplate.executeWithoutResult(status ->
+                    batch.forEach(item -> item.type().sink().record(item.reading(), item.receivedAtNanos()))));
+        }
+        catch (RuntimeException e) {
+            // Typically a duplicate that slipped past the window, which poisons the whole transaction. Retry one by one.
+            logger.warn("Batch of {} readings failed ({}), storing them one by one.", batch.size(), e.getMessage());
+            batch.forEach(this::writeSingle);
+            return;
+        }
+
+        batchSizes.record(batch.size());
+        batch.forEach(item -> {
+            item.message().acknowledge();
+            committed(item);
+        });
+        recordedEvents.publishAll(events);
+    }
+
+    private void writeSingle(Item item) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<Object> events = recordedEvents.collect(() -> {
+                    roomRegistry.register(item.reading().getRoomType());
+                    transactionTemplate.executeWithoutResult(status -> item.type().sink().record(item.reading(), item.receivedAtNanos()));
+                });
+                item.message().acknowledge();
+                committed(item);
+                recordedEvents.publishAll(events);
+                return;
+            }
+            catch (RuntimeException e) {
+                if (isDuplicate(e)) {
+                    item.message().acknowledge();
+                    countDuplicate(item);
+                    return;
+                }
+                if (isPermanent(e)) {
+                    // Acknowledged anyway, a reading the database refuses would come back and be refused with every session.
+                    item.message().acknowledge();
+                    ingestLog.failed(item.type().name(), item.message().getTopic().toString(), item.reading().getRoomType(), e);
+                    release(item);
+                    return;
+                }
+                if (attempt == WRITE_ATTEMPTS || !backOff(attempt)) {
+                    logger.error("Could not store a {} reading of {} after {} attempts, leaving it to the broker: {}",
+                            item.type().name(), item.reading().getRoomType(), attempt, e.getMessage());
+                    release(item);
+                    return;
+                }
+            }
+        }
+    }
+
+    // False when interrupted, the writer is stopping.
+    private static boolean backOff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void committed(Item item) {
+        ingestLog.stored(item.type().name(), item.reading().getRoomType());
+        freshnessTracker.committed(item.type().name(), item.reading().getRoomType(), item.receivedAtNanos());
+    }
+
+    // Seen before the duplicate window, the unique key on the reading table caught it.
+    private void countDuplicate(Item item) {
+        duplicateFilter.countStoredDuplicate();
+        ingestLog.duplicate(item.type().name(), item.reading().getRoomType());
+    }
+
+    // SQLite reports a unique key violation as a generic error, which Hibernate does not translate into a DataIntegrityViolationException.
+    private static boolean isDuplicate(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+            if (cause instanceof SQLiteException sqlite
+                    && (sqlite.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE || sqlite.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+    True when storing the reading again would fail the same way: a constraint or a value the database cannot store,
+    or an error outside the database, which comes from the reading itself. Anything else the database reports (busy,
+    locked, full, I/O) may pass.
+    */
+    private static boolean isPermanent(RuntimeException e) {
+        boolean database = false;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+            if (cause instanceof SQLiteException sqlite) {
+                String code = sqlite.getResultCode().name();
+                return code.startsWith("SQLITE_CONSTRAINT") || code.equals("SQLITE_MISMATCH") || code.equals("SQLITE_TOOBIG") || code.equals("SQLITE_RANGE");
+            }
+            database |= cause instanceof DataAccessException || cause instanceof TransactionException || cause instanceof SQLException;
+        }
+        return !database;
+    }
+
+    // Not stored, so a redelivery must not be mistaken for a duplicate.
+    private void release(Item item) {
+        if (item.recordingMillis() != null) {
+            duplicateFilter.release(item.type().name(), item.reading().getRoomType(), item.recordingMillis());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.dto.RoomSnapshotDTO;
+import com.iot.mobile_backend.dto.SensorValueDTO;
+import com.iot.mobile_backend.event.DevicePresenceChangedEvent;
+import com.iot.mobile_backend.event.DeviceStatusRecordedEvent;
+import com.iot.mobile_backend.event.PersonDetectionRecordedEvent;
+import com.iot.mobile_backend.event.SensorReadingRecordedEvent;
+import com.iot.mobile_backend.event.TargetTemperatureChangedEvent;
+import com.iot.mobile_backend.event.TemperatureRecordedEvent;
+import com.iot.mobile_backend.repository.FanRepository;
+import com.iot.mobile_backend.repository.HeaterRepository;
+import com.iot.mobile_backend.repository.PersonDetectRepo;
+import com.iot.mobile_backend.repository.SensorReadingRepository;
+import com.iot.mobile_backend.repository.TempRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/*
+Latest known state of every room across all sensor kinds, kept in memory. Seeded once from the
+database on startup and then updated from the ingest events, so a room snapshot is a single map
+read instead of four queries.
+*/
+@Service
+public class LatestStateService {
+
+    private final TempRepository tempRepository;
+    private final PersonDetectRepo personDetectRepo;
+    private final HeaterRepository heaterRepo;
+    private final FanRepository fanRepo;
+    private final SensorReadingRepository sensorReadingRepository;
+    private final OccupancyService occupancyService;
+    private final SnapshotCache snapshotCache;
+    private final RoomRegistry roomRegistry;
+    private final ThermalModelService thermalModelService;
+    private final TargetTemperatureService targetTemperatureService;
+    private final Map<Integer, RoomSnapshotDTO> rooms = new ConcurrentHashMap<>();
+    private final static Logger logger = LoggerFactory.getLogger(LatestStateService.class);
+
+    @Autowired
+    public LatestStateService(TempRepository tempRepository, PersonDetectRepo personDetectRepo, HeaterRepository heaterRepo, FanRepository fanRepo,
+                              SensorReadingRepository sensorReadingRepository, OccupancyService occupancyService, SnapshotCache snapshotCache, RoomRegistry roomRegistry, ThermalModelService thermalModelService,
+                              TargetTemperatureService targetTemperatureService) {
+        this.tempRepository = tempRepository;
+        this.personDetectRepo = personDetectRepo;
+        this.heaterRepo = heaterRepo;
+        this.fanRepo = fanRepo;
+        this.sensorReadingRepository = sensorReadingRepository;
+        this.occupancyService = occupancyService;
+        this.snapshotCache = snapshotCache;
+        this.roomRegistry = roomRegistry;
+        this.thermalModelService = thermalModelService;
+        this.targetTemperatureService = targetTemperatureService;
+    }
+
+    @PostConstruct
+    private void seedFromDatabase() {
+        tempRepository.getAllRoomTemperatures().forEach(temp -> update(roomRegistry.register(temp.getRoomType()), temp.getRoomType(), room -> room
+                .temperature(temp.getTemperature())
+                .temperatureTime(temp.getRecordingTime())));
+
+        personDetectRepo.getAllRoomDetections().forEach(detection -> update(roomRegistry.register(detection.getRoomType()), detection.getRoomType(), room -> room
+                .occupied(occupancyService.isOccupied(detection.getPersonDetected(), detection.getConfidence()))
+                .personDetected(detection.getPersonDetected())
+                .confidence(detection.getConfidence())
+                .detectionTime(detection.getDetectionTime())));
+
+        heaterRepo.getAllRoomHeaterStatuses().forEach(heater -> update(roomRegistry.register(heater.getRoomType()), heater.getRoomType(), room -> room
+                .heaterStatus(heater.getHeaterStatus())
+                .heaterTime(heater.getRecordingTime())));
+
+        fanRepo.getAllRoomFanStatuses().forEach(fan -> update(roomRegistry.register(fan.getRoomType()), fan.getRoomType(), room -> room
+                .fanStatus(fan.getFanStatus())
+                .fanTime(fan.getRecordingTime())));
+
+        sensorReadingRepository.getAllLatestReadings().forEach(reading -> update(roomRegistry.register(reading.getRoomType()), reading.getRoomType(), room ->
+                withSensor(room, reading.getSensorType(), reading.getNumericValue(), reading.getBooleanValue(), reading.getRecordingTime())));
+
+        targetTemperatureService.getAll().forEach((roomId, target) -> update(roomId, roomRegistry.nameOf(roomId), room -> room.targetTemperature(target)));
+
+        logger.info("Loaded latest state for {} rooms.", rooms.size());
+    }
+
+    /*
+    ================================================
+    Event Listeners
+    ================================================
+    */
+
+    @EventListener
+    public void onTemperatureRecorded(TemperatureRecordedEvent event) {
+        RoomSnapshotDTO current = rooms.get(event.roomId());
+        thermalModelService.observe(event.roomId(), event.temperature(), event.recordingTime(),
+                current != null ? current.getHeaterStatus() : null, current != null ? current.getFanStatus() : null);
+
+        update(event.roomId(), event.roomType(), room -> room
+                .temperature(event.temperature())
+                .temperatureTime(event.recordingTime()));
+    }
+
+    @EventListener
+    public void onPersonDetectionRecorded(PersonDetectionRecordedEvent event) {
+        update(event.roomId(), event.roomType(), room -> room
+                .occupied(occupancyService.isOccupied(event.personDetected(), event.confidence()))
+                .personDetected(event.personDetected())
+                .confidence(event.confidence())
+                .detectionTime(event.detectionTime()));
+    }
+
+    @EventListener
+    public void onDeviceStatusRecorded(DeviceStatusRecordedEvent event) {
+        switch (event.device()) {
+            case "heater" -> update(event.roomId(), event.roomType(), room -> room
+                    .heaterStatus(event.on())
+                    .heaterTime(event.recordingTime()));
+            case "fan" -> update(event.roomId(), event.roomType(), room -> room
+                    .fanStatus(event.on())
+                    .fanTime(event.recordingTime()));
+            default -> logger.warn("Unknown device type {}, ignoring...", event.device());
+        }
+    }
+
+    @EventListener
+    public void onSensorReadingRecorded(SensorReadingRecordedEvent event) {
+        update(event.roomId(), event.roomType(), room ->
+                withSensor(room, event.sensorType(), event.numericValue(), event.booleanValue(), event.recordingTime()));
+    }
+
+    @EventListener
+    public void onDevicePresenceChanged(DevicePresenceChangedEvent event) {
+        update(event.roomId(), event.roomType(), room -> {
+            // Copy on write, like the sensors map.
+            Map<String, Boolean> presence = new HashMap<>(room.build().getPresence());
+            presence.put(event.source(), event.online());
+            return room.presence(Map.copyOf(presence));
+        });
+    }
+
+    @EventListener
+    public void onTargetTemperatureChanged(TargetTemperatureChangedEvent event) {
+        update(event.roomId(), event.roomType(), room -> room.targetTemperature(event.targetTemperature()));
+    }
+
+    /*
+    ================================================
+    Reads
+    ================================================
+    */
+
+    public Optional<RoomSnapshotDTO> getRoom(String roomType) {
+        Integer roomId = roomRegistry.findId(roomType);
+        return roomId == null ? Optional.empty() : Optional.ofNullable(rooms.get(roomId));
+    }
+
+    public List<RoomSnapshotDTO> getAllRooms() {
+        return rooms.values().stream()
+                .sorted(Comparator.comparing(RoomSnapshotDTO::getRoomType))
+                .toList();
+    }
+
+    private static RoomSnapshotDTO.RoomSnapshotDTOBuilder withSensor(RoomSnapshotDTO.RoomSnapshotDTOBuilder room, String sensorType, Double numericValue, Boolean booleanValue, LocalDateTime recordingTime) {
+        // Copy on write, the previous snapshot keeps its own map.
+        Map<String, SensorValueDTO> sensors = new HashMap<>(room.build().getSensors());
+        sensors.put(sensorType, new SensorValueDTO(numericValue, booleanValue, recordingTime));
+        return room.sensors(Map.copyOf(sensors));
+    }
+
+    // Rate and time to target follow every change of temperature, target or heater/fan state.
+    private RoomSnapshotDTO withEstimate(int roomId, RoomSnapshotDTO room) {
+        ThermalModelService.Estimate estimate = thermalModelService.estimate(roomId, room.getTemperature(), room.getTargetTemperature(), room.getHeaterStatus(), room.getFanStatus());
+        return room.toBuilder()
+                .temperatureRate(estimate.ratePerHour())
+                .timeToTargetSeconds(estimate.secondsToTarget())
+                .build();
+    }
+
+    private void update(int roomId, String roomType, UnaryOperator<RoomSnapshotDTO.RoomSnapshotDTOBuilder> change) {
+        rooms.compute(roomId, (id, current) -> {
+            RoomSnapshotDTO.RoomSnapshotDTOBuilder builder = current != null
+                    ? current.toBuilder()
+                    : RoomSnapshotDTO.builder().roomType(roomType);
+            return withEstimate(id, change.apply(builder).build());
+        });
+        snapshotCache.invalidate(SnapshotCache.ROOMS);
+    }
+}
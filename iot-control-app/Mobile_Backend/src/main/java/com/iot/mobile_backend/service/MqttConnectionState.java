@@ -0,0 +1,114 @@
+package com.iot.mobile_backend.service;
+
+import com.hivemq.client.mqtt.lifecycle.MqttClientDisconnectedContext;
+import com.hivemq.client.mqtt.mqtt5.exceptions.Mqtt5ConnAckException;
+import com.hivemq.client.mqtt.mqtt5.message.connect.connack.Mqtt5ConnAckReasonCode;
+import com.iot.mobile_backend.event.MqttConnectedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+
+/*
+Where one MQTT connection stands, fed by its client's lifecycle listeners (see MQTTConfig, one per connection).
+Retrying is left to the client's automatic reconnect, which also covers a failed first connect.
+The command connection never subscribes, CONNECTED is as far as it goes.
+*/
+public class MqttConnectionState {
+
+    public final static String INGEST = "ingest";
+    public final static String COMMAND = "command";
+
+    public enum Status { CONNECTING, CONNECTED, SUBSCRIBED, RECONNECTING, STOPPED }
+
+    private final String connection;
+
+    private volatile Status status = Status.CONNECTING;
+    private volatile boolean subscribed = false;
+    private volatile boolean stopping = false;
+    private volatile int failedAttempts = 0;
+    private volatile String lastError;
+    private volatile LocalDateTime since = LocalDateTime.now();
+    private final ApplicationEventPublisher eventPublisher;
+    private final static Logger logger = LoggerFactory.getLogger(MqttConnectionState.class);
+
+    public MqttConnectionState(String connection, ApplicationEventPublisher eventPublisher) {
+        this.connection = connection;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void onConnected() {
+        logger.info("MQTT {} client connected.", connection);
+
+        // After a reconnect the client restores our subscriptions on its own.
+        setStatus(subscribed ? Status.SUBSCRIBED : Status.CONNECTED);
+        failedAttempts = 0;
+        lastError = null;
+
+        eventPublisher.publishEvent(new MqttConnectedEvent(connection));
+    }
+
+    public void onSubscribed() {
+        subscribed = true;
+        setStatus(Status.SUBSCRIBED);
+    }
+
+    public void onDisconnected(MqttClientDisconnectedContext context) {
+        if (stopping) {
+            // disconnect() is rejected while reconnecting, so the pending reconnect is cancelled here instead.
+            context.getReconnector().reconnect(false);
+            setStatus(Status.STOPPED);
+            return;
+        }
+
+        Throwable cause = context.getCause();
+        failedAttempts = context.getReconnector().getAttempts();
+        lastError = cause.getMessage();
+        setStatus(Status.RECONNECTING);
+
+        if (cause instanceof Mqtt5ConnAckException connAckException) {
+            Mqtt5ConnAckReasonCode reasonCode = connAckException.getMqttMessage().getReasonCode();
+            if (reasonCode == Mqtt5ConnAckReasonCode.NOT_AUTHORIZED || reasonCode == Mqtt5ConnAckReasonCode.BAD_USER_NAME_OR_PASSWORD) {
+                logger.error("MQTT Authentication failed for the {} client - check username/password", connection);
+            }
+        }
+        logger.warn("MQTT {} client disconnected ({}), retrying in the background, attempt {}.", connection, cause.getMessage(), failedAttempts);
+    }
+
+    // Stops the reconnect loop, the next failed attempt is the last one.
+    public void stop() {
+        stopping = true;
+    }
+
+    public String getConnection() {
+        return connection;
+    }
+
+    public boolean isStopping() {
+        return stopping;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public LocalDateTime getSince() {
+        return since;
+    }
+
+    private void setStatus(Status newStatus) {
+        if (status != newStatus) {
+            status = newStatus;
+            since = LocalDateTime.now();
+        }
+    }
+}
@@ -4,44 +4,75 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hivemq.client.mqtt.MqttGlobalPublishFilter;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
+import com.hivemq.client.mqtt.mqtt5.message.connect.Mqtt5ConnectBuilder;
 import com.hivemq.client.mqtt.mqtt5.message.connect.connack.Mqtt5ConnAck;
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
-import com.iot.mobile_backend.dto.FanDTO;
-import com.iot.mobile_backend.dto.HeaterDTO;
-import com.iot.mobile_backend.dto.PersonDetectionDTO;
-import com.iot.mobile_backend.dto.TemperatureDTO;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishResult;
+import com.iot.mobile_backend.dto.CommandResultDTO;
+import com.iot.mobile_backend.dto.RoomActionDTO;
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.event.MqttConnectedEvent;
+import com.iot.mobile_backend.event.TargetTemperatureChangedEvent;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import com.iot.mobile_backend.sensor.SensorType;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.InputMismatchException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+/*
+Talks to the broker over two connections (see MQTTConfig). The ingest client subscribes and receives every reading,
+the command client publishes commands and replays the command journal, so a burst of inbound messages never delays a
+command on the wire. Readings of the priority sensor types (see IngestWriter) are handled on a callback thread of
+their own, apart from the bulk of temperature readings.
+*/
 @Service
+@DependsOn("readingUniqueKeys")  // No reading is ingested before the tables reject duplicates
 public class MqttService {
 
-    private final Mqtt5AsyncClient mqttClient;
-    private final TemperatureService temperatureService;
-    private final PersonDetectService personDetectService;
-    private final HeaterService heaterService;
-    private final FanService fanService;
+    private final Mqtt5AsyncClient ingestClient;
+    private final Mqtt5AsyncClient commandClient;
+    private final SensorTypeRegistry sensorTypeRegistry;
+    private final MqttConnectionState connectionState;
+    private final MqttConnectionState commandConnectionState;
+    private final RoomRegistry roomRegistry;
+    private final CommandJournal commandJournal;
+    private final DuplicateFilter duplicateFilter;
+    private final IngestWriter ingestWriter;
+    private final IngestLog ingestLog;
+    private final FreshnessTracker freshnessTracker;
+    private final PresenceTracker presenceTracker;
     private final static Logger logger = LoggerFactory.getLogger(MqttService.class);
+    private final static ObjectMapper objectMapper = new ObjectMapper(); // Thread-safe once configured, share it across handlers
+    private final static DateTimeFormatter timestampFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private final static long SCENE_ACK_TIMEOUT_SECONDS = 10;
     private final ApplicationContext applicationContext;
+    private ExecutorService priorityExecutor;
 
     @Value("${mqtt.username}")
     private String username;
@@ -49,13 +80,36 @@ public class MqttService {
     @Value("${mqtt.password}")
     private String password;
 
+    // Off for offline tools such as the backfill importer, which must not take over the backend's client id.
+    @Value("${mqtt.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mqtt.reconnect.max-delay:10s}")
+    private Duration reconnectMaxDelay;
+
+    // Only with manual acknowledgement: how long the broker keeps our session and unacknowledged messages while we are away.
+    @Value("${mqtt.ingest.session-expiry:1h}")
+    private Duration sessionExpiry;
+
     @Autowired
-    public MqttService(Mqtt5AsyncClient mqttClient, TemperatureService temperatureService, PersonDetectService personDetectService, HeaterService heaterService, FanService fanService,ApplicationContext applicationContext) {
-        this.mqttClient = mqttClient;
-        this.temperatureService = temperatureService;
-        this.personDetectService = personDetectService;
-        this.heaterService = heaterService;
-        this.fanService = fanService;
+    public MqttService(@Qualifier("ingestClient") Mqtt5AsyncClient ingestClient, @Qualifier("commandClient") Mqtt5AsyncClient commandClient,
+                       SensorTypeRegistry sensorTypeRegistry,
+                       @Qualifier("ingestConnectionState") MqttConnectionState connectionState,
+                       @Qualifier("commandConnectionState") MqttConnectionState commandConnectionState,
+                       RoomRegistry roomRegistry, CommandJournal commandJournal, DuplicateFilter duplicateFilter, IngestWriter ingestWriter,
+                       IngestLog ingestLog, FreshnessTracker freshnessTracker, PresenceTracker presenceTracker, ApplicationContext applicationContext) {
+        this.ingestClient = ingestClient;
+        this.commandClient = commandClient;
+        this.sensorTypeRegistry = sensorTypeRegistry;
+        this.connectionState = connectionState;
+        this.commandConnectionState = commandConnectionState;
+        this.roomRegistry = roomRegistry;
+        this.commandJournal = commandJournal;
+        this.duplicateFilter = duplicateFilter;
+        this.ingestWriter = ingestWriter;
+        this.ingestLog = ingestLog;
+        this.freshnessTracker = freshnessTracker;
+        this.presenceTracker = presenceTracker;
         this.applicationContext = applicationContext;
     }
 
@@ -67,92 +121,123 @@ public class MqttService {
 
     @PostConstruct
     private void connectAndSubscribe() {
-        logger.info("Initializing MQTT service...");
+        if (!enabled) {
+            logger.info("MQTT is disabled, not connecting to the broker.");
+            return;
+        }
 
-        try {
-            connectToMqtt()
-                    .thenCompose(connAck -> subscribeToTopics())
-                    .get(5, TimeUnit.SECONDS);
+        logger.info("Initializing MQTT service...");
 
-            logger.info("MQTT service initialized successfully");
-        }
-        catch (RuntimeException e) {
-            Throwable cause = e.getCause();
-            logger.error("MQTT connection failed: {}", cause.getMessage(), cause);
-
-            if (cause.getMessage().contains("authentication") ||
-                    cause.getMessage().contains("Not authorized") ||
-                    cause.getMessage().contains("Bad user name or password")) {
-                logger.error("MQTT Authentication failed - check username/password");
-            }
+        priorityExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mqtt-priority");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-            // Shutdown application
-            SpringApplication.exit(applicationContext, () -> 1);
-            System.exit(1);
+        if (ingestWriter.isManualAck()) {
+            // A resumed session delivers what the broker kept for us before our subscriptions are sent again,
+            // those messages match no subscription callback yet and would otherwise be acknowledged unseen.
+            ingestClient.publishes(MqttGlobalPublishFilter.REMAINING, this::handleRemainingMessage, true);
         }
-        catch (TimeoutException e) {
-            logger.error("MQTT connection timed out (likely authentication failure)");
-            logger.error("Check: 1) Broker host/port 2) Username/password 3) Network connectivity");
 
-            // Shutdown application
-            SpringApplication.exit(applicationContext, () -> 1);
-            System.exit(1);
-        }
-        catch (Exception e) {
-            logger.error("MQTT initialization failed", e);
+        // Does not wait for the broker: the REST API serves stored data right away while the clients
+        // connect in the background, retrying with exponential backoff (see MQTTConfig).
+        connectForIngest()
+                .thenCompose(connAck -> subscribeWithRetry())
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null) {
+                        if (!connectionState.isStopping()) {
+                            logger.error("MQTT initialization failed", throwable);
+                        }
+                    }
+                    else {
+                        logger.info("MQTT service initialized successfully");
+                    }
+                });
 
-            // Shutdown application
-            SpringApplication.exit(applicationContext, () -> 1);
-            System.exit(1);
-        }
+        connectForCommands()
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null && !commandConnectionState.isStopping()) {
+                        logger.error("MQTT command connection failed", throwable);
+                    }
+                });
     }
 
     @PreDestroy
     private void disconnect() {
-        logger.info("Shutting down connection to MQTT broker...");
+        logger.info("Shutting down connections to MQTT broker...");
+
+        connectionState.stop();
+        commandConnectionState.stop();
 
+        disconnect(ingestClient, connectionState.getConnection());
+        disconnect(commandClient, commandConnectionState.getConnection());
+
+        if (priorityExecutor != null) {
+            priorityExecutor.shutdownNow();
+        }
+        logger.info("MQTT connections shut down successfully.");
+    }
+
+    private void disconnect(Mqtt5AsyncClient client, String connection) {
         try {
-            if (mqttClient.getState().isConnected()) {
-                logger.info("Disconnecting from MQTT broker...");
+            if (client.getState().isConnected()) {
+                logger.info("Disconnecting {} client from MQTT broker...", connection);
 
-                mqttClient.disconnect()
+                client.disconnect()
                         .get(3, TimeUnit.SECONDS);
 
-                logger.info("Disconnected from MQTT broker successfully.");
+                logger.info("Disconnected {} client from MQTT broker successfully.", connection);
             }
             else {
-                logger.info("MQTT broker is already disconnected.");
+                // Any pending reconnect is cancelled by MqttConnectionState at its next failure.
+                logger.info("MQTT {} client is already disconnected.", connection);
             }
         }
         catch (TimeoutException e) {
-            logger.error("MQTT broker disconnect timed out.");
+            logger.error("MQTT {} client disconnect timed out.", connection);
         }
         catch (Exception e) {
-            logger.error("Error occurred while disconnecting from MQTT broker.", e);
+            logger.error("Error occurred while disconnecting {} client from MQTT broker.", connection, e);
         }
+    }
 
-        logger.info("MQTT connection shut down successfully.");
+    // Completes once connected. Failed attempts are retried by the client, so this only fails when it is stopped.
+    private CompletableFuture<Mqtt5ConnAck> connectForIngest() {
+        logger.info("Connecting to MQTT broker for ingest...");
+
+        // The broker sends no more unacknowledged messages than the ingest writer can hold.
+        // With manual acknowledgement the session outlives the connection, so unacknowledged messages survive a crash.
+        return connect(ingestClient.connectWith()
+                .cleanStart(!ingestWriter.isManualAck())
+                .sessionExpiryInterval(ingestWriter.isManualAck() ? sessionExpiry.toSeconds() : 0)
+                .restrictions()
+                    .receiveMaximum(ingestWriter.getCapacity())
+                    .applyRestrictions());
     }
 
-    private CompletableFuture<Mqtt5ConnAck> connectToMqtt() {
-        logger.info("Connecting to MQTT broker...");
+    // Nothing is subscribed and the command journal replays what was not acknowledged, so no session is kept.
+    private CompletableFuture<Mqtt5ConnAck> connectForCommands() {
+        logger.info("Connecting to MQTT broker for commands...");
+
+        return connect(commandClient.connectWith()
+                .cleanStart(true)
+                .sessionExpiryInterval(0));
+    }
+
+    private CompletableFuture<Mqtt5ConnAck> connect(Mqtt5ConnectBuilder.Send<CompletableFuture<Mqtt5ConnAck>> connect) {
+        if (username == null || username.isEmpty()) {
+            logger.warn("No MQTT username configured, connecting without credentials.");
+            return connect.send();
+        }
 
         // Authorize credentials to connect to the broker
-        return mqttClient.connectWith()
+        return connect
                 .simpleAuth()
                     .username(username)
                     .password(UTF_8.encode(password))
                     .applySimpleAuth()
-                .send()
-                .whenComplete((connAck, throwable) -> {
-                    if (throwable != null) {
-                        logger.error("Failed to authorize credentials.",throwable);
-                        throw new RuntimeException(throwable);
-                    }
-                    else {
-                        logger.info("MQTT client connected successfully.");
-                    }
-                });
+                .send();
     }
 
      /*
@@ -161,39 +246,50 @@ public class MqttService {
     ================================================
     */
 
+    // The connection may be fine while the broker refuses a subscription, keep trying at the reconnect pace.
+    private CompletableFuture<Void> subscribeWithRetry() {
+        return subscribeToTopics()
+                .thenRun(connectionState::onSubscribed)
+                .exceptionallyCompose(throwable -> {
+                    if (connectionState.isStopping()) {
+                        return CompletableFuture.failedFuture(throwable);
+                    }
+                    logger.warn("Retrying subscriptions in {} seconds.", reconnectMaxDelay.toSeconds());
+                    return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(reconnectMaxDelay.toMillis(), TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> subscribeWithRetry());
+                });
+    }
+
     private CompletableFuture<Void> subscribeToTopics() {
         logger.info("Subscribing to all topics...");
 
-        CompletableFuture<Void> recieveAllRoomTempSub = mqttClient.subscribeWith()
-                .topicFilter("+/temperature/status")
-                .qos(MqttQos.AT_LEAST_ONCE)
-                .callback(this::handleTemperatureMessage)
-                .send()
-                .thenRun(() -> logger.info("Subscribed to all temperature topics"));
-
-        CompletableFuture<Void> recieveAllPersonRoomDetectionSub = mqttClient.subscribeWith()
-                .topicFilter("+/person/status")
-                .qos(MqttQos.AT_LEAST_ONCE)
-                .callback(this::handlePersonDetectionMessage)
-                .send()
-                .thenRun(() -> logger.info("Subscribed to all person detection topics"));
-
-        CompletableFuture<Void> recieveAllHeaterStatusSub = mqttClient.subscribeWith()
-                .topicFilter("+/heater/status")
-                .qos(MqttQos.AT_LEAST_ONCE)
-                .callback(this::handleSensorStatusMessage)
-                .send()
-                .thenRun(() -> logger.info("Subscribed to all heater sensors."));
-
-        CompletableFuture<Void> recieveAllFanStatusSub = mqttClient.subscribeWith()
-                .topicFilter("+/fan/status")
+        // One subscription per sensor type, all sharing the same handler. Priority types get their own callback
+        // thread, otherwise the client hands them over on the thread that is busy with the temperature backlog.
+        CompletableFuture<?>[] subscriptions = sensorTypeRegistry.getAll().stream()
+                .map(type -> {
+                    Mqtt5AsyncClient.Mqtt5SubscribeAndCallbackBuilder.Call.Ex subscription = ingestClient.subscribeWith()
+                            .topicFilter(type.getTopicFilter())
+                            .qos(MqttQos.AT_LEAST_ONCE)
+                            .callback(message -> handleSensorMessage(type, message))
+                            .manualAcknowledgement(ingestWriter.isManualAck());
+                    if (ingestWriter.isPriority(type)) {
+                        subscription = subscription.executor(priorityExecutor);
+                    }
+                    return subscription.send()
+                            .thenRun(() -> logger.info("Subscribed to all {} topics.", type.name()));
+                })
+                .toArray(CompletableFuture[]::new);
+
+        // The room controllers' last wills, retained, so the current state of each arrives right after subscribing.
+        CompletableFuture<Void> lastWills = ingestClient.subscribeWith()
+                .topicFilter(presenceTracker.getLastWillTopicFilter())
                 .qos(MqttQos.AT_LEAST_ONCE)
-                .callback(this::handleSensorStatusMessage)
+                .callback(this::handleLastWillMessage)
                 .send()
-                .thenRun(() -> logger.info("Subscribed to all fan sensors."));
+                .thenRun(() -> logger.info("Subscribed to device last-will topics."));
 
         // Organize all subscriptions here, so we can subscribe to all topics at once
-        return CompletableFuture.allOf(recieveAllRoomTempSub, recieveAllPersonRoomDetectionSub, recieveAllHeaterStatusSub, recieveAllFanStatusSub)
+        return CompletableFuture.allOf(CompletableFuture.allOf(subscriptions), lastWills)
                 .whenComplete((subAck, throwable) -> {
                     if (throwable != null) {
                         logger.error("Failed to subscribe to topics.", throwable);
@@ -211,240 +307,289 @@ public class MqttService {
     ================================================
     */
 
-    private void handleTemperatureMessage(Mqtt5Publish message) {
+    // Parses and validates a reading of any sensor type against its definition, then hands it to the type's sink.
+    private void handleSensorMessage(SensorType type, Mqtt5Publish message) {
+        long receivedAtNanos = System.nanoTime();
+        String topic = message.getTopic().toString();
+        String roomType = extractRoomTypeFromTopic(topic);
+        presenceTracker.seen(roomType, type.name());
+
+        // IngestLog logs (or samples) each message once, rejected ones with the rule they broke.
         try {
             String payload = new String(message.getPayloadAsBytes(), UTF_8);
-            logger.info("Received temperature reading: {}.", payload);
+            ingestLog.received(type.name(), topic, payload);
 
             // Example String format: {"temp_f": 74.1, "timestamp": "2025-11-24T19:36:55"}
-            ObjectMapper objectMapper = new ObjectMapper();
             JsonNode data = objectMapper.readTree(payload); // Convert string to JSON
-
-            String topic = message.getTopic().toString();
-            String roomType = extractRoomTypeFromTopic(topic);
-
-            Double temperature = data.get("temp_f").asDouble();
-            String recordingTime = data.get("timestamp").asText();
-
-            if (roomType.isEmpty()) {
-                logger.error("Invalid inputs, aborting...");
-                throw new InputMismatchException("Invalid inputs, aborting...");
-            }
-            // Note: Could be a better way to check invalid temperature, but not sure.
-            if (temperature < 0) {
-                logger.error("Invalid inputs, aborting...");
-                throw new InputMismatchException("Invalid inputs, aborting...");
-            }
-            if (recordingTime.isEmpty()) {
-                logger.error("Invalid inputs, aborting...");
-                throw new InputMismatchException("Invalid inputs, aborting...");
+            SensorReadingDTO reading = ReadingParser.parse(type, roomType, data);
+
+            // Readings without a usable device timestamp are stored at the receive time and cannot be redeliveries of each other.
+            LocalDateTime deviceTime = TimestampParser.parse(reading.getRecordingTime());
+            Long recordingMillis = deviceTime != null ? EpochMillisConverter.toEpochMillis(deviceTime) : null;
+            if (recordingMillis != null && !duplicateFilter.firstSighting(type.name(), roomType, recordingMillis)) {
+                ingestLog.duplicate(type.name(), roomType);
+                acknowledge(message);
+                return;
             }
+            freshnessTracker.received(type.name(), roomType, recordingMillis);
 
-            TemperatureDTO newTemperature = new TemperatureDTO();
-            newTemperature.setRoomType(roomType);
-            newTemperature.setTemperature(temperature);
-            newTemperature.setRecordingTime(recordingTime);
+            if (ingestWriter.isManualAck()) {
+                // Acknowledged by the writer once the batch holding it has committed.
+                ingestWriter.submit(new IngestWriter.Item(type, reading, recordingMillis, receivedAtNanos, message));
+                return;
+            }
 
-            temperatureService.recordTemperature(newTemperature);
-            logger.info("Added temperature: {}°F for the room, {}.", temperature, roomType);
+            ingestWriter.writeNow(new IngestWriter.Item(type, reading, recordingMillis, receivedAtNanos, null));
+        }
+        catch (InterruptedException e) {
+            // Shutting down, the broker delivers the message again after the restart.
+            Thread.currentThread().interrupt();
         }
         catch (Exception e) {
-            logger.error("Error occurred while handling temperature message.");
-            logger.error("Nothing has been done with the message.", e);
+            ingestLog.failed(type.name(), topic, roomType, e);
+            acknowledge(message);
         }
     }
 
-    private void handlePersonDetectionMessage(Mqtt5Publish message) {
-        try {
-            String payload = new String(message.getPayloadAsBytes(), UTF_8);
-            logger.info("Received person detection status: {}.", payload);
-
-            // Example String format: {"status": true, "confidence": 0.8003, "timestamp": "2025-11-24T19:36:56"}
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode data = objectMapper.readTree(payload); // Convert string to JSON
-
-            String topic = message.getTopic().toString();
-            String roomType = extractRoomTypeFromTopic(topic);
+    // "online" or "offline", published by the controller itself or by the broker as its last will. Not stored.
+    private void handleLastWillMessage(Mqtt5Publish message) {
+        String roomType = extractRoomTypeFromTopic(message.getTopic().toString());
+        presenceTracker.lastWill(roomType, new String(message.getPayloadAsBytes(), UTF_8));
+    }
 
-            boolean personDetected = data.get("status").asBoolean();
-            double confidence = data.get("confidence").asDouble();
-            String detectionTime = data.get("timestamp").asText();
+    private void handleRemainingMessage(Mqtt5Publish message) {
+        if (presenceTracker.isLastWillTopic(message.getTopic())) {
+            handleLastWillMessage(message);
+            message.acknowledge();
+            return;
+        }
 
-            if (roomType.isEmpty()) {
-                logger.error("Invalid inputs, aborting...");
-                throw new InputMismatchException("Invalid inputs, aborting...");
-            }
-            if (confidence < 0 || confidence > 1) {
-                logger.error("Invalid confidence value, aborting...");
-                throw new InputMismatchException("Invalid confidence value, aborting...");
-            }
-            if (detectionTime.isEmpty()) {
-                logger.error("Invalid inputs, aborting...");
-                throw new InputMismatchException("Invalid inputs, aborting...");
-            }
+        Optional<SensorType> type = sensorTypeRegistry.findByTopic(message.getTopic().toString());
+        if (type.isEmpty()) {
+            logger.warn("Received message on unexpected topic {}, dropping it.", message.getTopic());
+            message.acknowledge();
+            return;
+        }
+        handleSensorMessage(type.get(), message);
+    }
 
-            PersonDetectionDTO newDetection = new PersonDetectionDTO();
-            newDetection.setRoomType(roomType);
-            newDetection.setPersonDetected(personDetected);
-            newDetection.setConfidence(confidence);
-            newDetection.setDetectionTime(detectionTime);
+    // Messages that will never be stored are acknowledged right away, or they would hold a receive maximum slot.
+    private void acknowledge(Mqtt5Publish message) {
+        if (ingestWriter.isManualAck()) {
+            message.acknowledge();
+        }
+    }
 
-            personDetectService.recordPersonDetection(newDetection);
+    /*
+    ================================================
+    MQTT Publish Handlers
+    ================================================
+    */
 
-            if (personDetected && confidence >= 0.1) {
-                logger.info("Person entered the room at: {}.", detectionTime);
+    public CompletableFuture<Mqtt5PublishResult> publishSensorCommands(String sensor, String roomType, Boolean status) throws JsonProcessingException {
+        switch (sensor) {
+            case "heater", "fan" -> {
+                String topic = String.format("%s/%s/command", roomType, sensor);
+                String jsonPayload = buildSensorCommandPayload(status);
+
+                logger.info("Publishing {} sensor command: {}...", sensor, jsonPayload);
+
+                // Failures are logged here, the caller sees them through the returned future.
+                return publishCommand(topic, jsonPayload)
+                        .whenComplete((result, throwable) -> {
+                            if (throwable != null) {
+                                logger.error("Failed to publish {} sensor command.", sensor, throwable);
+                            }
+                            else {
+                                logger.info("Successfully published {} sensor command.", sensor);
+                            }
+                        });
             }
-            else {
-                // Camera is sensitive enough that anything lower than 0.1, no person is detected.
-                logger.info("Room is empty.");
+            default -> {
+                logger.error("Invalid sensor type, aborting...");
+                throw new IllegalArgumentException("Invalid sensor type, aborting...");
             }
         }
-        catch (Exception e) {
-            logger.error("Error occurred while handling person detection message.", e);
-            logger.error("Nothing has been done with the message.", e);
-        }
     }
 
-    private void handleSensorStatusMessage(Mqtt5Publish message) {
-        try {
-            String payload = new String(message.getPayloadAsBytes(), UTF_8);
-            String topic = message.getTopic().toString();
+    public void publishTargetTemperature(String roomType, Double targetTemperature) throws JsonProcessingException {
+        String topic = String.format("%s/temperature/target", roomType);
+        String jsonPayload = buildTargetTemperaturePayload(targetTemperature);
 
-            String[] topicByParts = topic.split("/");
-            if (topicByParts.length < 2) {
-                logger.error("Invalid topic, aborting message...");
-                return;
-            }
+        logger.info("Publishing target temperature command: {}...", jsonPayload);
+
+        publishCommand(topic, jsonPayload)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logger.error("Failed to publish target temperature command.", throwable);
+                    }
+                    else {
+                        logger.info("Successfully published target temperature command.");
+                        targetChanged(roomType, targetTemperature);
+                    }
+                });
+    }
 
-            String sensor = topicByParts[1]; // assumes topic is {roomType}/{sensor}/status
-            logger.info("Received latest {} sensor activity: {}.", sensor, payload);
+    // Only once the broker has the command, a refused or expired target must not move the thermostat.
+    private void targetChanged(String roomType, Double targetTemperature) {
+        applicationContext.publishEvent(new TargetTemperatureChangedEvent(roomRegistry.register(roomType), roomType, targetTemperature));
+    }
 
-            // Example string format: {"status": true, "timestamp": "2025-11-24T19:36:56"}
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode data = objectMapper.readTree(payload);
+    /*
+    Publishes every action of a scene without waiting in between, so all the commands are pipelined
+    over the command connection. We then wait once for all broker acknowledgements and report per command,
+    in the order of the scene; a command still unacknowledged at the timeout is reported as failed.
+    */
+    public List<CommandResultDTO> publishScene(List<RoomActionDTO> actions) throws JsonProcessingException {
+        logger.info("Publishing scene with {} room actions...", actions.size());
 
-            String roomType = extractRoomTypeFromTopic(topic);
-            boolean sensorStatus = data.get("status").asBoolean();
-            String recordingTime = data.get("timestamp").asText();
+        List<SceneCommand> commands = new ArrayList<>();
 
-            if (roomType.isEmpty()) {
-                logger.error("Invalid inputs, aborting...");
-                throw new InputMismatchException("Invalid inputs, aborting...");
+        for (RoomActionDTO action : actions) {
+            String roomType = action.getRoomType();
+
+            if (action.getHeaterStatus() != null) {
+                String topic = String.format("%s/heater/command", roomType);
+                commands.add(trackAck(publishCommand(topic, buildSensorCommandPayload(action.getHeaterStatus())), roomType, "heater", null));
+            }
+            if (action.getFanStatus() != null) {
+                String topic = String.format("%s/fan/command", roomType);
+                commands.add(trackAck(publishCommand(topic, buildSensorCommandPayload(action.getFanStatus())), roomType, "fan", null));
             }
-            if (recordingTime.isEmpty()) {
-                logger.error("Invalid inputs, aborting...");
-                throw new InputMismatchException("Invalid inputs, aborting...");
+            if (action.getTargetTemperature() != null) {
+                String topic = String.format("%s/temperature/target", roomType);
+                Double target = action.getTargetTemperature();
+                commands.add(trackAck(publishCommand(topic, buildTargetTemperaturePayload(target)), roomType, "target-temp", () -> targetChanged(roomType, target)));
             }
+        }
 
-            switch (sensor) {
-                case "heater" -> {
-                    HeaterDTO newHeaterStatus = new HeaterDTO();
-                    newHeaterStatus.setRoomType(roomType);
-                    newHeaterStatus.setHeaterStatus(sensorStatus);
-                    newHeaterStatus.setRecordingTime(recordingTime);
+        try {
+            CompletableFuture.allOf(commands.stream().map(SceneCommand::result).toArray(CompletableFuture[]::new))
+                    .get(SCENE_ACK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (TimeoutException e) {
+            logger.error("Scene acknowledgements timed out after {} seconds.", SCENE_ACK_TIMEOUT_SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while waiting for scene acknowledgements.");
+        }
+        catch (ExecutionException e) {
+            // Never thrown, each tracked future already recovers from its own failure.
+            logger.error("Unexpected failure while waiting for scene acknowledgements.", e);
+        }
 
-                    heaterService.recordHeaterStatus(newHeaterStatus);
-                }
-                case "fan" -> {
-                    FanDTO newFanStatus = new FanDTO();
-                    newFanStatus.setRoomType(roomType);
-                    newFanStatus.setFanStatus(sensorStatus);
-                    newFanStatus.setRecordingTime(recordingTime);
+        // Still pending commands stay in the journal and may be acknowledged later, this response cannot wait for them.
+        String timedOut = "Not acknowledged within " + SCENE_ACK_TIMEOUT_SECONDS + " seconds.";
+        List<CommandResultDTO> results = commands.stream()
+                .map(command -> command.result().getNow(new CommandResultDTO(command.roomType(), command.command(), false, timedOut)))
+                .toList();
+
+        long acknowledged = results.stream().filter(CommandResultDTO::isSuccess).count();
+        if (acknowledged < results.size()) {
+            logger.warn("Only {} of {} scene commands were acknowledged.", acknowledged, results.size());
+        }
+        logger.info("Scene published, {} commands acknowledged.", acknowledged);
+        return results;
+    }
 
-                    fanService.recordFanStatus(newFanStatus);
+    private record SceneCommand(String roomType, String command, CompletableFuture<CommandResultDTO> result) {
+    }
+
+    // onAcknowledged runs once the broker has acknowledged the command, null for none.
+    private SceneCommand trackAck(CompletableFuture<Mqtt5PublishResult> publish, String roomType, String command, Runnable onAcknowledged) {
+        return new SceneCommand(roomType, command, publish.handle((result, throwable) -> {
+            Throwable error = throwable != null ? throwable : result.getError().orElse(null);
+            if (error != null) {
+                logger.error("Failed to publish {} command for room {}.", command, roomType, error);
+                return new CommandResultDTO(roomType, command, false, error.getMessage());
+            }
+            if (onAcknowledged != null) {
+                try {
+                    onAcknowledged.run();
                 }
-                default -> {
-                    logger.error("Invalid sensor type, aborting...");
-                    throw new InputMismatchException("Invalid sensor type, aborting...");
+                catch (RuntimeException e) {
+                    // The device has the command all the same, only our own bookkeeping failed.
+                    logger.error("Error applying acknowledged {} command for room {}.", command, roomType, e);
                 }
             }
-        }
-        catch (Exception e) {
-            logger.error("Error occurred while handling heater status message.", e);
-            logger.error("Nothing has been done with the message.", e);
-        }
+            return new CommandResultDTO(roomType, command, true, null);
+        }));
     }
 
     /*
-    ================================================
-    MQTT Publish Handlers
-    ================================================
+    Commands go through the command journal: written down first, published right away while connected,
+    otherwise held until the client reconnects. The returned future completes on the broker's acknowledgement,
+    which may come after a replay, and fails if the command is superseded, expires or is refused by the broker.
     */
+    private CompletableFuture<Mqtt5PublishResult> publishCommand(String topic, String jsonPayload) {
+        CommandJournal.PendingCommand command = commandJournal.append(topic, jsonPayload);
 
-    public void publishSensorCommands(String sensor, String roomType, Boolean status) throws JsonProcessingException {
-        String topic = String.format("%s/%s/command", roomType, sensor);
-        String command = status ? "on" : "off";
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        // Create and format date to our ISO format
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-        LocalDateTime now = LocalDateTime.now();
-        String timestamp = now.format(formatter);
-
-        ObjectNode payload = objectMapper.createObjectNode()
-                .put("status", command)
-                .put("timestamp", timestamp);
-
-        String jsonPayload = objectMapper.writeValueAsString(payload);
-
-        logger.info("Publishing {} sensor command: {}...", sensor, jsonPayload);
-
-        switch (sensor) {
-            case "heater", "fan" -> mqttClient.publishWith()
-                    .topic(topic)
-                    .payload(jsonPayload.getBytes(UTF_8))
-                    .qos(MqttQos.AT_LEAST_ONCE)
-                    .send()
-                    .whenComplete((result, throwable) -> {
-                        if (throwable != null) {
-                            logger.error("Failed to publish {} sensor command.", sensor, throwable);
-                            throw new RuntimeException(throwable);
-                        }
-                        else {
-                            logger.info("Successfully published {} sensor command.", sensor);
-                        }
-                    });
-            default -> {
-                logger.error("Invalid sensor type, aborting...");
-                throw new IllegalArgumentException("Invalid sensor type, aborting...");
-            }
+        if (commandClient.getState().isConnected()) {
+            send(command);
         }
+        else {
+            logger.warn("MQTT broker unavailable, queued command on {} until it reconnects.", topic);
+        }
+        return command.getResult();
     }
 
-    // TODO: Write publish command for set target temperature here...
-    public void publishTargetTemperature(String roomType, Double targetTemperature) throws JsonProcessingException {
-        String topic = String.format("%s/temperature/target", roomType);
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        // Create and format date to our ISO format
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-        LocalDateTime now = LocalDateTime.now();
-        String timestamp = now.format(formatter);
-
-        ObjectNode payload = objectMapper.createObjectNode()
-                .put("target_temp_f", targetTemperature)
-                .put("timestamp", timestamp);
+    @EventListener
+    public void onMqttConnected(MqttConnectedEvent event) {
+        if (!MqttConnectionState.COMMAND.equals(event.connection())) {
+            return;
+        }
 
-        String jsonPayload = objectMapper.writeValueAsString(payload);
+        List<CommandJournal.PendingCommand> pending = commandJournal.drainForReplay();
+        if (pending.isEmpty()) {
+            return;
+        }
 
-        logger.info("Publishing target temperature command: {}...", jsonPayload);
+        // One connection keeps the publishes in order, so devices end up with the newest command.
+        logger.info("Replaying {} queued commands...", pending.size());
+        pending.forEach(this::send);
+    }
 
-        mqttClient.publishWith()
-                .topic(topic)
-                .payload(jsonPayload.getBytes(UTF_8))
-                .qos(MqttQos.AT_LEAST_ONCE)
-                .send()
+    private void send(CommandJournal.PendingCommand command) {
+        publish(command.getTopic(), command.getPayload())
                 .whenComplete((result, throwable) -> {
                     if (throwable != null) {
-                        logger.error("Failed to publish target temperature command.", throwable);
-                        throw new RuntimeException(throwable);
+                        // Lost with the connection, it stays in the journal and is replayed on reconnect.
+                        logger.warn("Command on {} not acknowledged ({}), keeping it for replay.", command.getTopic(), throwable.getMessage());
+                    }
+                    else if (result.getError().isPresent()) {
+                        commandJournal.reject(command, result.getError().get());
                     }
                     else {
-                        logger.info("Successfully published target temperature command.");
+                        commandJournal.acknowledge(command, result);
                     }
                 });
     }
 
+    private CompletableFuture<Mqtt5PublishResult> publish(String topic, String jsonPayload) {
+        return commandClient.publishWith()
+                .topic(topic)
+                .payload(jsonPayload.getBytes(UTF_8))
+                .qos(MqttQos.AT_LEAST_ONCE)
+                .send();
+    }
+
+    private String buildSensorCommandPayload(Boolean status) throws JsonProcessingException {
+        ObjectNode payload = objectMapper.createObjectNode()
+                .put("status", status ? "on" : "off")
+                .put("timestamp", LocalDateTime.now().format(timestampFormatter));
+
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    private String buildTargetTemperaturePayload(Double targetTemperature) throws JsonProcessingException {
+        ObjectNode payload = objectMapper.createObjectNode()
+                .put("target_temp_f", targetTemperature)
+                .put("timestamp", LocalDateTime.now().format(timestampFormatter));
+
+        return objectMapper.writeValueAsString(payload);
+    }
+
     /*
     ================================================
     MQTT Utilities
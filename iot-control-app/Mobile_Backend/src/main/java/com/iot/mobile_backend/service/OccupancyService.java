@@ -0,0 +1,230 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.dto.OccupancySummaryDTO;
+import com.iot.mobile_backend.event.DevicePresenceChangedEvent;
+import com.iot.mobile_backend.event.PersonDetectionRecordedEvent;
+import com.iot.mobile_backend.model.OccupancySession;
+import com.iot.mobile_backend.repository.OccupancySessionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Turns the raw person detection samples into enter/exit sessions as they arrive. Only the open
+session of each room lives in memory; it is written when it opens, every checkpoint interval
+while it lasts, and when it closes, so the table holds one row per visit instead of per sample.
+
+A session ends with the first negative sample exit-grace after the last positive one. A camera that goes silent
+sends none, so a session also ends at its last positive sample once PresenceTracker reports the room's person
+source or controller offline. Sessions are loaded and saved under the room's own lock, readers get copies.
+*/
+@Service
+public class OccupancyService {
+
+    private final OccupancySessionRepository sessionRepository;
+    private final SingleFlight singleFlight;
+    private final RoomRegistry roomRegistry;
+    private final Map<Integer, RoomSessions> rooms = new ConcurrentHashMap<>();
+    private final static Logger logger = LoggerFactory.getLogger(OccupancyService.class);
+
+    @Value("${occupancy.confidence-threshold:0.1}")
+    private double confidenceThreshold;
+
+    // Absence shorter than this does not end a session, the camera misses a frame now and then.
+    @Value("${occupancy.exit-grace:30s}")
+    private Duration exitGrace;
+
+    @Value("${occupancy.checkpoint-interval:60s}")
+    private Duration checkpointInterval;
+
+    // Locked while a sample of the room is applied.
+    private static class RoomSessions {
+        private OccupancySession open;
+        private LocalDateTime lastCheckpoint;
+    }
+
+    @Autowired
+    public OccupancyService(OccupancySessionRepository sessionRepository, SingleFlight singleFlight, RoomRegistry roomRegistry) {
+        this.sessionRepository = sessionRepository;
+        this.singleFlight = singleFlight;
+        this.roomRegistry = roomRegistry;
+    }
+
+    @PostConstruct
+    private void resumeOpenSessions() {
+        for (OccupancySession session : sessionRepository.findByOpenTrue()) {
+            RoomSessions room = roomFor(roomRegistry.register(session.getRoomType()));
+            room.open = session;
+            room.lastCheckpoint = session.getEndTime();
+        }
+        logger.info("Resumed {} open occupancy sessions.", rooms.size());
+    }
+
+    /*
+    ================================================
+    Incremental Sessionization
+    ================================================
+    */
+
+    @EventListener
+    public void onPersonDetectionRecorded(PersonDetectionRecordedEvent event) {
+        LocalDateTime time = event.detectionTime();
+        boolean occupied = isOccupied(event.personDetected(), event.confidence());
+
+        RoomSessions room = roomFor(event.roomId());
+        synchronized (room) {
+            OccupancySession session = room.open;
+            if (occupied) {
+                if (session == null) {
+                    openSession(room, event.roomType(), time, event.confidence());
+                }
+                else {
+                    extendSession(room, session, time, event.confidence());
+                }
+            }
+            else if (session != null && !time.isBefore(session.getEndTime().plus(exitGrace))) {
+                closeSession(room, session);
+            }
+        }
+    }
+
+    // A silent camera sends no negative sample, the session ends with its last positive one.
+    @EventListener
+    public void onDevicePresenceChanged(DevicePresenceChangedEvent event) {
+        if (event.online() || !(event.source().equals("person") || event.source().equals("device"))) {
+            return;
+        }
+
+        RoomSessions room = rooms.get(event.roomId());
+        if (room == null) {
+            return;
+        }
+        synchronized (room) {
+            if (room.open != null) {
+                logger.info("Closing the occupancy session of {}, its {} went offline ({}).", event.roomType(), event.source(), event.reason());
+                closeSession(room, room.open);
+            }
+        }
+    }
+
+    public boolean isOccupied(boolean personDetected, double confidence) {
+        return personDetected && confidence >= confidenceThreshold;
+    }
+
+    private RoomSessions roomFor(int roomId) {
+        return rooms.computeIfAbsent(roomId, id -> new RoomSessions());
+    }
+
+    // The session-changing methods are called with the room locked.
+    private void openSession(RoomSessions room, String roomType, LocalDateTime time, double confidence) {
+        OccupancySession session = new OccupancySession();
+        session.setRoomType(roomType);
+        session.setStartTime(time);
+        session.setEndTime(time);
+        session.setOpen(true);
+        session.setPeakConfidence(confidence);
+        session.setConfidenceSum(confidence);
+        session.setSampleCount(1);
+
+        logger.info("Occupancy session started in {} at {}.", roomType, time);
+        room.open = sessionRepository.save(session);
+        room.lastCheckpoint = time;
+    }
+
+    private void extendSession(RoomSessions room, OccupancySession session, LocalDateTime time, double confidence) {
+        if (time.isAfter(session.getEndTime())) {
+            session.setEndTime(time);
+        }
+        session.setPeakConfidence(Math.max(session.getPeakConfidence(), confidence));
+        session.setConfidenceSum(session.getConfidenceSum() + confidence);
+        session.setSampleCount(session.getSampleCount() + 1);
+
+        if (room.lastCheckpoint == null || !time.isBefore(room.lastCheckpoint.plus(checkpointInterval))) {
+            room.open = sessionRepository.save(session);
+            room.lastCheckpoint = time;
+        }
+    }
+
+    private void closeSession(RoomSessions room, OccupancySession session) {
+        session.setOpen(false);
+        sessionRepository.save(session);
+        room.open = null;
+        room.lastCheckpoint = null;
+
+        logger.info("Occupancy session ended in {} at {}.", session.getRoomType(), session.getEndTime());
+    }
+
+    /*
+    ================================================
+    Timeline Queries
+    ================================================
+    */
+
+    public List<OccupancySession> getTimeline(String roomType, LocalDate date) {
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+
+        List<OccupancySession> sessions = new ArrayList<>(singleFlight.execute("occupancy.timeline", roomType + "/" + date,
+                () -> sessionRepository.findOverlapping(roomType, from, to)));
+
+        // The stored open session may lag by up to one checkpoint, prefer the live one.
+        OccupancySession live = liveSession(roomRegistry.findId(roomType));
+        if (live != null && live.getStartTime().isBefore(to) && !live.getEndTime().isBefore(from)) {
+            sessions.removeIf(session -> session.getId().equals(live.getId()));
+            sessions.add(live);
+        }
+
+        return sessions;
+    }
+
+    // A copy of the room's open session, samples keep changing the original.
+    private OccupancySession liveSession(Integer roomId) {
+        RoomSessions room = roomId != null ? rooms.get(roomId) : null;
+        if (room == null) {
+            return null;
+        }
+        synchronized (room) {
+            if (room.open == null) {
+                return null;
+            }
+            OccupancySession copy = new OccupancySession();
+            copy.setId(room.open.getId());
+            copy.setRoomType(room.open.getRoomType());
+            copy.setStartTime(room.open.getStartTime());
+            copy.setEndTime(room.open.getEndTime());
+            copy.setOpen(room.open.getOpen());
+            copy.setPeakConfidence(room.open.getPeakConfidence());
+            copy.setConfidenceSum(room.open.getConfidenceSum());
+            copy.setSampleCount(room.open.getSampleCount());
+            return copy;
+        }
+    }
+
+    public OccupancySummaryDTO getDailySummary(String roomType, LocalDate date) {
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+
+        List<OccupancySession> sessions = getTimeline(roomType, date);
+        long occupiedSeconds = 0;
+        for (OccupancySession session : sessions) {
+            LocalDateTime start = session.getStartTime().isBefore(from) ? from : session.getStartTime();
+            LocalDateTime end = session.getEndTime().isAfter(to) ? to : session.getEndTime();
+            occupiedSeconds += Math.max(0, Duration.between(start, end).toSeconds());
+        }
+
+        double occupancyPercent = occupiedSeconds * 100.0 / Duration.ofDays(1).toSeconds();
+        return new OccupancySummaryDTO(roomType, date, sessions.size(), occupiedSeconds, occupancyPercent);
+    }
+}
@@ -0,0 +1,371 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.config.ReadingUniqueKeys;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import com.iot.mobile_backend.sensor.ReadingTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Service;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+Optional time-partitioned layout for the raw reading tables (storage.partition.enabled). iotdb.db keeps the
+current period and the hot-periods before it; older readings are moved into one SQLite file per period, named
+after its first day (partitions/iotdb-2025-06-01.db). A closed period's file is written once and then only
+read, so backups only copy new files, and retention drops a period by deleting its file instead of running a
+DELETE over the whole history. iotdb.db stays a couple of periods large, and its freed pages are reused.
+
+Live writes always go to iotdb.db. Readings stamped into an older period (a skewed device clock, a backfill
+import) are moved into that period's file on the next roll. Rooms, derived tables and import progress stay
+in iotdb.db, they are small.
+
+Readers ask for the partitions covering a time range and run the same SQL against each, oldest first. Archive
+files are read through their own read-only connections; only the roll ATTACHes them, on one pooled connection
+and detached again right after, so no other connection sees them and a query may span any number of periods.
+
+The newest row of every room (and sensor type) stays in iotdb.db however old it is: the latest-per-room queries
+of the repositories (room snapshots, /status/all) only read iotdb.db, and a room that has been quiet for longer
+than the hot periods would otherwise drop out of them. It moves with the next roll after a newer reading arrives.
+*/
+@Service
+public class PartitionStore {
+
+    public enum Period {
+        DAY,
+        WEEK,
+        MONTH;
+
+        public LocalDate start(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(DayOfWeek.MONDAY);
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+
+        public LocalDate plus(LocalDate start, long periods) {
+            return switch (this) {
+                case DAY -> start.plusDays(periods);
+                case WEEK -> start.plusWeeks(periods);
+                case MONTH -> start.plusMonths(periods);
+            };
+        }
+    }
+
+    private final static String FILE_PREFIX = "iotdb-";
+    private final static String FILE_SUFFIX = ".db";
+    private final static int MOVE_BATCH_SIZE = 10000;  // Rows per move transaction, keeps each write lock on iotdb.db short
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Period period;
+    private final Path directory;
+    private final int hotPeriods;
+    private final int retention;
+    private final Duration rollInterval;
+    private final ConcurrentNavigableMap<LocalDate, JdbcTemplate> archives = new ConcurrentSkipListMap<>();  // period start -> read-only file
+    private final static Logger logger = LoggerFactory.getLogger(PartitionStore.class);
+
+    private ScheduledExecutorService roller;
+
+    @Autowired
+    public PartitionStore(JdbcTemplate jdbcTemplate,
+                          @Value("${storage.partition.enabled:false}") boolean enabled,
+                          @Value("${storage.partition.period:month}") Period period,
+                          @Value("${storage.partition.directory:partitions}") Path directory,
+                          @Value("${storage.partition.hot-periods:1}") int hotPeriods,
+                          @Value("${storage.partition.retention:0}") int retention,
+                          @Value("${storage.partition.roll-interval:1h}") Duration rollInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.period = period;
+        this.directory = directory;
+        this.hotPeriods = hotPeriods;
+        this.retention = retention;
+        this.rollInterval = rollInterval;
+    }
+
+    /*
+    ================================================
+    Lifecycle
+    ================================================
+    */
+
+    @PostConstruct
+    private void openArchives() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                LocalDate start = startOf(file);
+                if (start != null) {
+                    archives.put(start, open(file));
+                }
+            });
+        }
+
+        if (retention > 0 && retention <= hotPeriods) {
+            logger.warn("Partition retention of {} periods does not reach past the {} hot periods, readings in iotdb.db outlive it.", retention, hotPeriods);
+        }
+        logger.info("Partitioned storage by {}: {} archived periods in {}, the current and {} previous periods in iotdb.db.",
+                period.name().toLowerCase(), archives.size(), directory.toAbsolutePath(), hotPeriods);
+    }
+
+    // Started once the application is up, so the first roll does not hold up startup.
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRolling() {
+        if (!enabled || rollInterval.isZero()) {
+            return;
+        }
+
+        roller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-roll");
+            thread.setDaemon(true);
+            return thread;
+        });
+        roller.scheduleWithFixedDelay(() -> {
+            try {
+                roll();
+            }
+            catch (Exception e) {
+                logger.error("Error rolling partitions, retrying in {}: {}", rollInterval, e.getMessage());
+            }
+        }, 0, rollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stopRolling() {
+        if (roller != null) {
+            roller.shutdownNow();
+        }
+    }
+
+    /*
+    ================================================
+    Routing
+    ================================================
+    */
+
+    // Whether readings from fromMillis on are all still in iotdb.db.
+    public boolean isHot(long fromMillis) {
+        return !enabled || fromMillis >= toMillis(hotStart());
+    }
+
+    // Partitions that can hold readings in [fromMillis, toMillis), oldest first and iotdb.db last. Null bounds are open.
+    public List<JdbcTemplate> partitionsFor(Long fromMillis, Long toMillis) {
+        List<JdbcTemplate> partitions = new ArrayList<>();
+        for (Map.Entry<LocalDate, JdbcTemplate> archive : archives.entrySet()) {
+            long start = toMillis(archive.getKey());
+            long end = toMillis(period.plus(archive.getKey(), 1));
+            if ((toMillis == null || start < toMillis) && (fromMillis == null || end > fromMillis)) {
+                partitions.add(archive.getValue());
+            }
+        }
+
+        // Also holds readings of archived periods that arrived since the last roll.
+        partitions.add(jdbcTemplate);
+        return partitions;
+    }
+
+    /*
+    ================================================
+    Roll
+    ================================================
+    */
+
+    // Moves readings older than the hot periods into their period's file, then drops files past retention.
+    // Must not be called inside a transaction, SQLite cannot ATTACH in one.
+    public synchronized void roll() {
+        if (!enabled) {
+            return;
+        }
+
+        long hotStartMillis = toMillis(hotStart());
+        for (ReadingTable table : ReadingTable.all()) {
+            String time = table.timeColumn();
+            String movable = movable(table);
+            Long oldest = jdbcTemplate.queryForObject("SELECT MIN(" + time + ") FROM " + table.table() + " WHERE " + movable, Long.class);
+            while (oldest != null && oldest < hotStartMillis) {
+                LocalDate start = period.start(EpochMillisConverter.fromEpochMillis(oldest).toLocalDate());
+                LocalDate end = period.plus(start, 1);
+                move(table, movable, start, end);
+                oldest = jdbcTemplate.queryForObject("SELECT MIN(" + time + ") FROM " + table.table() + " WHERE " + movable + " AND " + time + " >= ?", Long.class, toMillis(end));
+            }
+        }
+
+        dropExpired();
+    }
+
+    /*
+    Moves the table's movable readings of one period into the period's file, in batches. Each batch is copied and
+    deleted in one transaction on the connection that has the file attached, so a reader never finds a reading in
+    both files (a crash between the two commits leaves it in both, the next roll finishes the move, the copy ignores
+    rows the file already has). Rows added after the move started are left for the next roll.
+    */
+    private void move(ReadingTable table, String movable, LocalDate start, LocalDate end) {
+        Path file = fileOf(start);
+        String time = table.timeColumn();
+        long fromMillis = toMillis(start);
+        long toMillis = toMillis(end);
+        Long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table.table(), Long.class);
+
+        int[] moved = jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            JdbcTemplate attached = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            attached.update("ATTACH DATABASE ? AS archive", file.toString());
+            try {
+                // Written once and then read-only, a rollback journal keeps it a single file.
+                attached.queryForObject("PRAGMA archive.journal_mode = DELETE", String.class);
+                // Every file holds every reading table, so readers can run the same SQL against any partition.
+                ReadingTable.all().forEach(other -> createArchiveTable(attached, other));
+                String columns = String.join(", ", createArchiveTable(attached, table));
+
+                // The same ids for the copy and the delete, nobody else writes while the batch holds the lock.
+                String batch = "SELECT id FROM main." + table.table() + " WHERE " + movable + " AND " + time + " >= ? AND " + time + " < ? AND id <= ? ORDER BY id LIMIT ?";
+                int copied = 0;
+                int deleted = 0;
+                int count;
+                do {
+                    attached.execute("BEGIN IMMEDIATE");
+                    try {
+                        copied += attached.update("INSERT OR IGNORE INTO archive." + table.table() + " (" + columns + ") SELECT " + columns + " FROM main." + table.table()
+                                + " WHERE id IN (" + batch + ")", fromMillis, toMillis, lastId, MOVE_BATCH_SIZE);
+                        count = attached.update("DELETE FROM main." + table.table() + " WHERE id IN (" + batch + ")", fromMillis, toMillis, lastId, MOVE_BATCH_SIZE);
+                        attached.execute("COMMIT");
+                    }
+                    catch (RuntimeException e) {
+                        attached.execute("ROLLBACK");
+                        throw e;
+                    }
+                    deleted += count;
+                } while (count > 0);
+                return new int[]{copied, deleted};
+            }
+            finally {
+                attached.execute("DETACH DATABASE archive");
+            }
+        });
+
+        archives.computeIfAbsent(start, key -> open(file));
+        logger.info("Moved {} rows of {} from {} into {} ({} already there).", moved[1], table.table(), start, file.getFileName(), moved[1] - moved[0]);
+    }
+
+    // Every row but the newest of each room (and sensor type), as a WHERE condition. Room counts are small, the ids are inlined.
+    private String movable(ReadingTable table) {
+        List<Long> latest = jdbcTemplate.queryForList("SELECT MAX(id) FROM " + table.table() + " GROUP BY room_id" + (table.generic() ? ", sensor_type" : ""), Long.class);
+        if (latest.isEmpty()) {
+            return "1 = 1";
+        }
+        return "id NOT IN (" + latest.stream().map(String::valueOf).collect(Collectors.joining(", ")) + ")";
+    }
+
+    // Creates the table and its unique key in the attached file, or adds columns iotdb.db gained since. Returns the column names.
+    private static List<String> createArchiveTable(JdbcTemplate attached, ReadingTable table) {
+        List<String> archiveColumns = attached.queryForList("SELECT name FROM pragma_table_info(?, 'archive')", String.class, table.table());
+        if (archiveColumns.isEmpty()) {
+            attached.execute("CREATE TABLE archive." + table.table() + " AS SELECT * FROM main." + table.table() + " WHERE 0");
+            ReadingUniqueKeys.UniqueKey key = ReadingUniqueKeys.KEYS.get(table.table());
+            attached.execute("CREATE UNIQUE INDEX archive." + key.name() + " ON " + table.table() + " (" + key.columns() + ")");
+        }
+
+        List<String> columns = new ArrayList<>();
+        attached.query("SELECT name, type FROM pragma_table_info(?, 'main')", resultSet -> {
+            String column = resultSet.getString(1);
+            if (!archiveColumns.isEmpty() && !archiveColumns.contains(column)) {
+                attached.execute("ALTER TABLE archive." + table.table() + " ADD COLUMN " + column + " " + resultSet.getString(2));
+            }
+            columns.add(column);
+        }, table.table());
+        return columns;
+    }
+
+    private void dropExpired() {
+        if (retention <= 0) {
+            return;
+        }
+
+        LocalDate oldestKept = period.plus(period.start(LocalDate.now()), -retention);
+        for (LocalDate start : archives.headMap(oldestKept).keySet()) {
+            archives.remove(start);
+            try {
+                Files.deleteIfExists(fileOf(start));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            logger.info("Dropped the partition of {}, past the retention of {} periods.", start, retention);
+        }
+    }
+
+    /*
+    ================================================
+    Files
+    ================================================
+    */
+
+    private LocalDate hotStart() {
+        return period.plus(period.start(LocalDate.now()), -hotPeriods);
+    }
+
+    private Path fileOf(LocalDate start) {
+        return directory.resolve(FILE_PREFIX + start + FILE_SUFFIX);
+    }
+
+    // Period start of a partition file, null for anything else in the directory.
+    private LocalDate startOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return null;
+        }
+        try {
+            LocalDate start = LocalDate.parse(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+            return period.start(start).equals(start) ? start : null;
+        }
+        catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static JdbcTemplate open(Path file) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        SQLiteDataSource dataSource = new SQLiteDataSource(config);
+        dataSource.setUrl("jdbc:sqlite:" + file);
+        return new JdbcTemplate(dataSource);
+    }
+
+    private static long toMillis(LocalDate date) {
+        return EpochMillisConverter.toEpochMillis(date.atStartOfDay());
+    }
+}
@@ -1,6 +1,7 @@
 package com.iot.mobile_backend.service;
 
 import com.iot.mobile_backend.dto.PersonDetectionDTO;
+import com.iot.mobile_backend.event.PersonDetectionRecordedEvent;
 import com.iot.mobile_backend.model.PersonDetection;
 import com.iot.mobile_backend.repository.PersonDetectRepo;
 import org.slf4j.Logger;
@@ -8,32 +9,37 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class PersonDetectService {
 
     private final PersonDetectRepo personDetectRepo;
+    private final RecordedEvents recordedEvents;
+    private final SingleFlight singleFlight;
+    private final RoomRegistry roomRegistry;
     private final static Logger logger = LoggerFactory.getLogger(PersonDetectService.class);
 
     @Autowired
-    public PersonDetectService(PersonDetectRepo personDetectRepo) {
+    public PersonDetectService(PersonDetectRepo personDetectRepo, RecordedEvents recordedEvents, SingleFlight singleFlight, RoomRegistry roomRegistry) {
         this.personDetectRepo = personDetectRepo;
+        this.recordedEvents = recordedEvents;
+        this.singleFlight = singleFlight;
+        this.roomRegistry = roomRegistry;
     }
 
     public PersonDetection getLatestPersonDetectionRecordByRoom(String roomType)
     {
         logger.info("Checking current person detection status for this room: {}...", roomType);
 
-        return personDetectRepo.findFirstByRoomTypeOrderByDetectionTimeDesc(roomType)
+        return singleFlight.execute("person.current", roomType, () -> personDetectRepo.findFirstByRoomTypeOrderByDetectionTimeDesc(roomType))
                 .orElseThrow(() -> new RuntimeException("No person detection data found for this room."));
     }
 
     public List<PersonDetection> getAllPersonDetectionRecords() {
         logger.info("Fetching all person detection records in each room...");
 
-        List<PersonDetection> personDetections = personDetectRepo.getAllRoomDetections();
+        List<PersonDetection> personDetections = singleFlight.execute("person.all", "", personDetectRepo::getAllRoomDetections);
 
         if (personDetections.isEmpty()) {
             logger.warn("No person detection data found.");
@@ -43,30 +49,24 @@ public class PersonDetectService {
     }
 
     public void recordPersonDetection(PersonDetectionDTO detectionDTO) {
-        logger.info("Recording new person detection activity at time: {} for this room, {}...", detectionDTO.getDetectionTime(), detectionDTO.getRoomType());
+        recordPersonDetection(detectionDTO, System.nanoTime());
+    }
+
+    // receivedAtNanos is when the sample reached the backend, used to measure sensor-to-actuation latency.
+    public void recordPersonDetection(PersonDetectionDTO detectionDTO, long receivedAtNanos) {
+        logger.debug("Recording new person detection activity at time: {} for this room, {}...", detectionDTO.getDetectionTime(), detectionDTO.getRoomType());
 
         PersonDetection newDetection = new PersonDetection();
         newDetection.setRoomType(detectionDTO.getRoomType());
         newDetection.setPersonDetected(detectionDTO.getPersonDetected());
         newDetection.setConfidence(detectionDTO.getConfidence());
-        newDetection.setDetectionTime(parseRecordingTime(detectionDTO.getDetectionTime()));
+        newDetection.setDetectionTime(TimestampParser.parseOrNow(detectionDTO.getDetectionTime()));
 
+        // Register the room before the write, the converter only stores ids it already knows.
+        int roomId = roomRegistry.register(detectionDTO.getRoomType());
         personDetectRepo.save(newDetection);
-        logger.info("New detected activity at the room, {} has been added to database.", detectionDTO.getRoomType());
-    }
+        logger.debug("New detected activity at the room, {} has been added to database.", detectionDTO.getRoomType());
 
-    private LocalDateTime parseRecordingTime(String recordingTime) {
-        if (recordingTime.isEmpty()) {
-            logger.warn("Recording time is empty or null, defaulting to current time.");
-            return LocalDateTime.now();
-        }
-
-        try {
-            return LocalDateTime.parse(recordingTime);  // ISO format: yyyy-MM-ddTHH:mm:ss
-        }
-        catch (Exception e) {
-            logger.warn("Invalid recording time format, defaulting to current time.");
-            return LocalDateTime.now();
-        }
+        recordedEvents.publish(new PersonDetectionRecordedEvent(roomId, newDetection.getRoomType(), newDetection.getPersonDetected(), newDetection.getConfidence(), newDetection.getDetectionTime(), receivedAtNanos));
     }
 }
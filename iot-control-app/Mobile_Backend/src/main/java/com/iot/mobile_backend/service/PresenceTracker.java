@@ -0,0 +1,310 @@
+package com.iot.mobile_backend.service;
+
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
+import com.hivemq.client.mqtt.datatypes.MqttTopicFilter;
+import com.iot.mobile_backend.config.PresenceProperties;
+import com.iot.mobile_backend.dto.PresenceDTO;
+import com.iot.mobile_backend.event.DevicePresenceChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Online/offline state of everything the backend hears from, per room and source: the sensor type of a status
+topic, or "device" for a room controller's last will. Any message on a status topic marks its source online.
+The controller's last-will topic is authoritative for "device": "online" once it connects, "offline" when the
+broker publishes its last will.
+
+Silence is caught by one TimingWheel ticked by one thread, not a scheduled task per source. A message only writes
+the source's last-seen time; every online source has a single wheel entry, and when it comes due the source either
+goes offline or, heard from in the meantime, goes back into the wheel at its new deadline. A last will takes the
+source offline at once and cancels its entry. While the backend itself is not subscribed to the broker silence
+proves nothing, so due entries are put back instead.
+*/
+@Service
+@EnableConfigurationProperties(PresenceProperties.class)
+public class PresenceTracker {
+
+    private final static String LAST_WILL_SOURCE = "device";
+
+    private record SourceKey(String roomType, String source) {
+    }
+
+    private static class Source {
+        private final SourceKey key;
+        private final long offlineAfterMillis;
+        private volatile long lastSeenMillis;
+        private volatile long sinceMillis;
+        private volatile boolean online;
+        private volatile String reason;
+        private volatile TimingWheel<Source>.Timeout timeout;  // The source's wheel entry, null while it has none
+        private Counter wentOnline;
+        private Counter wentOffline;
+
+        private Source(SourceKey key, long offlineAfterMillis) {
+            this.key = key;
+            this.offlineAfterMillis = offlineAfterMillis;
+        }
+    }
+
+    private final PresenceProperties properties;
+    private final MqttConnectionState connectionState;
+    private final RoomRegistry roomRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Map<SourceKey, Source> sources = new ConcurrentHashMap<>();
+    private final MqttTopicFilter lastWillFilter;
+    private final TimingWheel<Source> wheel;  // Guarded by itself, always locked after a source, never before
+    private ScheduledExecutorService ticker;
+    private final static Logger logger = LoggerFactory.getLogger(PresenceTracker.class);
+
+    @Autowired
+    public PresenceTracker(PresenceProperties properties, @Qualifier("ingestConnectionState") MqttConnectionState connectionState, RoomRegistry roomRegistry,
+                           ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.connectionState = connectionState;
+        this.roomRegistry = roomRegistry;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.lastWillFilter = MqttTopicFilter.of(properties.getLastWillTopicFilter());
+        this.wheel = new TimingWheel<>(properties.getTick().toMillis(), properties.getWheelSlots(), System.currentTimeMillis());
+
+        Gauge.builder("device.presence.online", sources, all -> all.values().stream().filter(source -> source.online).count())
+                .description("Devices and sensors currently online")
+                .register(meterRegistry);
+        Gauge.builder("device.presence.offline", sources, all -> all.values().stream().filter(source -> !source.online).count())
+                .description("Devices and sensors currently offline")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startTicking() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = properties.getTick().toMillis();
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                tick(System.currentTimeMillis());
+            }
+            catch (Exception e) {
+                logger.error("Error advancing the presence wheel: {}", e.getMessage(), e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stopTicking() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /*
+    ================================================
+    Ingest Hooks
+    ================================================
+    */
+
+    // Any message on a status topic, valid or not, the sender is alive.
+    public void seen(String roomType, String source) {
+        Source tracked = sourceFor(roomType, source);
+        long now = System.currentTimeMillis();
+        tracked.lastSeenMillis = now;
+
+        // The common case costs two volatile reads: online, and already waiting in the wheel.
+        if (tracked.online && (tracked.timeout != null || tracked.offlineAfterMillis <= 0)) {
+            return;
+        }
+        synchronized (tracked) {
+            if (!tracked.online) {
+                transition(tracked, true, "message received", now);
+            }
+            schedule(tracked, now + tracked.offlineAfterMillis);
+        }
+    }
+
+    // A message on a controller's last-will topic: "online" when it connects, "offline" when it is gone.
+    public void lastWill(String roomType, String payload) {
+        String status = payload.trim().replace("\"", "").toLowerCase();
+        if (!status.equals("online") && !status.equals("offline")) {
+            logger.warn("Unexpected last-will payload '{}' from {}, ignoring it.", payload, roomType);
+            return;
+        }
+
+        Source tracked = sourceFor(roomType, LAST_WILL_SOURCE);
+        long now = System.currentTimeMillis();
+        synchronized (tracked) {
+            boolean online = status.equals("online");
+            if (online) {
+                tracked.lastSeenMillis = now;
+                schedule(tracked, now + tracked.offlineAfterMillis);
+            }
+            else {
+                unschedule(tracked);
+            }
+            // A retained "online" arrives again with every resubscription, only changes count.
+            if (online != tracked.online || tracked.sinceMillis == 0) {
+                transition(tracked, online, online ? "announced online" : "last will", now);
+            }
+        }
+    }
+
+    public String getLastWillTopicFilter() {
+        return properties.getLastWillTopicFilter();
+    }
+
+    public boolean isLastWillTopic(MqttTopic topic) {
+        return lastWillFilter.matches(topic);
+    }
+
+    private Source sourceFor(String roomType, String source) {
+        return sources.computeIfAbsent(new SourceKey(roomType, source), key -> {
+            Source created = new Source(key, properties.offlineAfter(source).toMillis());
+            Gauge.builder("device.online", created, tracked -> tracked.online ? 1 : 0)
+                    .description("1 while the device or sensor is online")
+                    .tags("room", roomType, "source", source)
+                    .register(meterRegistry);
+            created.wentOnline = transitionCounter(roomType, source, "online");
+            created.wentOffline = transitionCounter(roomType, source, "offline");
+            return created;
+        });
+    }
+
+    private Counter transitionCounter(String roomType, String source, String state) {
+        return Counter.builder("device.presence.transitions")
+                .description("Devices and sensors going online or offline")
+                .tags("room", roomType, "source", source, "state", state)
+                .register(meterRegistry);
+    }
+
+    /*
+    ================================================
+    Timing Wheel
+    ================================================
+    */
+
+    // Called with the source locked.
+    private void schedule(Source source, long deadlineMillis) {
+        if (source.offlineAfterMillis <= 0 || source.timeout != null) {
+            return;
+        }
+        synchronized (wheel) {
+            source.timeout = wheel.schedule(source, deadlineMillis);
+        }
+    }
+
+    // Called with the source locked. An offline source has nothing left to time out.
+    private void unschedule(Source source) {
+        if (source.timeout == null) {
+            return;
+        }
+        synchronized (wheel) {
+            source.timeout.cancel();
+        }
+        source.timeout = null;
+    }
+
+    private void tick(long nowMillis) {
+        // Due sources are collected under the wheel's lock and handled after it, sources are locked first.
+        List<Source> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advance(nowMillis, due::add);
+        }
+
+        boolean listening = connectionState.getStatus() == MqttConnectionState.Status.SUBSCRIBED;
+        for (Source source : due) {
+            synchronized (source) {
+                // Cancelled by a last will, or replaced by a newer entry, after the wheel handed it out.
+                if (source.timeout == null || source.timeout.isPending()) {
+                    continue;
+                }
+                source.timeout = null;
+                long deadline = source.lastSeenMillis + source.offlineAfterMillis;
+
+                if (!listening) {
+                    schedule(source, nowMillis + source.offlineAfterMillis);
+                }
+                else if (deadline > nowMillis) {
+                    schedule(source, deadline);
+                }
+                else if (source.online) {
+                    transition(source, false, "silent for " + (nowMillis - source.lastSeenMillis) / 1000 + "s", nowMillis);
+                }
+            }
+        }
+    }
+
+    // Called with the source locked.
+    private void transition(Source source, boolean online, String reason, long nowMillis) {
+        source.online = online;
+        source.reason = reason;
+        source.sinceMillis = nowMillis;
+
+        String roomType = source.key.roomType();
+        String name = source.key.source();
+        (online ? source.wentOnline : source.wentOffline).increment();
+
+        if (online) {
+            logger.info("{} of {} is online ({}).", name, roomType, reason);
+        }
+        else {
+            logger.warn("{} of {} is offline ({}).", name, roomType, reason);
+        }
+        eventPublisher.publishEvent(new DevicePresenceChangedEvent(roomRegistry.register(roomType), roomType, name, online, reason));
+    }
+
+    /*
+    ================================================
+    Queries
+    ================================================
+    */
+
+    public List<PresenceDTO> getAll() {
+        long nowMillis = System.currentTimeMillis();
+        return sources.values().stream()
+                .sorted(Comparator.comparing((Source source) -> source.key.roomType()).thenComparing(source -> source.key.source()))
+                .map(source -> toDTO(source, nowMillis))
+                .toList();
+    }
+
+    public List<PresenceDTO> getRoom(String roomType) {
+        return getAll().stream()
+                .filter(presence -> presence.getRoomType().equals(roomType))
+                .toList();
+    }
+
+    // Backend wall-clock times, unlike the device timestamps elsewhere.
+    private static PresenceDTO toDTO(Source source, long nowMillis) {
+        return new PresenceDTO(source.key.roomType(), source.key.source(), source.online, source.reason,
+                toLocal(source.sinceMillis), toLocal(source.lastSeenMillis), source.lastSeenMillis > 0 ? (nowMillis - source.lastSeenMillis) / 1000 : null);
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return millis > 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()) : null;
+    }
+}
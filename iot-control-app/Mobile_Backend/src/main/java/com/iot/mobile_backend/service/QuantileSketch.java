@@ -0,0 +1,258 @@
+package com.iot.mobile_backend.service;
+
+import java.nio.ByteBuffer;
+
+/*
+A DDSketch: values are counted in logarithmic bins, so any quantile comes back within relativeAccuracy of the
+true value (0.002 is ±0.14 °F at 70 °F), whatever the distribution. Two sketches with the same accuracy merge
+by adding their bin counts, which is what lets percentiles of a week be answered from seven daily sketches.
+A day of one room's temperatures fills a few dozen bins, a few hundred bytes serialized.
+
+Not thread safe, see TemperaturePercentileService for how it is guarded.
+*/
+public class QuantileSketch {
+
+    private final static byte FORMAT = 1;
+
+    // Magnitudes below this are counted as zero, the logarithm would run away.
+    private final static double MIN_INDEXABLE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double multiplier;
+    private final Bins positive = new Bins();
+    private final Bins negative = new Bins();
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum;
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1, got " + relativeAccuracy + ".");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.multiplier = 1 / Math.log(gamma);
+    }
+
+    public void add(double value) {
+        if (value > MIN_INDEXABLE) {
+            positive.add(index(value), 1);
+        }
+        else if (value < -MIN_INDEXABLE) {
+            negative.add(index(-value), 1);
+        }
+        else {
+            zeroCount++;
+        }
+
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches of relative accuracy " + other.relativeAccuracy + " and " + relativeAccuracy + ".");
+        }
+        if (other.count == 0) {
+            return;
+        }
+
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sum += other.sum;
+    }
+
+    // Value at quantile q (0 to 1), null while empty.
+    public Double quantile(double q) {
+        if (count == 0) {
+            return null;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+
+        // Walk the bins from the most negative value up until the rank is passed.
+        double rank = q * (count - 1);
+        long seen = 0;
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) {
+                return clamp(-value(negative.offset + i));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return clamp(0);
+        }
+        for (int i = 0; i < positive.counts.length; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) {
+                return clamp(value(positive.offset + i));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMin() {
+        return count > 0 ? min : null;
+    }
+
+    public Double getMax() {
+        return count > 0 ? max : null;
+    }
+
+    public Double getMean() {
+        return count > 0 ? sum / count : null;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    // Bin i holds (gamma^(i-1), gamma^i].
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) * multiplier);
+    }
+
+    // The point of bin i within relativeAccuracy of both of its ends.
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    // The exact min and max are known, a bin's value never reaches past them.
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /*
+    ================================================
+    Serialization
+    ================================================
+    */
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 * 6 + positive.size() + negative.size());
+        buffer.put(FORMAT)
+                .putDouble(relativeAccuracy)
+                .putLong(count)
+                .putLong(zeroCount)
+                .putDouble(min)
+                .putDouble(max)
+                .putDouble(sum);
+        positive.write(buffer);
+        negative.write(buffer);
+        return buffer.array();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unknown sketch format " + format + ".");
+        }
+
+        QuantileSketch sketch = new QuantileSketch(buffer.getDouble());
+        sketch.count = buffer.getLong();
+        sketch.zeroCount = buffer.getLong();
+        sketch.min = buffer.getDouble();
+        sketch.max = buffer.getDouble();
+        sketch.sum = buffer.getDouble();
+        sketch.positive.read(buffer);
+        sketch.negative.read(buffer);
+        return sketch;
+    }
+
+    /*
+    ================================================
+    Bins
+    ================================================
+    */
+
+    // Counts of a contiguous range of bin indexes, starting at offset. Grows at either end as needed.
+    private static class Bins {
+        private long[] counts = new long[0];
+        private int offset;
+
+        private void add(int index, long increment) {
+            if (counts.length == 0) {
+                counts = new long[8];
+                offset = index - counts.length / 2;
+            }
+            else if (index < offset || index >= offset + counts.length) {
+                int from = Math.min(offset, index);
+                int to = Math.max(offset + counts.length, index + 1);
+                // Leave room to grow, temperatures drift across neighbouring bins.
+                int length = Math.max(to - from, counts.length * 2);
+                int newOffset = index < offset ? to - length : from;
+
+                long[] grown = new long[length];
+                System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+                counts = grown;
+                offset = newOffset;
+            }
+            counts[index - offset] += increment;
+        }
+
+        private void merge(Bins other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        // Only the used range is written.
+        private int first() {
+            int i = 0;
+            while (i < counts.length && counts[i] == 0) {
+                i++;
+            }
+            return i;
+        }
+
+        private int last() {
+            int i = counts.length - 1;
+            while (i >= 0 && counts[i] == 0) {
+                i--;
+            }
+            return i;
+        }
+
+        private int size() {
+            return 8 + 8 * Math.max(0, last() - first() + 1);
+        }
+
+        private void write(ByteBuffer buffer) {
+            int first = first();
+            int length = Math.max(0, last() - first + 1);
+            buffer.putInt(offset + first).putInt(length);
+            for (int i = 0; i < length; i++) {
+                buffer.putLong(counts[first + i]);
+            }
+        }
+
+        private void read(ByteBuffer buffer) {
+            offset = buffer.getInt();
+            counts = new long[buffer.getInt()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buffer.getLong();
+            }
+        }
+    }
+}
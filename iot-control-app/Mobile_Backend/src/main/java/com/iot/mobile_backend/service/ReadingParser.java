@@ -0,0 +1,69 @@
+package com.iot.mobile_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.sensor.SensorType;
+
+import java.util.InputMismatchException;
+
+/*
+Validation rules for one reading of a sensor type, shared by live MQTT ingest and the backfill importer
+so both accept exactly the same data. Throws InputMismatchException naming the first rule a reading breaks.
+*/
+public final class ReadingParser {
+
+    private ReadingParser() {
+    }
+
+    // Example data: {"temp_f": 74.1, "timestamp": "2025-11-24T19:36:55"}
+    public static SensorReadingDTO parse(SensorType type, String roomType, JsonNode data) {
+        String recordingTime = data.path("timestamp").asText();
+
+        if (roomType == null || roomType.isEmpty()) {
+            throw new InputMismatchException("Missing room, aborting...");
+        }
+        if (recordingTime.isEmpty()) {
+            throw new InputMismatchException("Missing timestamp, aborting...");
+        }
+
+        SensorReadingDTO reading = new SensorReadingDTO();
+        reading.setSensorType(type.name());
+        reading.setRoomType(roomType);
+        reading.setRecordingTime(recordingTime);
+
+        if (type.numericField() != null) {
+            JsonNode value = data.get(type.numericField());
+            if (value == null || !value.isNumber()) {
+                throw new InputMismatchException("Missing numeric " + type.numericField() + " value, aborting...");
+            }
+            if (!type.inRange(value.asDouble())) {
+                throw new InputMismatchException("Invalid " + type.numericField() + " value " + value.asDouble() + ", aborting...");
+            }
+            reading.setNumericValue(value.asDouble());
+        }
+        if (type.booleanField() != null) {
+            Boolean value = parseBoolean(data.get(type.booleanField()));
+            if (value == null) {
+                throw new InputMismatchException("Missing boolean " + type.booleanField() + " value, aborting...");
+            }
+            reading.setBooleanValue(value);
+        }
+
+        return reading;
+    }
+
+    // JSON booleans, or the "on"/"off" words the devices use for relay states.
+    public static Boolean parseBoolean(JsonNode value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        return switch (value.asText()) {
+            case "true", "on" -> true;
+            case "false", "off" -> false;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.iot.mobile_backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Publishes the *RecordedEvent of every stored reading. The listeners (latest state, occupancy, runtime, anomalies,
+sketches, thermal model, control loop) all keep state of their own, so they must see a reading exactly once and only
+once it is committed. IngestWriter therefore runs the sinks inside collect(): their events are held back while the
+transaction runs, dropped with it on a rollback and published by IngestWriter once it has committed. Outside
+collect() (REST test endpoints, readings stored on their own) events go out right away, the save has committed.
+*/
+@Component
+public class RecordedEvents {
+
+    private final static ThreadLocal<List<Object>> collected = new ThreadLocal<>();
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final static Logger logger = LoggerFactory.getLogger(RecordedEvents.class);
+
+    @Autowired
+    public RecordedEvents(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void publish(Object event) {
+        List<Object> pending = collected.get();
+        if (pending != null) {
+            pending.add(event);
+        }
+        else {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    // Runs the work and returns the events it published, none of which has reached a listener yet.
+    public List<Object> collect(Runnable work) {
+        List<Object> outer = collected.get();
+        List<Object> pending = new ArrayList<>();
+        collected.set(pending);
+        try {
+            work.run();
+            return pending;
+        }
+        finally {
+            collected.set(outer);
+        }
+    }
+
+    // After the commit. A failing listener is logged, it neither undoes the stored reading nor keeps the others from theirs.
+    public void publishAll(List<Object> events) {
+        for (Object event : events) {
+            try {
+                eventPublisher.publishEvent(event);
+            }
+            catch (RuntimeException e) {
+                logger.error("Listener failed on {}, the reading is stored.", event, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.iot.mobile_backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Assigns every room a compact integer id the first time it is seen. Ids are what the tables store
+and what in-memory caches are keyed by; names are only translated at the API boundary.
+Uses plain JDBC so it can be called from the JPA converter without re-entering Hibernate.
+*/
+@Service
+@DependsOn("schemaMigration")
+public class RoomRegistry {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private final static Logger logger = LoggerFactory.getLogger(RoomRegistry.class);
+
+    @Autowired
+    public RoomRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    private void loadRooms() {
+        reload();
+        logger.info("Loaded {} rooms into the room registry.", idsByName.size());
+    }
+
+    // Id of the room, registering it on first sight. Must not be called inside an open write transaction.
+    public int register(String roomType) {
+        Integer id = idsByName.get(roomType);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = idsByName.get(roomType);
+            if (id != null) {
+                return id;
+            }
+
+            // OR IGNORE, another process (e.g. the importer) may have added it meanwhile.
+            jdbcTemplate.update("INSERT OR IGNORE INTO room (name) VALUES (?)", roomType);
+            id = jdbcTemplate.queryForObject("SELECT id FROM room WHERE name = ?", Integer.class, roomType);
+            put(id, roomType);
+
+            logger.info("Registered new room {} with id {}.", roomType, id);
+            return id;
+        }
+    }
+
+    // Id of an already known room, or null. Never writes.
+    public Integer findId(String roomType) {
+        return idsByName.get(roomType);
+    }
+
+    public String nameOf(int roomId) {
+        String name = namesById.get(roomId);
+        if (name == null) {
+            // Added by another process since we loaded.
+            reload();
+            name = namesById.get(roomId);
+        }
+        return name;
+    }
+
+    private synchronized void reload() {
+        jdbcTemplate.query("SELECT id, name FROM room", resultSet -> {
+            put(resultSet.getInt("id"), resultSet.getString("name"));
+        });
+    }
+
+    private void put(int id, String name) {
+        namesById.put(id, name);
+        idsByName.put(name, id);
+    }
+}
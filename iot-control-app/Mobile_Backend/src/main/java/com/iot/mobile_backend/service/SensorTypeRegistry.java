@@ -0,0 +1,123 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.config.SensorProperties;
+import com.iot.mobile_backend.dto.FanDTO;
+import com.iot.mobile_backend.dto.HeaterDTO;
+import com.iot.mobile_backend.dto.PersonDetectionDTO;
+import com.iot.mobile_backend.dto.TemperatureDTO;
+import com.iot.mobile_backend.sensor.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+Every sensor type the backend ingests. MqttService subscribes to and validates all of them the same way.
+The four built-in types keep their own tables because the control loop, occupancy, runtime and room
+snapshots are built on them; types from configuration go to the generic sensor_reading table.
+*/
+@Service
+@EnableConfigurationProperties(SensorProperties.class)
+public class SensorTypeRegistry {
+
+    private final Map<String, SensorType> types = new LinkedHashMap<>();
+    private final static Logger logger = LoggerFactory.getLogger(SensorTypeRegistry.class);
+
+    @Autowired
+    public SensorTypeRegistry(TemperatureService temperatureService, PersonDetectService personDetectService, HeaterService heaterService, FanService fanService,
+                              GenericSensorService genericSensorService, SensorProperties properties) {
+        // Example: {"temp_f": 74.1, "timestamp": "2025-11-24T19:36:55"}
+        add(new SensorType("temperature", "temperature/status", "temp_f", 0.0, null, null, true, (reading, receivedAtNanos) -> {
+            TemperatureDTO newTemperature = new TemperatureDTO();
+            newTemperature.setRoomType(reading.getRoomType());
+            newTemperature.setTemperature(reading.getNumericValue());
+            newTemperature.setRecordingTime(reading.getRecordingTime());
+
+            temperatureService.recordTemperature(newTemperature, receivedAtNanos);
+        }));
+
+        // Example: {"status": true, "confidence": 0.8003, "timestamp": "2025-11-24T19:36:56"}
+        add(new SensorType("person", "person/status", "confidence", 0.0, 1.0, "status", true, (reading, receivedAtNanos) -> {
+            PersonDetectionDTO newDetection = new PersonDetectionDTO();
+            newDetection.setRoomType(reading.getRoomType());
+            newDetection.setPersonDetected(reading.getBooleanValue());
+            newDetection.setConfidence(reading.getNumericValue());
+            newDetection.setDetectionTime(reading.getRecordingTime());
+
+            personDetectService.recordPersonDetection(newDetection, receivedAtNanos);
+        }));
+
+        // Example: {"status": true, "timestamp": "2025-11-24T19:36:56"}
+        add(new SensorType("heater", "heater/status", null, null, null, "status", true, (reading, receivedAtNanos) -> {
+            HeaterDTO newHeaterStatus = new HeaterDTO();
+            newHeaterStatus.setRoomType(reading.getRoomType());
+            newHeaterStatus.setHeaterStatus(reading.getBooleanValue());
+            newHeaterStatus.setRecordingTime(reading.getRecordingTime());
+
+            heaterService.recordHeaterStatus(newHeaterStatus, receivedAtNanos);
+        }));
+
+        add(new SensorType("fan", "fan/status", null, null, null, "status", true, (reading, receivedAtNanos) -> {
+            FanDTO newFanStatus = new FanDTO();
+            newFanStatus.setRoomType(reading.getRoomType());
+            newFanStatus.setFanStatus(reading.getBooleanValue());
+            newFanStatus.setRecordingTime(reading.getRecordingTime());
+
+            fanService.recordFanStatus(newFanStatus, receivedAtNanos);
+        }));
+
+        properties.getTypes().forEach((name, definition) -> {
+            String topic = definition.getTopic() != null ? definition.getTopic() : name + "/status";
+            add(new SensorType(name, topic, definition.getNumericField(), definition.getMin(), definition.getMax(), definition.getBooleanField(), false,
+                    genericSensorService::recordReading));
+        });
+
+        logger.info("Registered {} sensor types: {}.", types.size(), types.keySet());
+    }
+
+    public Collection<SensorType> getAll() {
+        return Collections.unmodifiableCollection(types.values());
+    }
+
+    public Optional<SensorType> find(String name) {
+        return Optional.ofNullable(types.get(name));
+    }
+
+    // Type whose topic a message arrived on, e.g. roomA/temperature/status
+    public Optional<SensorType> findByTopic(String topic) {
+        String suffix = topic.substring(topic.indexOf('/') + 1);
+        return types.values().stream()
+                .filter(type -> type.topicSuffix().equals(suffix))
+                .findFirst();
+    }
+
+    // Fails startup on a definition that could never ingest anything, rather than dropping its messages later.
+    private void add(SensorType type) {
+        if (types.containsKey(type.name())) {
+            throw new IllegalStateException("Sensor type " + type.name() + " is already defined.");
+        }
+        if (type.numericField() == null && type.booleanField() == null) {
+            throw new IllegalStateException("Sensor type " + type.name() + " needs a numeric-field or a boolean-field.");
+        }
+        if (type.topicSuffix().contains("+") || type.topicSuffix().contains("#")) {
+            throw new IllegalStateException("Sensor type " + type.name() + " topic must not contain wildcards.");
+        }
+        if (type.min() != null && type.max() != null && type.min() > type.max()) {
+            throw new IllegalStateException("Sensor type " + type.name() + " has min greater than max.");
+        }
+        for (SensorType existing : types.values()) {
+            if (existing.topicSuffix().equals(type.topicSuffix())) {
+                throw new IllegalStateException("Sensor types " + existing.name() + " and " + type.name() + " share the topic " + type.topicSuffix() + ".");
+            }
+        }
+
+        types.put(type.name(), type);
+    }
+}
@@ -0,0 +1,87 @@
+package com.iot.mobile_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+Request coalescing for reads. The first caller of a key runs the query, every caller arriving while
+it is still running waits for and shares the same result (or exception). Nothing is cached once
+the query returns, the next call runs a fresh query.
+*/
+@Component
+public class SingleFlight {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> executedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+    private final Counter totalExecuted;
+    private final Counter totalCoalesced;
+
+    @Autowired
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.totalExecuted = Counter.builder("singleflight.total").tag("result", "executed").register(meterRegistry);
+        this.totalCoalesced = Counter.builder("singleflight.total").tag("result", "coalesced").register(meterRegistry);
+
+        // Share of calls that were answered by somebody else's query.
+        Gauge.builder("singleflight.coalescing.ratio", this, singleFlight -> {
+                    double executed = singleFlight.totalExecuted.count();
+                    double coalesced = singleFlight.totalCoalesced.count();
+                    return executed + coalesced == 0 ? 0 : coalesced / (executed + coalesced);
+                })
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String key, Supplier<T> query) {
+        String flightKey = operation + ":" + key;
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+
+        if (existing != null) {
+            counter(coalescedCounters, operation, "coalesced").increment();
+            totalCoalesced.increment();
+            try {
+                return (T) existing.join();
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        counter(executedCounters, operation, "executed").increment();
+        totalExecuted.increment();
+        try {
+            T result = query.get();
+            flight.complete(result);
+            return result;
+        }
+        catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private Counter counter(Map<String, Counter> counters, String operation, String result) {
+        return counters.computeIfAbsent(operation, op -> Counter.builder("singleflight.calls")
+                .tag("operation", op)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+}
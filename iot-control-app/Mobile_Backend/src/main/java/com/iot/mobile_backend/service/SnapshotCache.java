@@ -0,0 +1,153 @@
+package com.iot.mobile_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.mobile_backend.event.DeviceStatusRecordedEvent;
+import com.iot.mobile_backend.event.PersonDetectionRecordedEvent;
+import com.iot.mobile_backend.event.TemperatureRecordedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/*
+Pre-encoded JSON (and gzip) bytes of the "all rooms" responses. Ingest only bumps the version of the
+view it changed; the next read rebuilds the bytes once and every poll in between is answered with
+the same array, without touching the database or Jackson.
+*/
+@Component
+public class SnapshotCache {
+
+    public static final String TEMPERATURE = "temperature";
+    public static final String PERSON = "person";
+    public static final String HEATER = "heater";
+    public static final String FAN = "fan";
+    public static final String ROOMS = "rooms";
+
+    private record Snapshot(long version, byte[] json, byte[] gzip, String etag) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final long startedAt = System.currentTimeMillis(); // Keeps ETags from a previous run from matching
+    private final static Logger logger = LoggerFactory.getLogger(SnapshotCache.class);
+
+    @Autowired
+    public SnapshotCache(ObjectMapper objectMapper, SingleFlight singleFlight) {
+        this.objectMapper = objectMapper;
+        this.singleFlight = singleFlight;
+    }
+
+    /*
+    ================================================
+    Invalidation
+    ================================================
+    */
+
+    @EventListener
+    public void onTemperatureRecorded(TemperatureRecordedEvent event) {
+        invalidate(TEMPERATURE);
+    }
+
+    @EventListener
+    public void onPersonDetectionRecorded(PersonDetectionRecordedEvent event) {
+        invalidate(PERSON);
+    }
+
+    @EventListener
+    public void onDeviceStatusRecorded(DeviceStatusRecordedEvent event) {
+        invalidate(event.device());
+    }
+
+    public void invalidate(String view) {
+        version(view).incrementAndGet();
+    }
+
+    /*
+    ================================================
+    Responses
+    ================================================
+    */
+
+    // Writes the snapshot of the view as is, gzip encoded when the client accepts it.
+    public ResponseEntity<byte[]> respond(String view, Supplier<?> loader, String acceptEncoding, String ifNoneMatch) {
+        Snapshot snapshot = get(view, loader);
+
+        if (snapshot.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return response.body(snapshot.json());
+    }
+
+    private Snapshot get(String view, Supplier<?> loader) {
+        long version = version(view).get();
+        Snapshot snapshot = snapshots.get(view);
+        if (snapshot != null && snapshot.version() == version) {
+            return snapshot;
+        }
+
+        return singleFlight.execute("snapshot", view, () -> rebuild(view, loader));
+    }
+
+    private Snapshot rebuild(String view, Supplier<?> loader) {
+        // Read the version before loading, a change during the rebuild leaves the snapshot stale.
+        long version = version(view).get();
+        Snapshot current = snapshots.get(view);
+        if (current != null && current.version() == version) {
+            return current;
+        }
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(loader.get());
+            Snapshot snapshot = new Snapshot(version, json, gzip(json), "\"" + view + "-" + startedAt + "-" + version + "\"");
+            snapshots.put(view, snapshot);
+
+            logger.debug("Rebuilt {} snapshot at version {} ({} bytes).", view, version, json.length);
+            return snapshot;
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + view + " snapshot.", e);
+        }
+    }
+
+    private AtomicLong version(String view) {
+        return versions.computeIfAbsent(view, key -> new AtomicLong());
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
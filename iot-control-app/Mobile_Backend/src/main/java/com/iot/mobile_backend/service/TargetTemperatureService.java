@@ -0,0 +1,63 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.event.TargetTemperatureChangedEvent;
+import com.iot.mobile_backend.model.TargetTemperature;
+import com.iot.mobile_backend.repository.TargetTemperatureRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Target temperature of every room, kept in the target_temperature table so it survives a restart.
+Targets only ever arrive as commands, which devices do not echo back, so without this the room snapshots
+and the control loop would know no target until the next command. Loaded once on startup, then written
+through on every acknowledged target (see MqttService).
+*/
+@Service
+public class TargetTemperatureService {
+
+    private final TargetTemperatureRepository targetTemperatureRepository;
+    private final RoomRegistry roomRegistry;
+    private final Map<Integer, Double> targets = new ConcurrentHashMap<>();
+    private final static Logger logger = LoggerFactory.getLogger(TargetTemperatureService.class);
+
+    @Autowired
+    public TargetTemperatureService(TargetTemperatureRepository targetTemperatureRepository, RoomRegistry roomRegistry) {
+        this.targetTemperatureRepository = targetTemperatureRepository;
+        this.roomRegistry = roomRegistry;
+    }
+
+    @PostConstruct
+    private void load() {
+        targetTemperatureRepository.findAll().forEach(row -> targets.put(roomRegistry.register(row.getRoomType()), row.getTargetTemperature()));
+        logger.info("Loaded target temperatures for {} rooms.", targets.size());
+    }
+
+    // Synchronized so two targets for the same room do not race to insert its row, targets are rare.
+    @EventListener
+    public synchronized void onTargetTemperatureChanged(TargetTemperatureChangedEvent event) {
+        TargetTemperature row = targetTemperatureRepository.findByRoomType(event.roomType()).orElseGet(TargetTemperature::new);
+        row.setRoomType(event.roomType());
+        row.setTargetTemperature(event.targetTemperature());
+        row.setUpdatedAt(LocalDateTime.now());
+        targetTemperatureRepository.save(row);
+
+        targets.put(event.roomId(), event.targetTemperature());
+    }
+
+    // Null while the room has never been sent a target.
+    public Double get(int roomId) {
+        return targets.get(roomId);
+    }
+
+    public Map<Integer, Double> getAll() {
+        return Map.copyOf(targets);
+    }
+}
@@ -0,0 +1,369 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.dto.PercentileBucketDTO;
+import com.iot.mobile_backend.dto.TemperaturePercentilesDTO;
+import com.iot.mobile_backend.event.TemperatureRecordedEvent;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import com.iot.mobile_backend.model.TemperatureSketch;
+import com.iot.mobile_backend.repository.TemperatureSketchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Temperature percentiles per room and day from mergeable quantile sketches (see QuantileSketch), so a comfort
+report never scans raw readings. The latest day of each room is kept in memory and folded into with every
+reading; it is written when the day begins, every checkpoint interval while it lasts, and when the next day
+starts, the same way OccupancyService keeps its open session. A percentile query over any range of days merges
+that many stored sketches, and the in-memory day wins over its stored copy.
+
+On the first start with this table, sketches are built once from the stored history, in the background once the
+application is up. The scan takes the readings stamped before it started; readings arriving meanwhile are held
+back and folded in after it, so a day is never written by both. A rebuild after an import
+leaves each room's latest stored day alone, a running backend may hold it open, the way the rebuild of occupancy
+sessions stops short of the open session.
+*/
+@Service
+public class TemperaturePercentileService {
+
+    private final static long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+    // The room's latest day, ahead of its stored row by up to one checkpoint.
+    private static class OpenDay {
+        private TemperatureSketch row;
+        private final QuantileSketch sketch;
+        private long lastCheckpointMillis;
+
+        private OpenDay(TemperatureSketch row, QuantileSketch sketch) {
+            this.row = row;
+            this.sketch = sketch;
+        }
+    }
+
+    // Locked while a reading of the room is applied, sketches are loaded and saved under the room's lock, not the map's.
+    private static class RoomDays {
+        private OpenDay open;
+    }
+
+    private final TemperatureSketchRepository sketchRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionStore partitionStore;
+    private final SingleFlight singleFlight;
+    private final RoomRegistry roomRegistry;
+    private final Map<Integer, RoomDays> rooms = new ConcurrentHashMap<>();
+    private final List<TemperatureRecordedEvent> heldBack = new ArrayList<>();  // Readings that arrived during the seed, guarded by itself
+    private volatile boolean seeding;  // Only changed under heldBack
+    private ExecutorService seeder;
+    private final static Logger logger = LoggerFactory.getLogger(TemperaturePercentileService.class);
+
+    @Value("${temperature.sketch.relative-accuracy:0.002}")
+    private double relativeAccuracy;
+
+    @Value("${temperature.sketch.checkpoint-interval:60s}")
+    private Duration checkpointInterval;
+
+    @Autowired
+    public TemperaturePercentileService(TemperatureSketchRepository sketchRepository, JdbcTemplate jdbcTemplate, PartitionStore partitionStore, SingleFlight singleFlight, RoomRegistry roomRegistry) {
+        this.sketchRepository = sketchRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionStore = partitionStore;
+        this.singleFlight = singleFlight;
+        this.roomRegistry = roomRegistry;
+    }
+
+    // Decided before MQTT delivers anything, a reading sketched live first would make the table look seeded.
+    @PostConstruct
+    private void checkSeeded() {
+        seeding = sketchRepository.count() == 0;
+    }
+
+    // Started once the application is up, so scanning the history does not hold up startup.
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSeeding() {
+        if (!seeding) {
+            return;
+        }
+
+        seeder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "temperature-sketch-seed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        seeder.execute(this::seedFromHistory);
+        seeder.shutdown();
+    }
+
+    private void seedFromHistory() {
+        long start = System.nanoTime();
+        long cutoff = System.currentTimeMillis();
+        try {
+            int written = rebuild(null, null, null, cutoff);
+            if (written > 0) {
+                logger.info("Built {} daily temperature sketches from the stored readings in {} ms.", written, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        catch (Exception e) {
+            logger.error("Error building temperature sketches from the stored readings, only new readings are sketched: {}", e.getMessage());
+        }
+
+        List<TemperatureRecordedEvent> held;
+        synchronized (heldBack) {
+            seeding = false;
+            held = new ArrayList<>(heldBack);
+            heldBack.clear();
+        }
+        // Readings stamped before the cutoff are the scan's. One of them stored only after the scan passed it is missed, a late arrival at worst.
+        for (TemperatureRecordedEvent event : held) {
+            if (EpochMillisConverter.toEpochMillis(event.recordingTime()) >= cutoff) {
+                sketch(event);
+            }
+        }
+    }
+
+    @PreDestroy
+    private void stopSeeding() {
+        if (seeder != null) {
+            seeder.shutdownNow();
+        }
+    }
+
+    // The latest days lag by up to one checkpoint in the table, write them out.
+    @PreDestroy
+    private void checkpointOpenDays() {
+        for (RoomDays room : rooms.values()) {
+            synchronized (room) {
+                if (room.open != null) {
+                    checkpoint(room.open);
+                }
+            }
+        }
+    }
+
+    public QuantileSketch newSketch() {
+        return new QuantileSketch(relativeAccuracy);
+    }
+
+    /*
+    ================================================
+    Incremental Sketching
+    ================================================
+    */
+
+    @EventListener
+    public void onTemperatureRecorded(TemperatureRecordedEvent event) {
+        if (seeding) {
+            synchronized (heldBack) {
+                if (seeding) {
+                    heldBack.add(event);
+                    return;
+                }
+            }
+        }
+        sketch(event);
+    }
+
+    private void sketch(TemperatureRecordedEvent event) {
+        long time = EpochMillisConverter.toEpochMillis(event.recordingTime());
+        long dayStart = Math.floorDiv(time, DAY_MILLIS) * DAY_MILLIS;
+
+        RoomDays room = rooms.computeIfAbsent(event.roomId(), id -> new RoomDays());
+        synchronized (room) {
+            OpenDay open = room.open;
+            long openStart = open != null ? EpochMillisConverter.toEpochMillis(open.row.getBucketStart()) : Long.MIN_VALUE;
+
+            // A late reading of an earlier day goes straight into that day's stored sketch.
+            if (dayStart < openStart) {
+                OpenDay earlier = load(event.roomType(), dayStart);
+                earlier.sketch.add(event.temperature());
+                checkpoint(earlier);
+                return;
+            }
+
+            if (dayStart > openStart) {
+                if (open != null) {
+                    checkpoint(open);
+                }
+                open = load(event.roomType(), dayStart);
+                open.sketch.add(event.temperature());
+                checkpoint(open);
+                open.lastCheckpointMillis = time;
+                room.open = open;
+                return;
+            }
+
+            open.sketch.add(event.temperature());
+            if (time >= open.lastCheckpointMillis + checkpointInterval.toMillis()) {
+                checkpoint(open);
+                open.lastCheckpointMillis = time;
+            }
+        }
+    }
+
+    private OpenDay load(String roomType, long dayStart) {
+        LocalDateTime bucketStart = EpochMillisConverter.fromEpochMillis(dayStart);
+        return sketchRepository.findByRoomTypeAndBucketStart(roomType, bucketStart)
+                .map(row -> new OpenDay(row, QuantileSketch.fromBytes(row.getSketch())))
+                .orElseGet(() -> {
+                    TemperatureSketch row = new TemperatureSketch();
+                    row.setRoomType(roomType);
+                    row.setBucketStart(bucketStart);
+                    return new OpenDay(row, newSketch());
+                });
+    }
+
+    private void checkpoint(OpenDay day) {
+        day.row.setSampleCount(day.sketch.getCount());
+        day.row.setSketch(day.sketch.toBytes());
+        day.row = sketchRepository.save(day.row);
+    }
+
+    /*
+    ================================================
+    Rebuilding
+    ================================================
+    */
+
+    /*
+    Recomputes the daily sketches of every day touching [fromMillis, toMillis] from the stored readings, of one room
+    or of all rooms when roomId is null, and of all history when the bounds are null. Used for the first start and
+    after a backfill import (see DerivedTableRebuilder). Each room's latest stored day belongs to the running backend,
+    which merges its in-memory sketch over the row with the next checkpoint, and is skipped. Returns the number of
+    sketches written.
+    */
+    public int rebuild(Integer roomId, Long fromMillis, Long toMillis) {
+        Long from = fromMillis != null ? Math.floorDiv(fromMillis, DAY_MILLIS) * DAY_MILLIS : null;
+        Long to = toMillis != null ? (Math.floorDiv(toMillis, DAY_MILLIS) + 1) * DAY_MILLIS : null;
+        return rebuild(roomId, from, to, to);
+    }
+
+    // readingsBefore: the readings sketched end there, mid-day for the first seed, which leaves the rest of the day to the live sketch.
+    private int rebuild(Integer roomId, Long from, Long to, Long readingsBefore) {
+        Object[] arguments = arguments(roomId, from, to);
+        Map<Integer, Long> openStarts = new HashMap<>();
+        jdbcTemplate.query("SELECT room_id, MAX(bucket_start) FROM temperature_sketch" + where(roomId, null, null, null) + " GROUP BY room_id",
+                (RowCallbackHandler) resultSet -> openStarts.put(resultSet.getInt(1), resultSet.getLong(2)), arguments(roomId, null, null));
+
+        // room id -> day start -> sketch, a few hundred bytes per room and day.
+        Map<Integer, Map<Long, QuantileSketch>> sketches = new HashMap<>();
+        RowCallbackHandler sketcher = resultSet -> sketches
+                .computeIfAbsent(resultSet.getInt(1), id -> new HashMap<>())
+                .computeIfAbsent(Math.floorDiv(resultSet.getLong(3), DAY_MILLIS) * DAY_MILLIS, day -> newSketch())
+                .add(resultSet.getDouble(2));
+        for (JdbcTemplate partition : partitionStore.partitionsFor(from, readingsBefore)) {
+            partition.query("SELECT room_id, temperature_f, recording_time FROM temperature_activity" + where(roomId, from, readingsBefore, "recording_time"),
+                    sketcher, arguments(roomId, from, readingsBefore));
+        }
+
+        jdbcTemplate.update("DELETE FROM temperature_sketch" + where(roomId, from, to, "bucket_start")
+                + " AND bucket_start < (SELECT MAX(latest.bucket_start) FROM temperature_sketch latest WHERE latest.room_id = temperature_sketch.room_id)", arguments);
+
+        List<Object[]> rows = new ArrayList<>();
+        sketches.forEach((id, days) -> days.forEach((day, sketch) -> {
+            if (day.equals(openStarts.get(id))) {
+                logger.warn("Temperatures of room {} on its latest day {} are left to the backend's open sketch.", id, EpochMillisConverter.fromEpochMillis(day).toLocalDate());
+                return;
+            }
+            rows.add(new Object[]{id, day, sketch.getCount(), sketch.toBytes()});
+        }));
+        jdbcTemplate.batchUpdate("INSERT INTO temperature_sketch (room_id, bucket_start, sample_count, sketch) VALUES (?, ?, ?, ?)", rows);
+        return rows.size();
+    }
+
+    private static String where(Integer roomId, Long from, Long to, String timeColumn) {
+        return " WHERE 1 = 1"
+                + (roomId != null ? " AND room_id = ?" : "")
+                + (from != null ? " AND " + timeColumn + " >= ?" : "")
+                + (to != null ? " AND " + timeColumn + " < ?" : "");
+    }
+
+    private static Object[] arguments(Integer roomId, Long from, Long to) {
+        List<Object> arguments = new ArrayList<>(3);
+        if (roomId != null) {
+            arguments.add(roomId);
+        }
+        if (from != null) {
+            arguments.add(from);
+        }
+        if (to != null) {
+            arguments.add(to);
+        }
+        return arguments.toArray();
+    }
+
+    /*
+    ================================================
+    Percentile Queries
+    ================================================
+    */
+
+    // Percentiles (0 to 100) of the days from and to, both inclusive, per day and over the whole range.
+    public TemperaturePercentilesDTO getPercentiles(String roomType, LocalDate from, LocalDate to, List<Double> percentiles) {
+        logger.info("Fetching temperature percentiles for room {} from {} to {}...", roomType, from, to);
+
+        LocalDateTime rangeStart = from.atStartOfDay();
+        LocalDateTime rangeEnd = to.plusDays(1).atStartOfDay();
+
+        Map<LocalDate, QuantileSketch> days = new TreeMap<>();
+        singleFlight.execute("temperature.percentiles", roomType + "/" + from + "/" + to,
+                        () -> sketchRepository.findByRoomTypeAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(roomType, rangeStart, rangeEnd))
+                .forEach(row -> days.put(row.getBucketStart().toLocalDate(), QuantileSketch.fromBytes(row.getSketch())));
+
+        // The stored latest day may lag by up to one checkpoint, prefer the live one. Copied under the room's lock, readings keep arriving.
+        Integer roomId = roomRegistry.findId(roomType);
+        RoomDays room = roomId != null ? rooms.get(roomId) : null;
+        if (room != null) {
+            synchronized (room) {
+                OpenDay open = room.open;
+                LocalDate day = open != null ? open.row.getBucketStart().toLocalDate() : null;
+                if (day != null && !day.isBefore(from) && !day.isAfter(to)) {
+                    QuantileSketch copy = newSketch();
+                    copy.merge(open.sketch);
+                    days.put(day, copy);
+                }
+            }
+        }
+
+        QuantileSketch total = newSketch();
+        List<PercentileBucketDTO> daily = new ArrayList<>(days.size());
+        days.forEach((day, sketch) -> {
+            total.merge(sketch);
+            daily.add(toBucket(day, day, sketch, percentiles));
+        });
+
+        return new TemperaturePercentilesDTO(roomType, relativeAccuracy, toBucket(from, to, total, percentiles), daily);
+    }
+
+    private static PercentileBucketDTO toBucket(LocalDate from, LocalDate to, QuantileSketch sketch, List<Double> percentiles) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double percentile : percentiles) {
+            String key = "p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile));
+            values.put(key, round(sketch.quantile(percentile / 100)));
+        }
+        return new PercentileBucketDTO(from, to, sketch.getCount(), round(sketch.getMin()), round(sketch.getMax()), round(sketch.getMean()), values);
+    }
+
+    private static Double round(Double value) {
+        return value != null ? Math.round(value * 100) / 100.0 : null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.iot.mobile_backend.service;
 
 import com.iot.mobile_backend.dto.TemperatureDTO;
+import com.iot.mobile_backend.event.TemperatureRecordedEvent;
 import com.iot.mobile_backend.model.TemperatureSensor;
 import com.iot.mobile_backend.repository.TempRepository;
 import org.slf4j.Logger;
@@ -8,31 +9,36 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class TemperatureService {
 
     private final TempRepository tempRepository;
+    private final RecordedEvents recordedEvents;
+    private final SingleFlight singleFlight;
+    private final RoomRegistry roomRegistry;
     private final static Logger logger = LoggerFactory.getLogger(TemperatureService.class);
 
     @Autowired
-    public TemperatureService(TempRepository tempRepository) {
+    public TemperatureService(TempRepository tempRepository, RecordedEvents recordedEvents, SingleFlight singleFlight, RoomRegistry roomRegistry) {
         this.tempRepository = tempRepository;
+        this.recordedEvents = recordedEvents;
+        this.singleFlight = singleFlight;
+        this.roomRegistry = roomRegistry;
     }
 
     public TemperatureSensor getCurrentTemperatureByRoomType(String roomType) {
         logger.info("Getting current temperature for room type: {}...", roomType);
 
-        return tempRepository.findFirstByRoomTypeOrderByRecordingTimeDesc(roomType)
+        return singleFlight.execute("temperature.current", roomType, () -> tempRepository.findFirstByRoomTypeOrderByRecordingTimeDesc(roomType))
                 .orElseThrow(() -> new RuntimeException("No temperature data found for room: " + roomType ));
     }
 
     public List<TemperatureSensor> getAllRoomTemperatures() {
         logger.info("Fetching all room temperatures from the database...");
 
-        List<TemperatureSensor> roomTempListByRoomType = tempRepository.getAllRoomTemperatures();
+        List<TemperatureSensor> roomTempListByRoomType = singleFlight.execute("temperature.all", "", tempRepository::getAllRoomTemperatures);
 
         if (roomTempListByRoomType.isEmpty()) {
             logger.warn("No temperature data found. Returning empty list...");
@@ -42,29 +48,23 @@ public class TemperatureService {
     }
 
     public void recordTemperature(TemperatureDTO temperatureDTO) {
-        logger.info("Recording new temperature for room: {}...", temperatureDTO.getRoomType());
+        recordTemperature(temperatureDTO, System.nanoTime());
+    }
+
+    // receivedAtNanos is when the reading reached the backend, used to measure sensor-to-actuation latency.
+    public void recordTemperature(TemperatureDTO temperatureDTO, long receivedAtNanos) {
+        logger.debug("Recording new temperature for room: {}...", temperatureDTO.getRoomType());
 
         TemperatureSensor newTemp = new TemperatureSensor();
         newTemp.setRoomType(temperatureDTO.getRoomType());
         newTemp.setTemperature(temperatureDTO.getTemperature());
-        newTemp.setRecordingTime(parseRecordingTime(temperatureDTO.getRecordingTime()));
+        newTemp.setRecordingTime(TimestampParser.parseOrNow(temperatureDTO.getRecordingTime()));
 
+        // Register the room before the write, the converter only stores ids it already knows.
+        int roomId = roomRegistry.register(temperatureDTO.getRoomType());
         tempRepository.save(newTemp);
-        logger.info("Temperature record has been added to database.");
-    }
+        logger.debug("Temperature record has been added to database.");
 
-    private LocalDateTime parseRecordingTime(String recordingTime) {
-        if (recordingTime == null || recordingTime.trim().isEmpty()) {
-            logger.warn("Recording time is empty or null, defaulting to current time.");
-            return LocalDateTime.now();
-        }
-
-        try {
-            return LocalDateTime.parse(recordingTime);  // ISO format: yyyy-MM-ddTHH:mm:ss
-        }
-        catch (Exception e) {
-            logger.warn("Invalid recording time format, defaulting to current time.");
-            return LocalDateTime.now();
-        }
+        recordedEvents.publish(new TemperatureRecordedEvent(roomId, newTemp.getRoomType(), newTemp.getTemperature(), newTemp.getRecordingTime(), receivedAtNanos));
     }
 }
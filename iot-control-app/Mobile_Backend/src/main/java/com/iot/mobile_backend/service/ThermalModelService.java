@@ -0,0 +1,103 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.control.ThermalModel;
+import com.iot.mobile_backend.model.EpochMillisConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Per room heating and cooling rates (see ThermalModel), learned from live temperature readings and the heater
+and fan state the room was in, and the time the room needs to reach its target at the rate it is changing now.
+Everything comes from memory, no history is queried; a restarted backend relearns within a few observations.
+*/
+@Service
+public class ThermalModelService {
+
+    // Rate and time to target of a room as of its latest temperature. Either is null while unknown.
+    public record Estimate(Double ratePerHour, Long secondsToTarget) {
+    }
+
+    private final static Estimate UNKNOWN = new Estimate(null, null);
+
+    // Closer than this counts as at the target, the sensors report tenths of a degree.
+    private final static double TARGET_TOLERANCE = 0.1;
+
+    private final double forgetting;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final long minObservations;
+    private final long maxTimeToTargetSeconds;
+    private final Map<Integer, ThermalModel> models = new ConcurrentHashMap<>();
+    private final static Logger logger = LoggerFactory.getLogger(ThermalModelService.class);
+
+    @Autowired
+    public ThermalModelService(@Value("${thermal.model.forgetting:0.98}") double forgetting,
+                               @Value("${thermal.model.min-interval:2m}") Duration minInterval,
+                               @Value("${thermal.model.max-interval:15m}") Duration maxInterval,
+                               @Value("${thermal.model.min-observations:3}") long minObservations,
+                               @Value("${thermal.model.max-time-to-target:12h}") Duration maxTimeToTarget) {
+        this.forgetting = forgetting;
+        this.minIntervalMillis = minInterval.toMillis();
+        this.maxIntervalMillis = maxInterval.toMillis();
+        this.minObservations = minObservations;
+        this.maxTimeToTargetSeconds = maxTimeToTarget.toSeconds();
+    }
+
+    // A temperature reading of the room, taken with the heater and fan in the given state (null is off).
+    public void observe(int roomId, double temperature, LocalDateTime recordingTime, Boolean heaterOn, Boolean fanOn) {
+        int mode = ThermalModel.mode(Boolean.TRUE.equals(heaterOn), Boolean.TRUE.equals(fanOn));
+        long time = EpochMillisConverter.toEpochMillis(recordingTime);
+
+        models.compute(roomId, (id, model) -> {
+            if (model == null) {
+                model = new ThermalModel(forgetting);
+            }
+            if (model.observe(temperature, time, mode, minIntervalMillis, maxIntervalMillis)) {
+                logger.debug("Thermal model of room {} updated in mode {}, rate now {} °F/min.", roomId, mode, model.rate(mode, 0));
+            }
+            return model;
+        });
+    }
+
+    public Estimate estimate(int roomId, Double temperature, Double target, Boolean heaterOn, Boolean fanOn) {
+        if (temperature == null) {
+            return UNKNOWN;
+        }
+
+        int mode = ThermalModel.mode(Boolean.TRUE.equals(heaterOn), Boolean.TRUE.equals(fanOn));
+        Double[] rate = new Double[1];
+        models.computeIfPresent(roomId, (id, model) -> {
+            rate[0] = model.rate(mode, minObservations);
+            return model;
+        });
+        if (rate[0] == null) {
+            return UNKNOWN;
+        }
+
+        double perMinute = rate[0];
+        double ratePerHour = Math.round(perMinute * 60 * 100) / 100.0;
+        if (target == null) {
+            return new Estimate(ratePerHour, null);
+        }
+
+        double remaining = target - temperature;
+        if (Math.abs(remaining) < TARGET_TOLERANCE) {
+            return new Estimate(ratePerHour, 0L);
+        }
+        // Moving away from the target, the room does not get there in this mode.
+        if (remaining * perMinute <= 0) {
+            return new Estimate(ratePerHour, null);
+        }
+        // Barely moving towards it is no useful estimate either.
+        long seconds = Math.round(remaining / perMinute * 60);
+        return new Estimate(ratePerHour, seconds <= maxTimeToTargetSeconds ? seconds : null);
+    }
+}
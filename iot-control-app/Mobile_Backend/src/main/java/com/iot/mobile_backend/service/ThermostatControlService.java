@@ -0,0 +1,229 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.config.ThermostatProperties;
+import com.iot.mobile_backend.control.*;
+import com.iot.mobile_backend.event.PersonDetectionRecordedEvent;
+import com.iot.mobile_backend.event.TargetTemperatureChangedEvent;
+import com.iot.mobile_backend.event.TemperatureRecordedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Optional closed loop running in the backend. Reacts to stored temperature, person detection and
+target events, evaluates the room's rules and publishes heater/fan commands through MqttService.
+Enable with thermostat.control.enabled=true.
+*/
+@Service
+@ConditionalOnProperty(prefix = "thermostat.control", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ThermostatProperties.class)
+public class ThermostatControlService {
+
+    private final MqttService mqttService;
+    private final ThermostatProperties properties;
+    private final ControlRuleIndex ruleIndex;
+    private final TargetTemperatureService targetTemperatureService;
+    private final OccupancyService occupancyService;
+    private final Map<Integer, RoomControlState> roomStates = new ConcurrentHashMap<>();
+
+    private final Timer evaluationTimer;
+    private final Timer actuationTimer;
+    private final Counter heaterCommands;
+    private final Counter fanCommands;
+    private final static Logger logger = LoggerFactory.getLogger(ThermostatControlService.class);
+
+    @Autowired
+    public ThermostatControlService(MqttService mqttService, ThermostatProperties properties, RoomRegistry roomRegistry, MeterRegistry meterRegistry,
+                                    TargetTemperatureService targetTemperatureService, OccupancyService occupancyService) {
+        this.mqttService = mqttService;
+        this.targetTemperatureService = targetTemperatureService;
+        this.occupancyService = occupancyService;
+        this.properties = properties;
+        this.ruleIndex = buildRuleIndex(properties, roomRegistry);
+
+        this.evaluationTimer = Timer.builder("thermostat.control.evaluation")
+                .description("Time spent evaluating control rules for one event")
+                .register(meterRegistry);
+        this.actuationTimer = Timer.builder("thermostat.control.actuation.latency")
+                .description("Time from sensor message arrival to broker acknowledgement of the resulting command")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.heaterCommands = Counter.builder("thermostat.control.commands")
+                .tag("device", "heater")
+                .register(meterRegistry);
+        this.fanCommands = Counter.builder("thermostat.control.commands")
+                .tag("device", "fan")
+                .register(meterRegistry);
+
+        logger.info("Thermostat control loop enabled with hysteresis {}°F and setback {}°F.", properties.getHysteresis(), properties.getUnoccupiedSetback());
+    }
+
+    /*
+    ================================================
+    Event Listeners
+    ================================================
+    */
+
+    @EventListener
+    public void onTemperatureRecorded(TemperatureRecordedEvent event) {
+        RoomControlState state = stateFor(event.roomId(), event.roomType());
+        synchronized (state) {
+            state.setTemperature(event.temperature());
+        }
+        evaluate(state, ControlEventType.TEMPERATURE, event.receivedAtNanos());
+    }
+
+    @EventListener
+    public void onPersonDetectionRecorded(PersonDetectionRecordedEvent event) {
+        RoomControlState state = stateFor(event.roomId(), event.roomType());
+        boolean occupied = occupancyService.isOccupied(event.personDetected(), event.confidence());
+        synchronized (state) {
+            state.setOccupied(occupied);
+            if (occupied) {
+                state.setLastOccupiedMillis(System.currentTimeMillis());
+            }
+        }
+        evaluate(state, ControlEventType.OCCUPANCY, event.receivedAtNanos());
+    }
+
+    @EventListener
+    public void onTargetTemperatureChanged(TargetTemperatureChangedEvent event) {
+        RoomControlState state = stateFor(event.roomId(), event.roomType());
+        synchronized (state) {
+            state.setTargetTemperature(event.targetTemperature());
+        }
+        evaluate(state, ControlEventType.TARGET, System.nanoTime());
+    }
+
+    /*
+    ================================================
+    Rule Evaluation
+    ================================================
+    */
+
+    private void evaluate(RoomControlState state, ControlEventType eventType, long receivedAtNanos) {
+        long start = System.nanoTime();
+        List<ControlRule> rules = ruleIndex.rulesFor(state.getRoomId(), eventType);
+        if (rules.isEmpty()) {
+            return;
+        }
+
+        Boolean heaterCommand = null;
+        Boolean fanCommand = null;
+
+        synchronized (state) {
+            long nowMillis = System.currentTimeMillis();
+            ControlDecision decision = ControlDecision.HOLD;
+            for (ControlRule rule : rules) {
+                decision = decision.merge(rule.evaluate(state, nowMillis));
+            }
+
+            // Only publish what actually changes, repeated readings in the same band are free.
+            if (decision.heaterOn() != null && !decision.heaterOn().equals(state.getHeaterCommanded())) {
+                heaterCommand = decision.heaterOn();
+                state.setHeaterCommanded(heaterCommand);
+            }
+            if (decision.fanOn() != null && !decision.fanOn().equals(state.getFanCommanded())) {
+                fanCommand = decision.fanOn();
+                state.setFanCommanded(fanCommand);
+            }
+        }
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (heaterCommand != null) {
+            sendCommand(state, "heater", heaterCommand, receivedAtNanos);
+        }
+        if (fanCommand != null) {
+            sendCommand(state, "fan", fanCommand, receivedAtNanos);
+        }
+    }
+
+    private void sendCommand(RoomControlState state, String sensor, boolean status, long receivedAtNanos) {
+        logger.info("Control loop turning {} the {} in {}.", status ? "on" : "off", sensor, state.getRoomType());
+        (sensor.equals("heater") ? heaterCommands : fanCommands).increment();
+
+        try {
+            mqttService.publishSensorCommands(sensor, state.getRoomType(), status)
+                    .whenComplete((result, throwable) -> {
+                        if (throwable == null) {
+                            actuationTimer.record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+                        }
+                        else {
+                            forgetCommand(state, sensor);
+                        }
+                    });
+        }
+        catch (Exception e) {
+            logger.error("Control loop failed to publish {} command for {}.", sensor, state.getRoomType(), e);
+            forgetCommand(state, sensor);
+        }
+    }
+
+    // Clear what we think we commanded so the next event tries again.
+    private void forgetCommand(RoomControlState state, String sensor) {
+        synchronized (state) {
+            if (sensor.equals("heater")) {
+                state.setHeaterCommanded(null);
+            }
+            else {
+                state.setFanCommanded(null);
+            }
+        }
+    }
+
+    /*
+    ================================================
+    Utilities
+    ================================================
+    */
+
+    private RoomControlState stateFor(int roomId, String roomType) {
+        return roomStates.computeIfAbsent(roomId, id -> {
+            RoomControlState state = new RoomControlState(id, roomType);
+            ThermostatProperties.RoomOverride override = properties.getRooms().get(roomType);
+            if (override != null && override.getDefaultTarget() != null) {
+                state.setTargetTemperature(override.getDefaultTarget());
+            }
+            // A target sent before the restart wins over the configured default.
+            Double stored = targetTemperatureService.get(id);
+            if (stored != null) {
+                state.setTargetTemperature(stored);
+            }
+            return state;
+        });
+    }
+
+    private static ControlRuleIndex buildRuleIndex(ThermostatProperties properties, RoomRegistry roomRegistry) {
+        long timeoutMillis = properties.getOccupancyTimeout().toMillis();
+        ControlRuleIndex index = new ControlRuleIndex(rulesByEvent(
+                new HysteresisRule(properties.getHysteresis(), properties.getUnoccupiedSetback(), timeoutMillis, true)));
+
+        properties.getRooms().forEach((roomType, override) -> {
+            double hysteresis = override.getHysteresis() != null ? override.getHysteresis() : properties.getHysteresis();
+            double setback = override.getUnoccupiedSetback() != null ? override.getUnoccupiedSetback() : properties.getUnoccupiedSetback();
+            boolean occupancyControl = override.getOccupancyControl() == null || override.getOccupancyControl();
+            index.putRoomRules(roomRegistry.register(roomType), rulesByEvent(new HysteresisRule(hysteresis, setback, timeoutMillis, occupancyControl)));
+        });
+
+        return index;
+    }
+
+    private static Map<ControlEventType, List<ControlRule>> rulesByEvent(ControlRule hysteresisRule) {
+        return Map.of(
+                ControlEventType.TEMPERATURE, List.of(hysteresisRule),
+                ControlEventType.OCCUPANCY, List.of(hysteresisRule),
+                ControlEventType.TARGET, List.of(hysteresisRule));
+    }
+}
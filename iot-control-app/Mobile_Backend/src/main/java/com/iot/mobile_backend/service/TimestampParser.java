@@ -0,0 +1,103 @@
+package com.iot.mobile_backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+
+/*
+Fixed-format parser for the device timestamps (yyyy-MM-ddTHH:mm[:ss[.fraction]], same shapes LocalDateTime.parse accepts).
+Reads the digits by position and validates ranges up front, so malformed input returns null instead of
+throwing, and the common case never builds a formatter or a parse context.
+*/
+public final class TimestampParser {
+
+    private final static Logger logger = LoggerFactory.getLogger(TimestampParser.class);
+
+    private TimestampParser() {
+    }
+
+    // How the sinks read a device timestamp: the parsed time, or the current time with a warning when the text is empty or invalid.
+    public static LocalDateTime parseOrNow(String text) {
+        if (text == null || text.isBlank()) {
+            logger.warn("Recording time is empty or null, defaulting to current time.");
+            return LocalDateTime.now();
+        }
+
+        LocalDateTime parsed = parse(text);
+        if (parsed == null) {
+            logger.warn("Invalid recording time format '{}', defaulting to current time.", text);
+            return LocalDateTime.now();
+        }
+        return parsed;
+    }
+
+    // Parsed time, or null when the text is not a valid ISO local date-time.
+    public static LocalDateTime parse(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        int length = text.length();
+        if (length != 16 && length < 19) {
+            return null;
+        }
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T' || text.charAt(13) != ':') {
+            return null;
+        }
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = 0;
+        int nano = 0;
+
+        if (length > 16) {
+            if (text.charAt(16) != ':') {
+                return null;
+            }
+            second = digits(text, 17, 2);
+
+            if (length > 19) {
+                int fractionDigits = length - 20;
+                if (text.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                    return null;
+                }
+                int fraction = digits(text, 20, fractionDigits);
+                if (fraction < 0) {
+                    return null;
+                }
+                for (int i = fractionDigits; i < 9; i++) {
+                    fraction *= 10;
+                }
+                nano = fraction;
+            }
+        }
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        if (day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    // Unsigned decimal value of text[start, start + count), or -1 if any character is not a digit.
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
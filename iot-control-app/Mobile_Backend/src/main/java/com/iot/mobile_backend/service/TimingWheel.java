@@ -0,0 +1,110 @@
+package com.iot.mobile_backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+A hashed timing wheel. A deadline is dropped into the slot of its tick, and advancing the wheel only looks at
+the slots of the ticks that passed, so scheduling is O(1) and a tick costs the entries of one slot, however
+many are waiting overall. Deadlines are rounded up to whole ticks and never fire early; those further out than
+one turn stay in their slot until their turn comes. A cancelled deadline stays in its slot too, it is only dropped
+when its slot comes up, so cancelling is O(1) as well.
+
+Not thread safe, see PresenceTracker.
+*/
+public class TimingWheel<T> {
+
+    // A scheduled deadline.
+    public final class Timeout {
+        private final T item;
+        private final long deadlineTick;
+        private volatile boolean done;  // Fired or cancelled, readable without the wheel's lock
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // False when the deadline already fired or was cancelled before.
+        public boolean cancel() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            size--;
+            return true;
+        }
+
+        // Neither fired nor cancelled yet.
+        public boolean isPending() {
+            return !done;
+        }
+    }
+
+    private final long tickMillis;
+    private final List<List<Timeout>> slots;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int slotCount, long startMillis) {
+        if (tickMillis <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("Tick and slot count must be positive.");
+        }
+        int slotsRounded = slotCount > 1 ? Integer.highestOneBit((slotCount - 1) << 1) : 1;  // Power of two, the slot is tick & mask
+
+        this.tickMillis = tickMillis;
+        this.mask = slotsRounded - 1;
+        this.slots = new ArrayList<>(slotsRounded);
+        for (int i = 0; i < slotsRounded; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    public Timeout schedule(T item, long deadlineMillis) {
+        long tick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+        Timeout timeout = new Timeout(item, tick);
+        slots.get((int) (tick & mask)).add(timeout);
+        size++;
+        return timeout;
+    }
+
+    // Moves the wheel up to nowMillis and hands every entry whose deadline passed to expired, which may schedule again.
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        // After a long pause one turn visits every slot, and everything older than the visited tick is due anyway.
+        long tick = Math.max(currentTick + 1, target - slots.size() + 1);
+
+        for (; tick <= target; tick++) {
+            currentTick = tick;
+            List<Timeout> slot = slots.get((int) (tick & mask));
+            if (slot.isEmpty()) {
+                continue;
+            }
+
+            List<T> due = new ArrayList<>();
+            long now = tick;
+            slot.removeIf(timeout -> {
+                if (timeout.done) {
+                    return true;
+                }
+                if (timeout.deadlineTick <= now) {
+                    timeout.done = true;
+                    due.add(timeout.item);
+                    return true;
+                }
+                return false;
+            });
+            size -= due.size();
+            due.forEach(expired);
+        }
+        currentTick = Math.max(currentTick, target);
+    }
+
+    // Deadlines neither fired nor cancelled.
+    public int size() {
+        return size;
+    }
+}
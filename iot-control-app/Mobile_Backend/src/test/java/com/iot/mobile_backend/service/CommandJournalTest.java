@@ -0,0 +1,70 @@
+package com.iot.mobile_backend.service;
+
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// Pending commands must survive a restart, and only the newest unexpired command per topic is replayed.
+class CommandJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void replaysPendingCommandsAfterRestart() {
+        CommandJournal journal = open(Duration.ofMinutes(10));
+        CommandJournal.PendingCommand heater = journal.append("kitchen/heater/command", "ON");
+        journal.append("kitchen/temperature/target", "70.0");
+        journal.append("office/fan/command", "OFF");
+        journal.acknowledge(heater, mock(Mqtt5PublishResult.class));
+
+        CommandJournal restarted = open(Duration.ofMinutes(10));
+        List<CommandJournal.PendingCommand> replay = restarted.drainForReplay();
+
+        assertEquals(List.of("kitchen/temperature/target", "office/fan/command"), replay.stream().map(CommandJournal.PendingCommand::getTopic).toList());
+        assertEquals("70.0", replay.get(0).getPayload());
+    }
+
+    @Test
+    void newerCommandSupersedesThePendingOne() {
+        CommandJournal journal = open(Duration.ofMinutes(10));
+        CommandJournal.PendingCommand first = journal.append("kitchen/temperature/target", "68.0");
+        CommandJournal.PendingCommand second = journal.append("kitchen/temperature/target", "72.0");
+
+        assertTrue(first.getResult().isCompletedExceptionally());
+        assertEquals(1, journal.getPendingCount());
+
+        // A late acknowledgement of the superseded command must not drop its successor.
+        journal.acknowledge(first, mock(Mqtt5PublishResult.class));
+        assertEquals(1, journal.getPendingCount());
+
+        CommandJournal restarted = open(Duration.ofMinutes(10));
+        List<CommandJournal.PendingCommand> replay = restarted.drainForReplay();
+        assertEquals(1, replay.size());
+        assertEquals(second.getPayload(), replay.get(0).getPayload());
+    }
+
+    @Test
+    void expiredCommandsAreDropped() {
+        CommandJournal journal = open(Duration.ZERO);
+        CommandJournal.PendingCommand command = journal.append("kitchen/heater/command", "ON");
+
+        assertTrue(journal.drainForReplay().isEmpty());
+        assertTrue(command.getResult().isCompletedExceptionally());
+        assertTrue(open(Duration.ofMinutes(10)).drainForReplay().isEmpty());
+    }
+
+    private CommandJournal open(Duration ttl) {
+        CommandJournal journal = new CommandJournal(directory.resolve("command-journal.jsonl").toString(), ttl);
+        journal.load();
+        return journal;
+    }
+}
@@ -0,0 +1,59 @@
+package com.iot.mobile_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Redeliveries inside the window are dropped and counted; anything evicted or released passes again.
+class DuplicateFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void dropsRedeliveriesWithinTheWindow() {
+        DuplicateFilter filter = new DuplicateFilter(Duration.ofMinutes(10), 100, meterRegistry);
+
+        assertTrue(filter.firstSighting("temperature", "kitchen", 1000));
+        assertFalse(filter.firstSighting("temperature", "kitchen", 1000));
+        assertTrue(filter.firstSighting("temperature", "kitchen", 2000));
+        assertTrue(filter.firstSighting("temperature", "office", 1000));
+        assertTrue(filter.firstSighting("humidity", "kitchen", 1000));
+        assertEquals(1, meterRegistry.counter("mqtt.ingest.duplicates").count());
+    }
+
+    @Test
+    void forgetsReadingsOlderThanTheWindow() {
+        DuplicateFilter filter = new DuplicateFilter(Duration.ZERO, 100, meterRegistry);
+
+        assertTrue(filter.firstSighting("temperature", "kitchen", 1000));
+        assertTrue(filter.firstSighting("temperature", "kitchen", 1000));
+    }
+
+    @Test
+    void evictsTheEldestBeyondMaxEntries() {
+        DuplicateFilter filter = new DuplicateFilter(Duration.ofMinutes(10), 2, meterRegistry);
+
+        assertTrue(filter.firstSighting("temperature", "kitchen", 1000));
+        assertTrue(filter.firstSighting("temperature", "kitchen", 2000));
+        assertTrue(filter.firstSighting("temperature", "kitchen", 3000));
+
+        // The first reading made room for the third, the second is still remembered.
+        assertFalse(filter.firstSighting("temperature", "kitchen", 2000));
+        assertTrue(filter.firstSighting("temperature", "kitchen", 1000));
+    }
+
+    @Test
+    void releasedReadingPassesAgain() {
+        DuplicateFilter filter = new DuplicateFilter(Duration.ofMinutes(10), 100, meterRegistry);
+
+        assertTrue(filter.firstSighting("temperature", "kitchen", 1000));
+        filter.release("temperature", "kitchen", 1000);
+        assertTrue(filter.firstSighting("temperature", "kitchen", 1000));
+        assertEquals(0, meterRegistry.counter("mqtt.ingest.duplicates").count());
+    }
+}
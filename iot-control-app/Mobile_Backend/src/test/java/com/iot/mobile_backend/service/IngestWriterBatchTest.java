@@ -0,0 +1,116 @@
+package com.iot.mobile_backend.service;
+
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.event.TemperatureRecordedEvent;
+import com.iot.mobile_backend.sensor.SensorType;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// A batch holding a duplicate rolls back and is stored again one by one, every listener must still see each reading once.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/ingest-writer-batch-test.db",
+        "mqtt.enabled=false",
+        "mqtt.ingest.manual-ack=true"
+})
+class IngestWriterBatchTest {
+
+    // The database file outlives a run, a fresh room keeps the readings new.
+    private final static String ROOM = "batchTestRoom" + System.currentTimeMillis();
+    private final static String FIRST = "2025-01-01T10:00:00";
+    private final static String SECOND = "2025-01-01T10:01:00";
+
+    static class TemperatureListener {
+
+        private final Map<LocalDateTime, AtomicInteger> seen = new ConcurrentHashMap<>();
+
+        @EventListener
+        public void onTemperatureRecorded(TemperatureRecordedEvent event) {
+            if (event.roomType().equals(ROOM)) {
+                seen.computeIfAbsent(event.recordingTime(), time -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class ListenerConfig {
+
+        @Bean
+        TemperatureListener temperatureListener() {
+            return new TemperatureListener();
+        }
+    }
+
+    @Autowired
+    private IngestWriter ingestWriter;
+
+    @Autowired
+    private SensorTypeRegistry sensorTypeRegistry;
+
+    @Autowired
+    private LatestStateService latestStateService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TemperatureListener listener;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void batchWithDuplicateReachesListenersOnce() {
+        double duplicates = meterRegistry.counter("mqtt.ingest.duplicates").count();
+        Mqtt5Publish[] messages = {message(), message(), message()};
+        ingestWriter.writeBatch(List.of(
+                item(FIRST, 70.0, messages[0]),
+                item(FIRST, 70.0, messages[1]),
+                item(SECOND, 71.0, messages[2])));
+
+        for (Mqtt5Publish message : messages) {
+            verify(message).acknowledge();
+        }
+        assertEquals(2, listener.seen.size());
+        assertEquals(1, listener.seen.get(LocalDateTime.parse(FIRST)).get());
+        assertEquals(1, listener.seen.get(LocalDateTime.parse(SECOND)).get());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM temperature_activity t JOIN room r ON r.id = t.room_id WHERE r.name = ?", Integer.class, ROOM));
+        assertEquals(duplicates + 1, meterRegistry.counter("mqtt.ingest.duplicates").count());
+        assertEquals(71.0, latestStateService.getRoom(ROOM).orElseThrow().getTemperature());
+    }
+
+    private static Mqtt5Publish message() {
+        Mqtt5Publish message = mock(Mqtt5Publish.class);
+        when(message.getTopic()).thenReturn(MqttTopic.of(ROOM + "/temperature/status"));
+        return message;
+    }
+
+    private IngestWriter.Item item(String recordingTime, double temperature, Mqtt5Publish message) {
+        SensorType type = sensorTypeRegistry.find("temperature").orElseThrow();
+        SensorReadingDTO reading = new SensorReadingDTO();
+        reading.setSensorType(type.name());
+        reading.setRoomType(ROOM);
+        reading.setNumericValue(temperature);
+        reading.setRecordingTime(recordingTime);
+        return new IngestWriter.Item(type, reading, null, System.nanoTime(), message);
+    }
+}
@@ -0,0 +1,94 @@
+package com.iot.mobile_backend.service;
+
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.sensor.SensorSink;
+import com.iot.mobile_backend.sensor.SensorType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.jpa.JpaSystemException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Only a reading the database refuses for good is acknowledged after a failure, a passing one is left to the broker.
+class IngestWriterFailureTest {
+
+    private final DuplicateFilter duplicateFilter = mock(DuplicateFilter.class);
+    private final IngestLog ingestLog = mock(IngestLog.class);
+    private final RoomRegistry roomRegistry = mock(RoomRegistry.class);
+    private final SensorSink sink = mock(SensorSink.class);
+    private final IngestWriter writer = new IngestWriter(duplicateFilter, ingestLog, mock(FreshnessTracker.class), roomRegistry,
+            new RecordedEvents(mock(ApplicationEventPublisher.class)), mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+            true, 4, 4, Set.of());
+
+    @Test
+    void busyDatabaseIsRetriedAndThenLeftUnacknowledged() {
+        doThrow(new CannotAcquireLockException("locked", new SQLiteException("database is locked", SQLiteErrorCode.SQLITE_BUSY)))
+                .when(sink).record(any(), anyLong());
+        Mqtt5Publish message = message();
+
+        writer.writeBatch(List.of(item(message)));
+
+        // Once in the batch, then every single attempt.
+        verify(sink, times(4)).record(any(), anyLong());
+        verify(message, never()).acknowledge();
+        verify(duplicateFilter).release("temperature", "kitchen", 1000L);
+    }
+
+    @Test
+    void constraintViolationIsAcknowledged() {
+        doThrow(new JpaSystemException(new RuntimeException(new SQLiteException("NOT NULL constraint failed", SQLiteErrorCode.SQLITE_CONSTRAINT_NOTNULL))))
+                .when(sink).record(any(), anyLong());
+        Mqtt5Publish message = message();
+
+        writer.writeBatch(List.of(item(message)));
+
+        verify(message).acknowledge();
+        verify(ingestLog).failed(eq("temperature"), anyString(), eq("kitchen"), any());
+        verify(duplicateFilter).release("temperature", "kitchen", 1000L);
+    }
+
+    @Test
+    void failedRoomRegistrationLeavesTheBatchToTheBroker() {
+        when(roomRegistry.register("kitchen")).thenThrow(new CannotAcquireLockException("locked"));
+        Mqtt5Publish message = message();
+
+        writer.writeBatch(List.of(item(message)));
+
+        verify(sink, never()).record(any(), anyLong());
+        verify(message, never()).acknowledge();
+        verify(duplicateFilter).release("temperature", "kitchen", 1000L);
+    }
+
+    private static Mqtt5Publish message() {
+        Mqtt5Publish message = mock(Mqtt5Publish.class);
+        when(message.getTopic()).thenReturn(MqttTopic.of("kitchen/temperature/status"));
+        return message;
+    }
+
+    private IngestWriter.Item item(Mqtt5Publish message) {
+        SensorType type = new SensorType("temperature", "temperature/status", "temp", null, null, null, true, sink);
+        SensorReadingDTO reading = new SensorReadingDTO();
+        reading.setSensorType(type.name());
+        reading.setRoomType("kitchen");
+        return new IngestWriter.Item(type, reading, 1000L, System.nanoTime(), message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.dto.SensorReadingDTO;
+import com.iot.mobile_backend.sensor.SensorType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+// A priority reading must go into the next batch ahead of a full bulk lane, not behind it.
+class IngestWriterLaneTest {
+
+    private final static SensorType TEMPERATURE = new SensorType("temperature", "temperature/status", "temp", null, null, null, true, null);
+    private final static SensorType PERSON = new SensorType("person", "person/status", "confidence", null, null, "detected", true, null);
+
+    @Test
+    void priorityReadingIsTakenAheadOfAFullBulkLane() throws InterruptedException {
+        IngestWriter writer = new IngestWriter(null, null, null, null, null, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                true, 4, 3, Set.of("person"));
+        for (int i = 0; i < 4; i++) {
+            writer.submit(item(TEMPERATURE, "kitchen" + i));
+        }
+        writer.submit(item(PERSON, "office"));
+
+        List<IngestWriter.Item> batch = new ArrayList<>();
+        writer.takeBatch(batch);
+        assertEquals(List.of("person", "temperature", "temperature"), batch.stream().map(item -> item.type().name()).toList());
+        assertEquals(List.of("office", "kitchen0", "kitchen1"), batch.stream().map(item -> item.reading().getRoomType()).toList());
+
+        // The rest of the bulk lane follows in order.
+        batch.clear();
+        writer.takeBatch(batch);
+        assertEquals(List.of("kitchen2", "kitchen3"), batch.stream().map(item -> item.reading().getRoomType()).toList());
+    }
+
+    private static IngestWriter.Item item(SensorType type, String roomType) {
+        SensorReadingDTO reading = new SensorReadingDTO();
+        reading.setSensorType(type.name());
+        reading.setRoomType(roomType);
+        return new IngestWriter.Item(type, reading, null, System.nanoTime(), null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.iot.mobile_backend.service;
+
+import com.iot.mobile_backend.event.DevicePresenceChangedEvent;
+import com.iot.mobile_backend.event.PersonDetectionRecordedEvent;
+import com.iot.mobile_backend.model.OccupancySession;
+import com.iot.mobile_backend.repository.OccupancySessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// A camera that goes silent must not leave its session open, and readers must not get the live entity.
+class OccupancyServiceTest {
+
+    private final static LocalDate DAY = LocalDate.of(2025, 1, 1);
+
+    private final OccupancySessionRepository sessionRepository = mock(OccupancySessionRepository.class);
+    private final RoomRegistry roomRegistry = mock(RoomRegistry.class);
+    private final OccupancyService service = new OccupancyService(sessionRepository, new SingleFlight(new SimpleMeterRegistry()), roomRegistry);
+
+    OccupancyServiceTest() {
+        ReflectionTestUtils.setField(service, "confidenceThreshold", 0.1);
+        ReflectionTestUtils.setField(service, "exitGrace", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "checkpointInterval", Duration.ofSeconds(60));
+        when(sessionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sessionRepository.findOverlapping(eq("kitchen"), any(), any())).thenReturn(List.of());
+        when(roomRegistry.findId("kitchen")).thenReturn(1);
+    }
+
+    @Test
+    void silentCameraClosesTheSessionWhenItGoesOffline() {
+        detect(DAY.atTime(10, 0), 0.9);
+        detect(DAY.atTime(10, 5), 0.8);
+        assertTrue(service.getTimeline("kitchen", DAY).get(0).getOpen());
+
+        service.onDevicePresenceChanged(new DevicePresenceChangedEvent(1, "kitchen", "person", false, "silent for 30s"));
+
+        // Closed at its last positive sample, and no longer the live session.
+        assertTrue(service.getTimeline("kitchen", DAY).isEmpty());
+    }
+
+    @Test
+    void otherSourcesGoingOfflineLeaveTheSessionOpen() {
+        detect(DAY.atTime(10, 0), 0.9);
+
+        service.onDevicePresenceChanged(new DevicePresenceChangedEvent(1, "kitchen", "temperature", false, "silent for 30s"));
+
+        assertEquals(1, service.getTimeline("kitchen", DAY).size());
+    }
+
+    @Test
+    void timelineHandsOutACopyOfTheLiveSession() {
+        detect(DAY.atTime(10, 0), 0.9);
+
+        OccupancySession copy = service.getTimeline("kitchen", DAY).get(0);
+        copy.setOpen(false);
+        copy.setEndTime(DAY.atTime(23, 0));
+
+        OccupancySession live = service.getTimeline("kitchen", DAY).get(0);
+        assertTrue(live.getOpen());
+        assertEquals(DAY.atTime(10, 0), live.getEndTime());
+        assertFalse(copy == live);
+    }
+
+    private void detect(LocalDateTime time, double confidence) {
+        service.onPersonDetectionRecorded(new PersonDetectionRecordedEvent(1, "kitchen", true, confidence, time, System.nanoTime()));
+    }
+}
@@ -0,0 +1,106 @@
+package com.iot.mobile_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Quantiles must stay within the relative accuracy, and merged or deserialized sketches must answer like the original.
+class QuantileSketchTest {
+
+    private final static double ACCURACY = 0.002;
+    private final static double[] QUANTILES = {0, 0.01, 0.05, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 1};
+
+    @Test
+    void quantilesStayWithinTheRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            // Indoor temperatures with the odd outlier, below zero and exact zeros included.
+            values[i] = i % 500 == 0 ? 0 : i % 97 == 0 ? -20 * random.nextDouble() : 68 + 3 * random.nextGaussian();
+        }
+
+        QuantileSketch sketch = sketchOf(values);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= ACCURACY * Math.abs(exact) + 1e-9, "q=" + q + ": " + estimate + " against " + exact);
+        }
+        assertEquals(values.length, sketch.getCount());
+        assertEquals(sorted[0], sketch.getMin());
+        assertEquals(sorted[sorted.length - 1], sketch.getMax());
+        assertEquals(Arrays.stream(values).average().orElseThrow(), sketch.getMean(), 1e-9);
+    }
+
+    @Test
+    void mergeEqualsAddingTheValuesDirectly() {
+        double[] monday = {65.2, 66.0, 70.4, 71.9, -3.5, 0, 68.8};
+        double[] tuesday = {59.1, 72.3, 72.3, 80.0, -10.25};
+        QuantileSketch merged = sketchOf(monday);
+        merged.merge(sketchOf(tuesday));
+        merged.merge(new QuantileSketch(ACCURACY));
+
+        double[] both = new double[monday.length + tuesday.length];
+        System.arraycopy(monday, 0, both, 0, monday.length);
+        System.arraycopy(tuesday, 0, both, monday.length, tuesday.length);
+        QuantileSketch direct = sketchOf(both);
+
+        assertSameAnswers(direct, merged);
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        QuantileSketch sketch = sketchOf(new double[]{70.1, 70.1, 69.4, 0, -2.5, -40.0, 1e-12, 95.0});
+        QuantileSketch copy = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertSameAnswers(sketch, copy);
+        assertArrayEquals(sketch.toBytes(), copy.toBytes());
+
+        // The copy keeps counting into the same bins.
+        sketch.add(71.0);
+        copy.add(71.0);
+        assertSameAnswers(sketch, copy);
+    }
+
+    @Test
+    void roundTripsAnEmptySketch() {
+        QuantileSketch copy = QuantileSketch.fromBytes(new QuantileSketch(ACCURACY).toBytes());
+
+        assertEquals(0, copy.getCount());
+        assertNull(copy.quantile(0.5));
+        assertNull(copy.getMin());
+        assertNull(copy.getMean());
+
+        copy.add(-5.0);
+        copy.add(72.0);
+        assertEquals(-5.0, copy.quantile(0));
+        assertEquals(72.0, copy.quantile(1));
+    }
+
+    private static QuantileSketch sketchOf(double[] values) {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        for (double value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    private static void assertSameAnswers(QuantileSketch expected, QuantileSketch actual) {
+        assertEquals(expected.getRelativeAccuracy(), actual.getRelativeAccuracy());
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getMean(), actual.getMean(), 1e-9);
+        for (double q : QUANTILES) {
+            assertEquals(expected.quantile(q), actual.quantile(q), "q=" + q);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.iot.mobile_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// The parser must accept exactly what LocalDateTime.parse accepts for device timestamps, and return null for the rest.
+class TimestampParserTest {
+
+    @Test
+    void parsesTheShapesLocalDateTimeAccepts() {
+        for (String text : List.of("2025-01-01T10:00", "2025-01-01T10:00:59", "2025-01-01T10:00:00.5",
+                "2025-01-01T10:00:00.123", "2025-01-01T23:59:59.999999999", "2024-02-29T00:00:00")) {
+            assertEquals(LocalDateTime.parse(text), TimestampParser.parse(text), text);
+        }
+    }
+
+    @Test
+    void scalesTheFractionToNanoseconds() {
+        assertEquals(500_000_000, TimestampParser.parse("2025-01-01T10:00:00.5").getNano());
+        assertEquals(123_000, TimestampParser.parse("2025-01-01T10:00:00.000123").getNano());
+    }
+
+    @Test
+    void returnsNullForMalformedText() {
+        for (String text : List.of("", "2025-01-01", "2025-01-01 10:00:00", "2025-01-01T10:00:", "2025-01-01T10:00:00.",
+                "2025-01-01T10:00:00.1234567890", "2025-01-01T10:00:0x", "2025/01/01T10:00:00", "2025-01-01T10:00:00Z")) {
+            assertNull(TimestampParser.parse(text), text);
+        }
+        assertNull(TimestampParser.parse(null));
+    }
+
+    @Test
+    void returnsNullForOutOfRangeFields() {
+        for (String text : List.of("2025-00-01T10:00:00", "2025-13-01T10:00:00", "2025-01-00T10:00:00", "2025-04-31T10:00:00",
+                "2025-02-29T10:00:00", "2025-01-01T24:00:00", "2025-01-01T10:60:00", "2025-01-01T10:00:60")) {
+            assertNull(TimestampParser.parse(text), text);
+        }
+    }
+
+    @Test
+    void parseOrNowFallsBackToTheCurrentTime() {
+        assertEquals(LocalDateTime.parse("2025-01-01T10:00:00"), TimestampParser.parseOrNow("2025-01-01T10:00:00"));
+        for (String text : Arrays.asList(null, "", "  ", "yesterday")) {
+            LocalDateTime before = LocalDateTime.now();
+            LocalDateTime parsed = TimestampParser.parseOrNow(text);
+            assertFalse(parsed.isBefore(before) || parsed.isAfter(LocalDateTime.now()), String.valueOf(text));
+        }
+    }
+}
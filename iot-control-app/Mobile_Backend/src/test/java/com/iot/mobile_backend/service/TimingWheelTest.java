@@ -0,0 +1,86 @@
+package com.iot.mobile_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Deadlines fire once, never early, also when they lie several turns ahead; cancelled ones never fire.
+class TimingWheelTest {
+
+    // 8 slots of 100 ms, one turn is 800 ms.
+    private final TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    void firesDeadlinesSeveralTurnsAhead() {
+        wheel.schedule("kitchen", 2550);
+        wheel.schedule("office", 350);
+
+        // The kitchen's slot comes up twice before its turn.
+        for (long now = 0; now < 2600; now += 50) {
+            wheel.advance(now, fired::add);
+            assertEquals(now >= 400 ? List.of("office") : List.of(), fired, "at " + now);
+        }
+        wheel.advance(2600, fired::add);
+        assertEquals(List.of("office", "kitchen"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesEverythingDueAfterALongPause() {
+        wheel.schedule("kitchen", 500);
+        wheel.schedule("office", 5000);
+        wheel.schedule("attic", 50000);
+
+        // One turn visits every slot, in slot order rather than deadline order.
+        wheel.advance(60000, fired::add);
+        assertEquals(Set.of("kitchen", "office", "attic"), Set.copyOf(fired));
+        assertEquals(3, fired.size());
+    }
+
+    @Test
+    void expiredHandlerMayScheduleAgain() {
+        wheel.schedule("kitchen", 100);
+        wheel.advance(100, item -> {
+            fired.add(item);
+            wheel.schedule(item, 1000);
+        });
+        assertEquals(1, wheel.size());
+
+        wheel.advance(1000, fired::add);
+        assertEquals(List.of("kitchen", "kitchen"), fired);
+    }
+
+    @Test
+    void cancelledDeadlineNeverFires() {
+        TimingWheel<String>.Timeout kitchen = wheel.schedule("kitchen", 2550);
+        wheel.schedule("office", 2550);
+        assertEquals(2, wheel.size());
+
+        assertTrue(kitchen.isPending());
+        assertTrue(kitchen.cancel());
+        assertFalse(kitchen.isPending());
+        assertFalse(kitchen.cancel());
+        assertEquals(1, wheel.size());
+
+        wheel.advance(3000, fired::add);
+        assertEquals(List.of("office"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancellingAFiredDeadlineDoesNothing() {
+        TimingWheel<String>.Timeout kitchen = wheel.schedule("kitchen", 200);
+        wheel.advance(200, fired::add);
+
+        assertFalse(kitchen.isPending());
+        assertFalse(kitchen.cancel());
+        assertEquals(0, wheel.size());
+    }
+}